@@ -3,8 +3,10 @@ package com.example.android.dailynewsfeed;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
-import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,6 +14,8 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 
 /**
@@ -20,22 +24,37 @@ import java.util.List;
 
 public class ArticleAdapter extends RecyclerView.Adapter<ArticleAdapter.ViewHolder> {
 
-    private static final String DATE_SEPARATOR = "T";
-    private static final String CONTRIBUTOR_SEPARATOR = " in";
-    // Store a member variable for the articles
-    private List<Article> articles;
+    /**
+     * Thread computing the differences between the shown and the refreshed articles
+     */
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+    // Store a member variable for the rows of the articles, only those around the rows on
+    // screen are kept
+    private ArticleWindow articles;
+    // Number of rows kept around the rows on screen
+    private final int windowSize;
     // Store the context for easy access
     private Context context;
+    // Loads the thumbnails in the background
+    private ThumbnailLoader thumbnailLoader;
+    // Dispatches the computed differences on the main thread
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Number of the latest list submitted, to drop differences computed for an older one
+    private int submittedGeneration;
+    // Number of the latest list shown
+    private int shownGeneration;
 
     /**
-     * Pass in the article array into the constructor
+     * Pass in the number of rows to keep into the constructor
      *
      * @param context
-     * @param articles
+     * @param windowSize number of rows kept around the rows on screen, see {@link ArticleWindow}
      */
-    public ArticleAdapter(Context context, List<Article> articles) {
+    public ArticleAdapter(Context context, int windowSize) {
         this.context = context;
-        this.articles = articles;
+        this.windowSize = windowSize;
+        this.articles = new ArticleWindow(windowSize);
+        this.thumbnailLoader = ThumbnailLoader.getInstance(context);
     }
 
     /**
@@ -63,35 +82,46 @@ public class ArticleAdapter extends RecyclerView.Adapter<ArticleAdapter.ViewHold
      */
     @Override
     public void onBindViewHolder(ViewHolder holder, int position) {
-        // Get the data model based on position
-        Article article = articles.get(position);
+        long start = Metrics.start();
+        // Get the display model based on position, already formatted on the loader thread
+        ArticleItem item = articles.get(position);
+
+        // Remember the article the row shows for clicks, as a row may be reused by the adapter
+        // of another tab
+        holder.webUrl = item.getWebUrl();
 
         // Display the title of the current article in that TextView
-        holder.titleTextView.setText(article.getTitle());
+        holder.titleTextView.setText(item.getTitle());
 
         // Display the section name of the current article in that TextView
-        holder.sectionTextView.setText(article.getSection());
-
-        // Format the date and display in that TextView
-        String date = formatString(article.getDate(), DATE_SEPARATOR);
-        holder.dateTextView.setText(date);
-
-        // Display the contributor of the current article in that TextView if contributor is not
-        // empty, else remove that TextView
-        if (!TextUtils.isEmpty(article.getContributor())) {
-            String contributor = formatString(article.getContributor(), CONTRIBUTOR_SEPARATOR);
-            holder.contributorTextView.setText(contributor);
-        } else {
-            holder.contributorTextView.setVisibility(View.GONE);
-        }
+        holder.sectionTextView.setText(item.getSection());
 
-        // Display the image of the current article in that ImageView if image is not
-        // empty, else remove that ImageView
-        if (article.getImage() != null) {
-            holder.thumbnailImageView.setImageDrawable(article.getImage());
-        } else {
-            holder.thumbnailImageView.setVisibility(View.GONE);
-        }
+        // Display the date of the current article in that TextView
+        holder.dateTextView.setText(item.getDate());
+
+        // Display the contributor of the current article in that TextView. The visibility is
+        // set on every bind, as a recycled row may have hidden it for another article
+        holder.contributorTextView.setText(item.getContributor());
+        holder.contributorTextView.setVisibility(item.getContributorVisibility());
+
+        // Load the thumbnail of the current article into that ImageView in the background if
+        // it has one. Called either way, so a recycled row stops loading the thumbnail of the
+        // article it showed before and releases its bitmap
+        holder.thumbnailImageView.setImageDrawable(null);
+        holder.thumbnailImageView.setVisibility(item.getThumbnailVisibility());
+        thumbnailLoader.load(item.getThumbnailUrl(), holder.thumbnailImageView);
+        Metrics.stop(Metrics.BIND, start);
+    }
+
+    /**
+     * Stop loading the thumbnail of a row that has scrolled out of view
+     *
+     * @param holder ViewHolder being recycled
+     */
+    @Override
+    public void onViewRecycled(ViewHolder holder) {
+        thumbnailLoader.cancel(holder.thumbnailImageView);
+        holder.thumbnailImageView.setImageDrawable(null);
     }
 
     /**
@@ -106,29 +136,76 @@ public class ArticleAdapter extends RecyclerView.Adapter<ArticleAdapter.ViewHold
 
     // Clear the data
     public void clear() {
+        submittedGeneration++;
+        shownGeneration = submittedGeneration;
         articles.clear();
         notifyDataSetChanged();
     }
 
-    // Add the new list of articles
-    public void addall(List<Article> data) {
-        articles.addAll(data);
-        notifyDataSetChanged();
+    /**
+     * Replace the articles with a refreshed list. The differences to the shown list are computed
+     * in the background and only the inserted, removed, moved and changed rows are notified, so
+     * unchanged rows keep their views, thumbnails and scroll position.
+     *
+     * @param data refreshed articles, or null for none
+     */
+    public void submitList(List<ArticleItem> data) {
+        final int generation = ++submittedGeneration;
+        // The shown rows are compared on another thread, so through a copy of the window
+        final ArticleWindow oldArticles = articles.copy();
+        final ArticleWindow newArticles = new ArticleWindow(windowSize, data);
+
+        // Nothing to compare, the whole list is inserted or removed
+        if (oldArticles.isEmpty() || newArticles.isEmpty()) {
+            shownGeneration = generation;
+            articles = newArticles;
+            if (!oldArticles.isEmpty()) {
+                notifyItemRangeRemoved(0, oldArticles.size());
+            } else if (!newArticles.isEmpty()) {
+                notifyItemRangeInserted(0, newArticles.size());
+            }
+            return;
+        }
+
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(
+                        new ArticleDiffCallback(oldArticles, newArticles));
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // A newer list was submitted while this one was compared
+                        if (generation != submittedGeneration) {
+                            return;
+                        }
+                        shownGeneration = generation;
+                        articles = newArticles;
+                        result.dispatchUpdatesTo(ArticleAdapter.this);
+                    }
+                });
+            }
+        });
     }
 
     /**
-     * Format string
+     * Append the next page of articles, leaving out articles already in the list because newer
+     * articles have pushed them onto the next page, and notify only the inserted range
      *
-     * @param originalString
-     * @param separator
-     * @return
+     * @param data articles of the next page
+     * @return false if the page was not added because a refreshed list is still being compared
      */
-    private String formatString(String originalString, String separator) {
-        String newString = originalString;
-        if (originalString.contains(separator)) {
-            newString = originalString.substring(0, originalString.indexOf(separator));
+    public boolean appendPage(List<ArticleItem> data) {
+        // The page follows on from the refreshed list, which is not shown yet
+        if (shownGeneration != submittedGeneration) {
+            return false;
+        }
+        int start = articles.size();
+        int added = articles.appendMissing(data);
+        if (added > 0) {
+            notifyItemRangeInserted(start, added);
         }
-        return newString;
+        return true;
     }
 
     /**
@@ -143,6 +220,8 @@ public class ArticleAdapter extends RecyclerView.Adapter<ArticleAdapter.ViewHold
         public ImageView thumbnailImageView;
 
         private Context context;
+        // Web url of the article shown in the row
+        private String webUrl;
 
         // Create a constructor that accepts the entire item row and does the view lookups
         // to find each subview
@@ -168,7 +247,7 @@ public class ArticleAdapter extends RecyclerView.Adapter<ArticleAdapter.ViewHold
             // Check if an item was deleted, but the user clicked it before the UI removed it
             if (position != RecyclerView.NO_POSITION) {
                 // Launch web page linked to article
-                Uri webpage = Uri.parse(articles.get(position).getWebUrl());
+                Uri webpage = Uri.parse(webUrl);
                 Intent webIntent = new Intent(Intent.ACTION_VIEW, webpage);
                 if (webIntent.resolveActivity(context.getPackageManager()) != null) {
                     context.startActivity(webIntent);
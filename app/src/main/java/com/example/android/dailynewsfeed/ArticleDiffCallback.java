@@ -0,0 +1,50 @@
+package com.example.android.dailynewsfeed;
+
+import android.support.v7.util.DiffUtil;
+
+import java.util.List;
+
+/**
+ * {@link ArticleDiffCallback} compares two lists of {@link ArticleItem}s for {@link DiffUtil}, so a
+ * refresh only notifies the rows that were inserted, removed, moved or changed.
+ * <p>
+ * Articles are the same item when they have the same web url, which is unique per Guardian
+ * article, and have the same contents when every field shown in the row is equal.
+ */
+public class ArticleDiffCallback extends DiffUtil.Callback {
+
+    private final List<ArticleItem> oldArticles;
+    private final List<ArticleItem> newArticles;
+
+    /**
+     * Create a new {@link ArticleDiffCallback}
+     *
+     * @param oldArticles rows shown in the list
+     * @param newArticles rows to show instead
+     */
+    public ArticleDiffCallback(List<ArticleItem> oldArticles, List<ArticleItem> newArticles) {
+        this.oldArticles = oldArticles;
+        this.newArticles = newArticles;
+    }
+
+    @Override
+    public int getOldListSize() {
+        return oldArticles.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+        return newArticles.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        String oldWebUrl = oldArticles.get(oldItemPosition).getWebUrl();
+        return oldWebUrl != null && oldWebUrl.equals(newArticles.get(newItemPosition).getWebUrl());
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        return oldArticles.get(oldItemPosition).equals(newArticles.get(newItemPosition));
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.android.dailynewsfeed;
+
+import android.view.View;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * {@link ArticleItem} is an {@link Article} as it is shown in a row of the list. The texts and
+ * visibilities are worked out once on the loader thread, so binding a row only assigns them.
+ */
+public class ArticleItem {
+
+    /**
+     * Article shown in the row
+     */
+    private final Article article;
+    /**
+     * Publication date without the time
+     */
+    private final String date;
+    /**
+     * Contributor without their role
+     */
+    private final String contributor;
+    /**
+     * Visibility of the contributor, GONE if the article has none
+     */
+    private final int contributorVisibility;
+    /**
+     * Visibility of the thumbnail, GONE if the article has none
+     */
+    private final int thumbnailVisibility;
+
+    /**
+     * Create the row of an article
+     *
+     * @param article to show
+     */
+    public ArticleItem(Article article) {
+        this(article, ArticleFormatter.formatDate(article.getDate()),
+                ArticleFormatter.formatContributor(article.getContributor()));
+    }
+
+    /**
+     * Create the row of an article whose texts have already been formatted, e.g. by
+     * {@link ArticleSnapshot}
+     *
+     * @param article     to show
+     * @param date        publication date without the time, see
+     *                    {@link ArticleFormatter#formatDate(long)}
+     * @param contributor contributor without their role, see
+     *                    {@link ArticleFormatter#formatContributor(String)}
+     */
+    public ArticleItem(Article article, String date, String contributor) {
+        this.article = article;
+        this.date = date;
+        this.contributor = contributor;
+        contributorVisibility = contributor.isEmpty() ? View.GONE : View.VISIBLE;
+        thumbnailVisibility = isEmpty(article.getThumbnailUrl()) ? View.GONE : View.VISIBLE;
+    }
+
+    /**
+     * Create the rows of a list of articles
+     *
+     * @param articles to show, or null
+     * @return the rows, or null if articles is null
+     */
+    public static List<ArticleItem> fromArticles(List<Article> articles) {
+        if (articles == null) {
+            return null;
+        }
+        List<ArticleItem> items = new ArrayList<>(articles.size());
+        for (Article article : articles) {
+            items.add(new ArticleItem(article));
+        }
+        return items;
+    }
+
+    /**
+     * Create the rows of a list of articles as they are asked for, e.g. for a list restored from
+     * an {@link ArticleSnapshot} whose articles are only decoded when their row is bound. The
+     * texts of a snapshot's rows were formatted when it was written, so binding such a row does
+     * not format them. The rows are not kept: {@link ArticleWindow} keeps those around the rows
+     * on screen.
+     *
+     * @param articles to show
+     * @return the rows, each created whenever it is asked for
+     */
+    public static List<ArticleItem> lazyList(List<Article> articles) {
+        return new LazyList(articles);
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    /**
+     * @return article shown in the row
+     */
+    public Article getArticle() {
+        return article;
+    }
+
+    /**
+     * @return title of the article
+     */
+    public String getTitle() {
+        return article.getTitle();
+    }
+
+    /**
+     * @return section name of the article
+     */
+    public String getSection() {
+        return article.getSection();
+    }
+
+    /**
+     * @return publication date without the time
+     */
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * @return contributor without their role, or "" if there is none
+     */
+    public String getContributor() {
+        return contributor;
+    }
+
+    /**
+     * @return visibility of the contributor view
+     */
+    public int getContributorVisibility() {
+        return contributorVisibility;
+    }
+
+    /**
+     * @return web url of the article
+     */
+    public String getWebUrl() {
+        return article.getWebUrl();
+    }
+
+    /**
+     * @return thumbnail url of the article, or null if it has none
+     */
+    public String getThumbnailUrl() {
+        return article.getThumbnailUrl();
+    }
+
+    /**
+     * @return visibility of the thumbnail view
+     */
+    public int getThumbnailVisibility() {
+        return thumbnailVisibility;
+    }
+
+    /**
+     * Rows are equal when their articles are, everything else is derived from the article
+     */
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof ArticleItem && article.equals(((ArticleItem) o).article));
+    }
+
+    @Override
+    public int hashCode() {
+        return article.hashCode();
+    }
+
+    /**
+     * Rows created each time they are asked for, so the list holds nothing but its articles
+     */
+    private static class LazyList extends AbstractList<ArticleItem> implements RandomAccess {
+        private final List<Article> articles;
+        /**
+         * Snapshot the articles are read from, with the texts of their rows, or null
+         */
+        private final ArticleSnapshot snapshot;
+
+        LazyList(List<Article> articles) {
+            this.articles = articles;
+            snapshot = ArticleSnapshot.of(articles);
+        }
+
+        @Override
+        public ArticleItem get(int index) {
+            if (snapshot != null) {
+                return new ArticleItem(snapshot.get(index), snapshot.getShownDate(index),
+                        snapshot.getShownContributor(index));
+            }
+            return new ArticleItem(articles.get(index));
+        }
+
+        @Override
+        public int size() {
+            return articles.size();
+        }
+    }
+}
@@ -7,37 +7,330 @@ import java.util.List;
 
 /**
  * Created by Eileen on 10/26/2017.
+ * <p>
+ * Loads the articles of a query stale-while-revalidate: the articles kept in the
+ * {@link ArticleStore} are delivered first, then the query is loaded from the Guardian API in the
+ * background and delivered again only if the articles have changed.
+ * <p>
+ * A shown section listed newest first is revalidated with an {@link ArticleDelta}: only the
+ * articles published since the newest stored one are asked for, so a refresh with nothing new
+ * transfers a single short page.
+ * <p>
+ * Cancelling the loader, e.g. when the tab is left or the loader restarted, aborts its requests,
+ * so the load frees its thread instead of running to completion.
+ * <p>
+ * The query is built from the {@link SettingsRepository} on the first load, off the main thread,
+ * unless it is given, and kept for the life of the loader: a tab restarts its loader when the
+ * settings change.
  */
 
-public class ArticleLoader extends AsyncTaskLoader<List<Article>> {
+public class ArticleLoader extends AsyncTaskLoader<List<ArticleItem>> {
 
     /**
-     * Query URL
+     * Most pages of new articles read before loading the whole query instead
+     */
+    private static final int MAX_DELTA_PAGES = 3;
+
+    /**
+     * Id of the section, e.g. "world"
+     */
+    private String section;
+    /**
+     * Query of the section, null until the first load has read the settings
+     */
+    private volatile SectionQuery query;
+    /**
+     * Url of the first page of the query, which its articles are stored under
      */
     private String url;
+    /**
+     * Whether the section is shown, so it is fetched without waiting for other sections and
+     * revalidated with a delta
+     */
+    private volatile boolean visible;
+    /**
+     * Local copy of the articles of each query
+     */
+    private ArticleStore store;
+    /**
+     * Rows last delivered to the fragment
+     */
+    private List<ArticleItem> articles;
+    /**
+     * Stored articles of the query last returned by a load, or null if none were stored
+     */
+    private volatile List<Article> stored;
+    /**
+     * Rows of {@link #stored}, handed over again when the Guardian API returns the same articles
+     */
+    private volatile List<ArticleItem> storedRows;
+    /**
+     * Whether the store has already been read for this loader
+     */
+    private volatile boolean storeChecked;
+    /**
+     * Whether the result being delivered came from the store and still has to be revalidated
+     */
+    private volatile boolean revalidatePending;
+    /**
+     * Whether the query has been loaded from the Guardian API by this loader
+     */
+    private volatile boolean networkLoaded;
+    /**
+     * Cancellation of the load in progress
+     */
+    private volatile Cancellation cancellation;
 
     /**
      * Constructs a new {@link ArticleLoader}.
      *
      * @param context of the activity
-     * @param url     to load data from
+     * @param section id of the section to load, e.g. "world"
+     * @param visible whether the section is shown
      */
-    public ArticleLoader(Context context, String url) {
+    public ArticleLoader(Context context, String section, boolean visible) {
+        this(context, section, null, visible);
+    }
+
+    /**
+     * Constructs a new {@link ArticleLoader} for a query already built, e.g. to refresh the
+     * articles shown without reading the settings again.
+     *
+     * @param context of the activity
+     * @param section id of the section to load, e.g. "world"
+     * @param query   of the section, or null to build it from the settings on the first load
+     * @param visible whether the section is shown
+     */
+    public ArticleLoader(Context context, String section, SectionQuery query, boolean visible) {
         super(context);
-        this.url = url;
+        this.section = section;
+        this.visible = visible;
+        this.store = ArticleStore.getInstance(context);
+        if (query != null) {
+            this.url = query.url();
+            this.query = query;
+        }
     }
 
     @Override
-    public List<Article> loadInBackground() {
-        if (url == null) {
+    public List<ArticleItem> loadInBackground() {
+        long start = Metrics.start();
+        Cancellation loadCancellation = new Cancellation();
+        cancellation = loadCancellation;
+        // The load may have been cancelled before it had a cancellation
+        if (isLoadInBackgroundCanceled()) {
+            loadCancellation.cancel();
+        }
+        try {
+            return load(loadCancellation);
+        } finally {
+            Metrics.stop(Metrics.LOAD_IN_BACKGROUND, start);
+        }
+    }
+
+    @Override
+    public void cancelLoadInBackground() {
+        Cancellation loadCancellation = cancellation;
+        if (loadCancellation != null) {
+            loadCancellation.cancel();
+        }
+    }
+
+    /**
+     * @return query of the loader, or null until its first load has read the settings
+     */
+    public SectionQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Tell the loader whether its section is shown, e.g. when the user swipes to a tab created
+     * offscreen. Loads started from now on use it.
+     *
+     * @param visible whether the section is shown
+     */
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    /**
+     * @return whether the articles just delivered came from the store and are being checked
+     * against the Guardian API, so another result follows
+     */
+    public boolean isRevalidating() {
+        return revalidatePending;
+    }
+
+    /**
+     * Load the articles from the store the first time, from the Guardian API afterwards
+     *
+     * @param cancellation of the load
+     * @return the rows, or null if the load was cancelled
+     */
+    private List<ArticleItem> load(Cancellation cancellation) {
+        if (query == null) {
+            SectionQuery sectionQuery = SettingsRepository.getInstance(getContext())
+                    .getQuery(section);
+            url = sectionQuery.url();
+            query = sectionQuery;
+        }
+
+        // Answer from disk first if this query has been loaded before
+        if (!storeChecked) {
+            storeChecked = true;
+            long start = Metrics.start();
+            List<Article> found = store.load(url);
+            Metrics.stop(Metrics.STORE_LOAD, start);
+            if (!found.isEmpty()) {
+                revalidatePending = true;
+                return keep(found);
+            }
+        }
+
+        revalidatePending = false;
+        // The articles the first pass read from the store, rather than mapping them again
+        List<Article> known = stored;
+        if (visible && query.isNewestFirst() && known != null) {
+            List<ArticleItem> merged = loadDelta(known, cancellation);
+            if (merged != null) {
+                networkLoaded = true;
+                return merged;
+            }
+        }
+        if (cancellation.isCanceled()) {
+            return null;
+        }
+
+        // Perform the network request, parse the response, and extract a list of articles. The
+        // scheduler may fetch it together with other sections
+        List<Article> fresh = FetchScheduler.getInstance(getContext())
+                .fetch(query, visible, cancellation);
+        if (cancellation.isCanceled()) {
+            return null;
+        }
+        if (fresh == null || fresh.isEmpty()) {
+            // E.g. offline or the request failed, so load again when the tab is shown again
+            return ArticleItem.fromArticles(fresh);
+        }
+        networkLoaded = true;
+        store.save(url, fresh);
+        // Compared here rather than on the main thread, as it decodes every stored article
+        List<Article> previous = stored;
+        if (previous != null && fresh.equals(previous)) {
+            return storedRows;
+        }
+        // Show the articles from their snapshot, so they are not kept on the heap
+        return keep(store.load(url));
+    }
+
+    /**
+     * Remember the stored articles returned by a load
+     *
+     * @param articles stored articles of the query
+     * @return their rows. The stored articles may be many, so only the rows that are shown are
+     * prepared.
+     */
+    private List<ArticleItem> keep(List<Article> articles) {
+        List<ArticleItem> rows = ArticleItem.lazyList(articles);
+        stored = articles;
+        storedRows = rows;
+        return rows;
+    }
+
+    /**
+     * Load the articles published since the newest stored one and store them in front of it
+     *
+     * @param known        stored articles of the query last returned, newest first
+     * @param cancellation of the load
+     * @return the rows of the stored articles, or null if the new articles could not all be
+     * loaded, e.g. the request failed or too many were published, and the query must be loaded
+     * in full, or the load was cancelled
+     */
+    private List<ArticleItem> loadDelta(List<Article> known, Cancellation cancellation) {
+        ArticleDelta delta = new ArticleDelta(known);
+        long since = delta.since();
+        if (since == Article.NO_DATE) {
+            return null;
+        }
+
+        // The from-date is inclusive, so the newest stored article comes back last and tells
+        // that there is nothing newer on the following pages
+        RequestRegistry registry = QueryUtils.getRequestRegistry(getContext());
+        for (int page = 1; page <= MAX_DELTA_PAGES; page++) {
+            String deltaUrl = query.deltaUrl(since, page);
+            if (page == 1) {
+                // Ask the Guardian API again rather than for the answer of the last revalidation
+                registry.invalidate(deltaUrl);
+            }
+            ArticlePage response = registry.fetch(deltaUrl, cancellation);
+            if (cancellation.isCanceled()) {
+                return null;
+            }
+            // The articles are null for a response without results, which leaves the delta
+            // incomplete, so the whole query is loaded instead
+            if (delta.addPage(response.getArticles()) || !response.hasNextPage()) {
+                break;
+            }
+        }
+        if (!delta.isComplete()) {
+            Metrics.increment(Metrics.DELTA_FALLBACK);
             return null;
         }
-        // Perform the network request, parse the response, and extract a list of articles.
-        return QueryUtils.fetchArticleData(url);
+        if (delta.addedCount() == 0) {
+            Metrics.increment(Metrics.DELTA_UNCHANGED);
+            return storedRows;
+        }
+        Metrics.increment(Metrics.DELTA_MERGED);
+        store.save(url, delta.merge(query.getPageSize()));
+        return keep(store.load(url));
+    }
+
+    @Override
+    public void deliverResult(List<ArticleItem> data) {
+        if (isReset()) {
+            return;
+        }
+
+        // Keep showing what we have if the revalidation failed or brought nothing new. The same
+        // rows are handed over again, so the fragment knows the load has finished. A load that
+        // found the same articles returns the same rows, so they are compared by identity rather
+        // than by decoding every stored article on the main thread
+        boolean unchanged = articles != null
+                && (data == null || data.isEmpty() || data == articles);
+        if (!unchanged) {
+            articles = data;
+        }
+        if (isStarted()) {
+            super.deliverResult(articles);
+        }
+
+        // The articles came from disk, so check the Guardian API for newer ones
+        if (revalidatePending) {
+            revalidatePending = false;
+            forceLoad();
+        }
     }
 
     @Override
     protected void onStartLoading() {
-        onForceLoad();
+        // Hand over the articles already loaded, e.g. after a rotation
+        if (articles != null) {
+            super.deliverResult(articles);
+        }
+        // Load again unless the Guardian API has already answered this loader
+        if (!networkLoaded || takeContentChanged()) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        onStopLoading();
+        articles = null;
     }
 }
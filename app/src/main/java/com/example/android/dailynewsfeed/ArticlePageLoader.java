@@ -0,0 +1,125 @@
+package com.example.android.dailynewsfeed;
+
+import android.content.Context;
+import android.support.v4.content.AsyncTaskLoader;
+
+import java.util.List;
+
+/**
+ * Loads a single page of a query from the Guardian API, e.g. the page after the shown ones while
+ * the user scrolls towards the end of the list, or the results of a search.
+ */
+public class ArticlePageLoader extends AsyncTaskLoader<ArticlePageLoader.Result> {
+
+    /**
+     * Query URL of the page
+     */
+    private String url;
+    /**
+     * The page once it has been loaded
+     */
+    private Result result;
+    /**
+     * Cancellation of the load in progress
+     */
+    private volatile Cancellation cancellation;
+
+    /**
+     * Constructs a new {@link ArticlePageLoader}.
+     *
+     * @param context of the activity
+     * @param url     of the page to load
+     */
+    public ArticlePageLoader(Context context, String url) {
+        super(context);
+        this.url = url;
+    }
+
+    @Override
+    public Result loadInBackground() {
+        Cancellation loadCancellation = new Cancellation();
+        cancellation = loadCancellation;
+        // The load may have been cancelled before it had a cancellation
+        if (isLoadInBackgroundCanceled()) {
+            loadCancellation.cancel();
+        }
+        ArticlePage page = QueryUtils.fetchArticlePage(getContext(), url, loadCancellation);
+        if (loadCancellation.isCanceled()) {
+            return null;
+        }
+        List<Article> articles = page.getArticles();
+        if (articles == null || articles.isEmpty()) {
+            return new Result(page, ArticleItem.fromArticles(articles));
+        }
+        // Keep the articles on disk rather than on the heap, as the list may grow page after
+        // page. Their rows are created as they are shown
+        articles = ArticleStore.getInstance(getContext()).spill(url, articles);
+        return new Result(page, ArticleItem.lazyList(articles));
+    }
+
+    @Override
+    public void cancelLoadInBackground() {
+        Cancellation loadCancellation = cancellation;
+        if (loadCancellation != null) {
+            loadCancellation.cancel();
+        }
+    }
+
+    @Override
+    public void deliverResult(Result data) {
+        if (isReset()) {
+            return;
+        }
+        result = data;
+        if (isStarted()) {
+            super.deliverResult(data);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (result != null) {
+            deliverResult(result);
+        } else {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        onStopLoading();
+        result = null;
+    }
+
+    /**
+     * A loaded page and the rows showing its articles
+     */
+    public static class Result {
+        private final ArticlePage page;
+        private final List<ArticleItem> items;
+
+        Result(ArticlePage page, List<ArticleItem> items) {
+            this.page = page;
+            this.items = items;
+        }
+
+        /**
+         * @return the page, for its position among the pages of the search
+         */
+        public ArticlePage getPage() {
+            return page;
+        }
+
+        /**
+         * @return rows of the page, or null if the response had no results
+         */
+        public List<ArticleItem> getItems() {
+            return items;
+        }
+    }
+}
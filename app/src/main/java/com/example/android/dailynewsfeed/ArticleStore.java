@@ -0,0 +1,358 @@
+package com.example.android.dailynewsfeed;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ArticleStore} keeps the last list of {@link Article}s loaded for each query in a SQLite
+ * database, so a section can show its articles straight from disk after a restart or without
+ * internet connection.
+ * <p>
+ * The articles of each query are also written as an {@link ArticleSnapshot} in the cache
+ * directory. Loading maps the snapshot into memory instead of querying the database, so a long
+ * list is restored at once and its articles are only decoded as their rows are shown. Other
+ * articles can be moved out of the heap the same way with {@link #spill(String, List)}.
+ */
+public class ArticleStore extends SQLiteOpenHelper {
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = ArticleStore.class.getSimpleName();
+    /**
+     * Name of the database file
+     */
+    private static final String DATABASE_NAME = "articles.db";
+    /**
+     * Version of the database schema
+     */
+    private static final int DATABASE_VERSION = 3;
+    /**
+     * Queries that have not been loaded for this long are removed with their articles
+     */
+    private static final long MAX_QUERY_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+    /**
+     * Name of the snapshot directory within the cache directory of the app
+     */
+    private static final String SNAPSHOT_DIRECTORY = "snapshots";
+    /**
+     * Maximum total size of the snapshots in bytes
+     */
+    private static final long SNAPSHOT_BYTES = 4 * 1024 * 1024;
+
+    // Table of the queries that have been stored
+    private static final String TABLE_QUERIES = "queries";
+    private static final String COLUMN_QUERY_KEY = "query_key";
+    private static final String COLUMN_FETCHED_AT = "fetched_at";
+
+    // Table of the articles of each query, in the order they were returned
+    private static final String TABLE_ARTICLES = "articles";
+    private static final String COLUMN_POSITION = "position";
+    private static final String COLUMN_TITLE = "title";
+    private static final String COLUMN_CONTRIBUTOR = "contributor";
+    private static final String COLUMN_SECTION = "section";
+    private static final String COLUMN_SECTION_ID = "section_id";
+    private static final String COLUMN_DATE = "date";
+    private static final String COLUMN_WEB_URL = "web_url";
+    private static final String COLUMN_THUMBNAIL_URL = "thumbnail_url";
+
+    private static final String[] ARTICLE_COLUMNS = {COLUMN_TITLE, COLUMN_CONTRIBUTOR,
+            COLUMN_SECTION, COLUMN_SECTION_ID, COLUMN_DATE, COLUMN_WEB_URL, COLUMN_THUMBNAIL_URL};
+
+    /**
+     * Store shared by every loader
+     */
+    private static ArticleStore instance;
+
+    /**
+     * Snapshot of the articles of each query, by query key
+     */
+    private final DiskCache snapshots;
+    /**
+     * Guards {@link #generations}, {@link #preloadedKey} and {@link #preloaded}
+     */
+    private final Object preloadLock = new Object();
+    /**
+     * Number of loads and saves of each query, so a preload that overlapped one of them is not
+     * handed out
+     */
+    private final Map<String, Integer> generations = new HashMap<>();
+    /**
+     * Query whose articles have been read ahead by {@link #preload(String)}, or null
+     */
+    private String preloadedKey;
+    /**
+     * Articles read ahead, handed to the next load of their query
+     */
+    private List<Article> preloaded;
+
+    private ArticleStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        snapshots = new DiskCache(new File(context.getCacheDir(), SNAPSHOT_DIRECTORY),
+                SNAPSHOT_BYTES);
+    }
+
+    /**
+     * Return the store shared by the whole app
+     *
+     * @param context any context of the app
+     */
+    public static synchronized ArticleStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new ArticleStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_QUERIES + " ("
+                + COLUMN_QUERY_KEY + " TEXT PRIMARY KEY, "
+                + COLUMN_FETCHED_AT + " INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE " + TABLE_ARTICLES + " ("
+                + COLUMN_QUERY_KEY + " TEXT NOT NULL, "
+                + COLUMN_POSITION + " INTEGER NOT NULL, "
+                + COLUMN_TITLE + " TEXT, "
+                + COLUMN_CONTRIBUTOR + " TEXT, "
+                + COLUMN_SECTION + " TEXT, "
+                + COLUMN_SECTION_ID + " TEXT, "
+                + COLUMN_DATE + " INTEGER, "
+                + COLUMN_WEB_URL + " TEXT, "
+                + COLUMN_THUMBNAIL_URL + " TEXT, "
+                + "PRIMARY KEY (" + COLUMN_QUERY_KEY + ", " + COLUMN_POSITION + "))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The store only caches what can be loaded again, so start over
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ARTICLES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_QUERIES);
+        onCreate(db);
+    }
+
+    /**
+     * Return the articles stored for the query. Must not be called on the main thread.
+     *
+     * @param queryKey identifies the query, e.g. its url
+     * @return stored articles in their original order, empty if nothing is stored. Articles
+     * restored from a snapshot are decoded each time they are asked for.
+     */
+    public List<Article> load(String queryKey) {
+        synchronized (preloadLock) {
+            nextGeneration(queryKey);
+            if (queryKey.equals(preloadedKey)) {
+                List<Article> articles = preloaded;
+                preloadedKey = null;
+                preloaded = null;
+                return articles;
+            }
+        }
+        return read(queryKey);
+    }
+
+    /**
+     * Read the articles stored for the query from its snapshot, or from the database if it has
+     * none
+     */
+    private List<Article> read(String queryKey) {
+        File snapshot = snapshots.get(queryKey);
+        if (snapshot != null) {
+            try {
+                return ArticleSnapshot.open(snapshot).asList();
+            } catch (IOException e) {
+                // E.g. written by another version of the app, the database still has them
+                Log.e(LOG_TAG, "Error reading snapshot of " + queryKey, e);
+            }
+        }
+
+        List<Article> articles = new ArrayList<>();
+        Cursor cursor = getReadableDatabase().query(TABLE_ARTICLES, ARTICLE_COLUMNS,
+                COLUMN_QUERY_KEY + " = ?", new String[]{queryKey}, null, null, COLUMN_POSITION);
+        try {
+            while (cursor.moveToNext()) {
+                articles.add(readArticle(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return articles;
+    }
+
+    /**
+     * Read the articles stored for a query ahead of its next {@link #load(String)}, e.g. while
+     * the activity that shows them is being created. The articles are dropped if the query is
+     * loaded or saved while they are read, as they may then be older than the stored ones. Must
+     * not be called on the main thread.
+     *
+     * @param queryKey identifies the query, e.g. its url
+     */
+    public void preload(String queryKey) {
+        int generation;
+        synchronized (preloadLock) {
+            generation = generation(queryKey);
+        }
+        List<Article> articles = read(queryKey);
+        synchronized (preloadLock) {
+            if (generation(queryKey) == generation) {
+                preloadedKey = queryKey;
+                preloaded = articles;
+            }
+        }
+    }
+
+    /**
+     * @return number of loads and saves of the query so far. Must hold {@link #preloadLock}.
+     */
+    private int generation(String queryKey) {
+        Integer generation = generations.get(queryKey);
+        return generation == null ? 0 : generation;
+    }
+
+    /**
+     * Count a load or save of the query. Must hold {@link #preloadLock}.
+     */
+    private void nextGeneration(String queryKey) {
+        generations.put(queryKey, generation(queryKey) + 1);
+    }
+
+    /**
+     * Return every stored article once, whichever queries it was loaded for. Must not be called
+     * on the main thread.
+     *
+     * @return stored articles, newest first
+     */
+    public List<Article> loadAll() {
+        List<Article> articles = new ArrayList<>();
+        Cursor cursor = getReadableDatabase().query(true, TABLE_ARTICLES, ARTICLE_COLUMNS, null,
+                null, null, null, COLUMN_DATE + " DESC", null);
+        try {
+            while (cursor.moveToNext()) {
+                articles.add(readArticle(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return articles;
+    }
+
+    /**
+     * Replace the articles stored for the query. Must not be called on the main thread.
+     *
+     * @param queryKey identifies the query, e.g. its url
+     * @param articles loaded for the query
+     */
+    public void save(String queryKey, List<Article> articles) {
+        synchronized (preloadLock) {
+            // The articles read ahead, or being read, are replaced
+            nextGeneration(queryKey);
+            if (queryKey.equals(preloadedKey)) {
+                preloadedKey = null;
+                preloaded = null;
+            }
+        }
+        long now = System.currentTimeMillis();
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            deleteQuery(db, queryKey);
+
+            ContentValues query = new ContentValues();
+            query.put(COLUMN_QUERY_KEY, queryKey);
+            query.put(COLUMN_FETCHED_AT, now);
+            db.insert(TABLE_QUERIES, null, query);
+
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < articles.size(); i++) {
+                Article article = articles.get(i);
+                values.put(COLUMN_QUERY_KEY, queryKey);
+                values.put(COLUMN_POSITION, i);
+                values.put(COLUMN_TITLE, article.getTitle());
+                values.put(COLUMN_CONTRIBUTOR, article.getContributor());
+                values.put(COLUMN_SECTION, article.getSection());
+                values.put(COLUMN_SECTION_ID, article.getSectionId());
+                if (article.getDate() == Article.NO_DATE) {
+                    values.putNull(COLUMN_DATE);
+                } else {
+                    values.put(COLUMN_DATE, article.getDate());
+                }
+                values.put(COLUMN_WEB_URL, article.getWebUrl());
+                values.put(COLUMN_THUMBNAIL_URL, article.getThumbnailUrl());
+                db.insert(TABLE_ARTICLES, null, values);
+            }
+
+            // Drop queries nobody has loaded for a while, e.g. after the settings changed
+            Cursor stale = db.query(TABLE_QUERIES, new String[]{COLUMN_QUERY_KEY},
+                    COLUMN_FETCHED_AT + " < ?",
+                    new String[]{String.valueOf(now - MAX_QUERY_AGE_MILLIS)},
+                    null, null, null);
+            try {
+                while (stale.moveToNext()) {
+                    deleteQuery(db, stale.getString(0));
+                }
+            } finally {
+                stale.close();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        try {
+            snapshots.put(queryKey, new ByteArrayInputStream(ArticleSnapshot.toBytes(articles)));
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error writing snapshot of " + queryKey, e);
+        }
+    }
+
+    /**
+     * Move articles out of the heap: write them as a snapshot and return them read back from it,
+     * so they are only decoded again as they are asked for. Unlike {@link #save(String, List)}
+     * the articles are not kept in the database, e.g. for the pages after the first one. Must
+     * not be called on the main thread.
+     *
+     * @param key      identifies the articles, e.g. the url they were loaded from
+     * @param articles to move
+     * @return the articles, read from the snapshot if it could be written
+     */
+    public List<Article> spill(String key, List<Article> articles) {
+        try {
+            File snapshot = snapshots.put(key,
+                    new ByteArrayInputStream(ArticleSnapshot.toBytes(articles)));
+            return ArticleSnapshot.open(snapshot).asList();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error writing snapshot of " + key, e);
+            return articles;
+        }
+    }
+
+    /**
+     * Read the article of the current row of a cursor over {@link #ARTICLE_COLUMNS}, sharing the
+     * fields repeated across articles with those already loaded
+     */
+    private static Article readArticle(Cursor cursor) {
+        StringPool pool = StringPool.ARTICLE_FIELDS;
+        return new Article(cursor.getString(0), pool.intern(cursor.getString(1)),
+                pool.intern(cursor.getString(2)), pool.intern(cursor.getString(3)),
+                cursor.isNull(4) ? Article.NO_DATE : cursor.getLong(4), cursor.getString(5),
+                cursor.getString(6));
+    }
+
+    private static void deleteQuery(SQLiteDatabase db, String queryKey) {
+        String[] args = {queryKey};
+        db.delete(TABLE_ARTICLES, COLUMN_QUERY_KEY + " = ?", args);
+        db.delete(TABLE_QUERIES, COLUMN_QUERY_KEY + " = ?", args);
+    }
+}
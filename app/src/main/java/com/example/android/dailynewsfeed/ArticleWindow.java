@@ -0,0 +1,295 @@
+package com.example.android.dailynewsfeed;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * {@link ArticleWindow} holds the rows shown by {@link ArticleAdapter}. The rows come from lists
+ * appended one after the other, typically the first page and the next pages of a section read
+ * from {@link ArticleSnapshot}s, whose rows are created each time they are asked for.
+ * <p>
+ * Only a window of rows is kept: the row asked for at a position takes the slot of that position
+ * modulo the window size, so the rows bound last, around the rows on screen, stay while a row
+ * further away is reduced to its position in the list it came from and created from there again
+ * when it scrolls back into view. Apart from the hash of the web url of each row, kept to leave out
+ * articles repeated on the next pages, the memory held depends on the size of the window, not on
+ * how far the user scrolls.
+ * <p>
+ * Not thread safe: read the rows on another thread through a {@link #copy()}.
+ */
+public class ArticleWindow extends AbstractList<ArticleItem> implements RandomAccess {
+
+    /**
+     * Lists the rows are read from, in order
+     */
+    private final List<List<ArticleItem>> segments = new ArrayList<>();
+    /**
+     * Position of the first row of each segment
+     */
+    private int[] segmentStarts = new int[4];
+    /**
+     * Number of rows
+     */
+    private int size;
+    /**
+     * Rows kept, each in the slot of its position modulo the window size
+     */
+    private final ArticleItem[] window;
+    /**
+     * Position of the row kept in each slot, -1 if the slot is empty
+     */
+    private final int[] windowPositions;
+    /**
+     * Hash of the web url of the row in each slot of {@link #urlPositions}
+     */
+    private int[] urlHashes = new int[64];
+    /**
+     * Position + 1 of the row whose web url hashes to each slot, by open addressing, 0 if the slot
+     * is empty
+     */
+    private int[] urlPositions = new int[64];
+    /**
+     * Number of rows whose web urls are indexed
+     */
+    private int indexedRows;
+    /**
+     * Number of segments whose rows are indexed
+     */
+    private int indexedSegments;
+
+    /**
+     * Create an empty {@link ArticleWindow}
+     *
+     * @param windowSize number of rows kept, a few screens' worth
+     */
+    public ArticleWindow(int windowSize) {
+        window = new ArticleItem[windowSize];
+        windowPositions = new int[windowSize];
+        Arrays.fill(windowPositions, -1);
+    }
+
+    /**
+     * Create an {@link ArticleWindow} over a list of rows
+     *
+     * @param windowSize number of rows kept, a few screens' worth
+     * @param rows       to show, or null for none
+     */
+    public ArticleWindow(int windowSize, List<ArticleItem> rows) {
+        this(windowSize);
+        if (rows != null) {
+            append(rows);
+        }
+    }
+
+    /**
+     * @return a window over the same rows, keeping its own rows, to be read on another thread
+     */
+    public ArticleWindow copy() {
+        ArticleWindow copy = new ArticleWindow(window.length);
+        copy.segments.addAll(segments);
+        copy.segmentStarts = segmentStarts.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    @Override
+    public ArticleItem get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        int slot = index % window.length;
+        if (windowPositions[slot] != index) {
+            window[slot] = read(index);
+            windowPositions[slot] = index;
+        }
+        return window[slot];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Append rows after the last one. The list must not change afterwards.
+     *
+     * @param rows to append
+     */
+    public void append(List<ArticleItem> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        if (segments.size() == segmentStarts.length) {
+            segmentStarts = Arrays.copyOf(segmentStarts, segmentStarts.length * 2);
+        }
+        segmentStarts[segments.size()] = size;
+        segments.add(rows);
+        size += rows.size();
+        modCount++;
+    }
+
+    /**
+     * Append the rows whose articles are not in the list yet, e.g. the next page of a section
+     * when newer articles have pushed some of the shown ones onto it. The list must not change
+     * afterwards.
+     *
+     * @param rows to append
+     * @return number of rows appended
+     */
+    public int appendMissing(List<ArticleItem> rows) {
+        // Rows appended without leaving any out are indexed once, here
+        for (; indexedSegments < segments.size(); indexedSegments++) {
+            List<ArticleItem> segment = segments.get(indexedSegments);
+            int start = segmentStarts[indexedSegments];
+            for (int i = 0; i < segment.size(); i++) {
+                indexUrl(segment.get(i).getWebUrl(), start + i);
+            }
+        }
+
+        int[] picked = new int[rows.size()];
+        String[] pickedUrls = new String[rows.size()];
+        Set<String> pageUrls = new HashSet<>();
+        int count = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            String webUrl = rows.get(i).getWebUrl();
+            if (!containsUrl(webUrl) && pageUrls.add(webUrl)) {
+                pickedUrls[count] = webUrl;
+                picked[count++] = i;
+            }
+        }
+        int start = size;
+        append(count == rows.size() ? rows : new PickedRows(rows, Arrays.copyOf(picked, count)));
+        for (int i = 0; i < count; i++) {
+            indexUrl(pickedUrls[i], start + i);
+        }
+        indexedSegments = segments.size();
+        return count;
+    }
+
+    @Override
+    public void clear() {
+        segments.clear();
+        size = 0;
+        Arrays.fill(urlPositions, 0);
+        indexedRows = 0;
+        indexedSegments = 0;
+        Arrays.fill(window, null);
+        Arrays.fill(windowPositions, -1);
+        modCount++;
+    }
+
+    /**
+     * @return number of rows kept, at most the window size
+     */
+    int keptRowCount() {
+        int count = 0;
+        for (ArticleItem row : window) {
+            if (row != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return whether a row of the list has this web url. Rows whose web urls have the same hash
+     * are read again from their lists to compare them.
+     */
+    private boolean containsUrl(String webUrl) {
+        int hash = hash(webUrl);
+        int mask = urlPositions.length - 1;
+        for (int slot = hash & mask; urlPositions[slot] != 0; slot = (slot + 1) & mask) {
+            if (urlHashes[slot] == hash) {
+                String indexed = read(urlPositions[slot] - 1).getWebUrl();
+                if (webUrl == null ? indexed == null : webUrl.equals(indexed)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remember the web url of the row at a position
+     */
+    private void indexUrl(String webUrl, int position) {
+        if (2 * (indexedRows + 1) > urlPositions.length) {
+            // Keep at least half of the slots empty, so lookups stay short
+            int[] hashes = urlHashes;
+            int[] positions = urlPositions;
+            urlHashes = new int[hashes.length * 2];
+            urlPositions = new int[positions.length * 2];
+            for (int slot = 0; slot < positions.length; slot++) {
+                if (positions[slot] != 0) {
+                    putUrl(hashes[slot], positions[slot]);
+                }
+            }
+        }
+        putUrl(hash(webUrl), position + 1);
+        indexedRows++;
+    }
+
+    private void putUrl(int hash, int positionPlusOne) {
+        int mask = urlPositions.length - 1;
+        int slot = hash & mask;
+        while (urlPositions[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        urlHashes[slot] = hash;
+        urlPositions[slot] = positionPlusOne;
+    }
+
+    /**
+     * Hash of a web url, its high bits mixed into the low ones that pick the slot
+     */
+    private static int hash(String webUrl) {
+        int hash = webUrl == null ? 0 : webUrl.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Read a row from the list it comes from
+     */
+    private ArticleItem read(int index) {
+        // Find the last segment starting at or before the row
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (segmentStarts[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return segments.get(low).get(index - segmentStarts[low]);
+    }
+
+    /**
+     * Some of the rows of a list, by their positions in it
+     */
+    private static class PickedRows extends AbstractList<ArticleItem> implements RandomAccess {
+        private final List<ArticleItem> rows;
+        private final int[] positions;
+
+        PickedRows(List<ArticleItem> rows, int[] positions) {
+            this.rows = rows;
+            this.positions = positions;
+        }
+
+        @Override
+        public ArticleItem get(int index) {
+            return rows.get(positions[index]);
+        }
+
+        @Override
+        public int size() {
+            return positions.length;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.android.dailynewsfeed;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * {@link BitmapCache} keeps thumbnails in two tiers keyed by thumbnail url: decoded bitmaps in a
+ * memory cache bounded by their byte count, and the downloaded image files in a disk cache with
+ * its own size cap. Bitmaps are decoded downsampled to the size of the thumbnail_image view, so
+ * the memory cache never holds more pixels than the list can show.
+ * <p>
+ * Opaque thumbnails are decoded at 16 bits per pixel unless the device has plenty of memory, see
+ * {@link Policy}. From KitKat on, bitmaps evicted from memory go to a {@link SizedPool} and new
+ * thumbnails are decoded into them instead of into newly allocated bitmaps. A bitmap may only be
+ * reused once no image view shows it any more: callers {@link #retain} the bitmaps they show and
+ * {@link #release} them once they stop showing them.
+ */
+public class BitmapCache {
+
+    /**
+     * Share of the app heap used for decoded thumbnails
+     */
+    private static final int MEMORY_CACHE_HEAP_DIVISOR = 8;
+    /**
+     * Maximum total size of the downloaded thumbnails on disk in bytes
+     */
+    private static final long DISK_CACHE_BYTES = 20 * 1024 * 1024;
+    /**
+     * Name of the thumbnail directory within the cache directory of the app
+     */
+    private static final String DISK_CACHE_DIRECTORY = "thumbnails";
+
+    /**
+     * MIME type of the images decoded without an alpha channel
+     */
+    private static final String OPAQUE_MIME_TYPE = "image/jpeg";
+
+    /**
+     * Decoded bitmaps, bounded by their byte count
+     */
+    private final SizedLruCache<String, Bitmap> memoryCache;
+    /**
+     * Bitmaps evicted from memory that thumbnails can be decoded into, null if the device cannot
+     * decode into a bitmap of another size
+     */
+    private final SizedPool<Bitmap> pool;
+    /**
+     * Number of holders of each bitmap handed out, kept until the bitmap is evicted
+     */
+    private final Map<Bitmap, Integer> holders = new IdentityHashMap<>();
+    /**
+     * How thumbnails are decoded on this device
+     */
+    private final Policy policy;
+    /**
+     * Downloaded image files, bounded by their file size
+     */
+    private final DiskCache diskCache;
+    /**
+     * Width the thumbnails are decoded for in pixels
+     */
+    private final int targetWidth;
+    /**
+     * Height the thumbnails are decoded for in pixels
+     */
+    private final int targetHeight;
+
+    /**
+     * Create a new {@link BitmapCache} sized for the thumbnail_image view of single_list_item
+     *
+     * @param context of the app
+     */
+    public BitmapCache(Context context) {
+        int maxBytes = (int) (Runtime.getRuntime().maxMemory() / MEMORY_CACHE_HEAP_DIVISOR);
+        memoryCache = new SizedLruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return byteCount(bitmap);
+            }
+
+            @Override
+            protected void entryEvicted(String key, Bitmap bitmap) {
+                recycle(bitmap);
+            }
+        };
+        ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        policy = Policy.forDevice(activityManager.getMemoryClass(), Build.VERSION.SDK_INT,
+                maxBytes);
+        pool = policy.poolBytes > 0 ? new SizedPool<Bitmap>(policy.poolBytes) {
+            @Override
+            protected int sizeOf(Bitmap bitmap) {
+                return byteCount(bitmap);
+            }
+        } : null;
+        diskCache = new DiskCache(new File(context.getCacheDir(), DISK_CACHE_DIRECTORY),
+                DISK_CACHE_BYTES);
+        targetWidth = context.getResources().getDimensionPixelSize(R.dimen.image_width);
+        targetHeight = context.getResources().getDimensionPixelSize(R.dimen.image_height);
+    }
+
+    /**
+     * Return the decoded thumbnail if it is in memory. Cheap enough for the main thread.
+     *
+     * @param url of the thumbnail
+     * @return decoded thumbnail retained for the caller, or null if it is not in memory
+     */
+    public Bitmap getFromMemory(String url) {
+        // Under the lock of the holders, so the bitmap is not reused before it is retained
+        synchronized (holders) {
+            Bitmap bitmap = memoryCache.get(url);
+            if (bitmap != null) {
+                retain(bitmap);
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * Return the thumbnail decoded from the disk cache, and keep it in memory. Must not be called
+     * on the main thread.
+     *
+     * @param url of the thumbnail
+     * @return decoded thumbnail retained for the caller, or null if it is not on disk
+     */
+    public Bitmap getFromDisk(String url) {
+        File file = diskCache.get(url);
+        if (file == null) {
+            return null;
+        }
+        return decodeIntoMemory(url, file);
+    }
+
+    /**
+     * Store a downloaded thumbnail on disk and return it decoded, keeping it in memory. Must not be
+     * called on the main thread.
+     *
+     * @param url         of the thumbnail
+     * @param inputStream downloaded image, not closed by this method
+     * @return decoded thumbnail retained for the caller, or null if the image cannot be decoded
+     * @throws IOException if the image cannot be read or stored
+     */
+    public Bitmap put(String url, InputStream inputStream) throws IOException {
+        return decodeIntoMemory(url, diskCache.put(url, inputStream));
+    }
+
+    /**
+     * Count one more holder of a bitmap, e.g. an image view showing it. The bitmap is not reused
+     * before every holder has released it.
+     *
+     * @param bitmap handed out by this cache
+     */
+    public void retain(Bitmap bitmap) {
+        synchronized (holders) {
+            Integer count = holders.get(bitmap);
+            holders.put(bitmap, count == null ? 1 : count + 1);
+        }
+    }
+
+    /**
+     * Count one holder less of a bitmap, e.g. because its image view was recycled
+     *
+     * @param bitmap retained before
+     */
+    public void release(Bitmap bitmap) {
+        synchronized (holders) {
+            Integer count = holders.get(bitmap);
+            if (count == null) {
+                // Already evicted while it was shown, and left to the garbage collector
+                return;
+            }
+            if (count > 1) {
+                holders.put(bitmap, count - 1);
+            } else {
+                holders.remove(bitmap);
+            }
+        }
+    }
+
+    /**
+     * @return memory tier, e.g. for its counters
+     */
+    public SizedLruCache<String, Bitmap> getMemoryCache() {
+        return memoryCache;
+    }
+
+    /**
+     * @return disk tier, e.g. for its counters
+     */
+    public DiskCache getDiskCache() {
+        return diskCache;
+    }
+
+    /**
+     * @return pool of evicted bitmaps, e.g. for its counters, or null if bitmaps are not reused
+     */
+    public SizedPool<Bitmap> getPool() {
+        return pool;
+    }
+
+    private Bitmap decodeIntoMemory(String url, File file) {
+        long start = Metrics.start();
+        Bitmap bitmap = decodeSampledBitmap(file);
+        Metrics.stop(Metrics.THUMBNAIL_DECODE, start);
+        if (bitmap != null) {
+            // Before caching it, as it can be evicted and reused right after
+            retain(bitmap);
+            memoryCache.put(url, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Put a bitmap evicted from memory into the pool unless an image view still shows it
+     */
+    private void recycle(Bitmap bitmap) {
+        boolean held;
+        synchronized (holders) {
+            held = holders.remove(bitmap) != null;
+        }
+        if (!held && pool != null && bitmap.isMutable()) {
+            pool.put(bitmap);
+        }
+    }
+
+    /**
+     * Decode an image file at the smallest power of two scale that still covers the thumbnail
+     * size, reading only the image bounds first, into a pooled bitmap if one is large enough.
+     *
+     * @param file image file
+     * @return decoded bitmap, or null if the file cannot be decoded
+     */
+    private Bitmap decodeSampledBitmap(File file) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight,
+                targetWidth, targetHeight);
+        options.inJustDecodeBounds = false;
+        Bitmap.Config config = policy.rgb565ForOpaque
+                && OPAQUE_MIME_TYPE.equals(options.outMimeType)
+                ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        options.inPreferredConfig = config;
+        if (pool == null) {
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        }
+
+        // Mutable, so the bitmap can be decoded into again once it is evicted
+        options.inMutable = true;
+        options.inBitmap = pool.take(options.outWidth / options.inSampleSize
+                * (options.outHeight / options.inSampleSize)
+                * (config == Bitmap.Config.RGB_565 ? 2 : 4));
+        if (options.inBitmap == null) {
+            Metrics.increment(Metrics.THUMBNAIL_BITMAP_ALLOCATED);
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        }
+        try {
+            Bitmap bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+            Metrics.increment(Metrics.THUMBNAIL_BITMAP_REUSED);
+            return bitmap;
+        } catch (IllegalArgumentException e) {
+            // The decoder found the pooled bitmap too small after all
+            options.inBitmap = null;
+            Metrics.increment(Metrics.THUMBNAIL_BITMAP_ALLOCATED);
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        }
+    }
+
+    /**
+     * @return bytes used by the pixels of a bitmap, which can be more than its size needs once it
+     * has been decoded into
+     */
+    private static int byteCount(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    /**
+     * Return the largest power of two by which an image can be scaled down while both of its sides
+     * stay at least as large as the target
+     */
+    static int calculateInSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int inSampleSize = 1;
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return inSampleSize;
+        }
+        while (width / (inSampleSize * 2) >= targetWidth
+                && height / (inSampleSize * 2) >= targetHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * {@link Policy} decides how thumbnails are decoded from what the device offers: on devices
+     * with a small heap, opaque thumbnails are decoded as RGB_565 at half the memory of ARGB_8888,
+     * and from KitKat on, where a bitmap can be decoded into any bitmap at least as large, a share
+     * of the memory cache budget is kept for a pool of evicted bitmaps.
+     */
+    static class Policy {
+
+        /**
+         * Memory class in megabytes from which opaque thumbnails keep 32 bits per pixel
+         */
+        static final int FULL_COLOR_MEMORY_CLASS_MB = 256;
+        /**
+         * Share of the memory cache budget kept for the pool of evicted bitmaps
+         */
+        static final int POOL_CACHE_DIVISOR = 4;
+
+        /**
+         * Whether JPEG thumbnails are decoded as RGB_565
+         */
+        final boolean rgb565ForOpaque;
+        /**
+         * Maximum total size of the pooled bitmaps in bytes, 0 if bitmaps are not reused
+         */
+        final int poolBytes;
+
+        Policy(boolean rgb565ForOpaque, int poolBytes) {
+            this.rgb565ForOpaque = rgb565ForOpaque;
+            this.poolBytes = poolBytes;
+        }
+
+        /**
+         * @param memoryClassMb    heap limit of the app in megabytes, from
+         *                         {@link ActivityManager#getMemoryClass()}
+         * @param sdkInt           API level of the device
+         * @param memoryCacheBytes budget of the memory cache in bytes
+         * @return policy for the device
+         */
+        static Policy forDevice(int memoryClassMb, int sdkInt, int memoryCacheBytes) {
+            // Before KitKat, a bitmap can only be decoded into one of exactly the same size
+            int poolBytes = sdkInt >= Build.VERSION_CODES.KITKAT
+                    ? memoryCacheBytes / POOL_CACHE_DIVISOR : 0;
+            return new Policy(memoryClassMb < FULL_COLOR_MEMORY_CLASS_MB, poolBytes);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.android.dailynewsfeed;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link Cancellation} tells a load that its result is no longer wanted, e.g. because the user
+ * left the tab or pulled to refresh again. The work checks it between steps and registers
+ * listeners that abort blocking steps, such as closing the connection a response is being read
+ * from, so a cancelled load frees its thread right away instead of running to completion.
+ * <p>
+ * All methods are thread safe.
+ */
+public class Cancellation {
+
+    /**
+     * Whether the load has been cancelled
+     */
+    private boolean canceled;
+    /**
+     * Listeners run when the load is cancelled
+     */
+    private final List<Runnable> listeners = new ArrayList<>();
+
+    /**
+     * Cancel the load and run its listeners on the calling thread. Does nothing if the load has
+     * already been cancelled.
+     */
+    public void cancel() {
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (canceled) {
+                return;
+            }
+            canceled = true;
+            toRun = new ArrayList<>(listeners);
+            listeners.clear();
+            // Wakes up sleep()
+            notifyAll();
+        }
+        for (Runnable listener : toRun) {
+            listener.run();
+        }
+    }
+
+    /**
+     * @return whether the load has been cancelled
+     */
+    public synchronized boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * @throws InterruptedIOException if the load has been cancelled
+     */
+    public void throwIfCanceled() throws InterruptedIOException {
+        if (isCanceled()) {
+            throw new InterruptedIOException("Canceled");
+        }
+    }
+
+    /**
+     * Run a listener when the load is cancelled, right away if it already is
+     *
+     * @param listener to run on the thread cancelling the load
+     */
+    public void addListener(Runnable listener) {
+        synchronized (this) {
+            if (!canceled) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * Stop running a listener, e.g. once the step it aborts has completed
+     *
+     * @param listener added before
+     */
+    public synchronized void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Wrap a stream so that reading it fails once the load is cancelled. Closing a connection
+     * does not interrupt a read in progress on every platform, a read checking the cancellation
+     * stops at the latest when the next piece of the response arrives.
+     *
+     * @param inputStream to read
+     * @return the stream, failing with {@link InterruptedIOException} once cancelled
+     */
+    public InputStream wrap(InputStream inputStream) {
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                throwIfCanceled();
+                return super.read();
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                throwIfCanceled();
+                return super.read(buffer, offset, length);
+            }
+
+            @Override
+            public long skip(long count) throws IOException {
+                throwIfCanceled();
+                return super.skip(count);
+            }
+        };
+    }
+
+    /**
+     * Wait unless the load is cancelled first, e.g. before retrying a request
+     *
+     * @param millis time to wait
+     * @throws InterruptedIOException if the load is cancelled or the thread interrupted
+     */
+    public synchronized void sleep(long millis) throws InterruptedIOException {
+        long end = System.currentTimeMillis() + millis;
+        try {
+            for (long left = millis; left > 0 && !canceled;
+                 left = end - System.currentTimeMillis()) {
+                wait(left);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted");
+        }
+        throwIfCanceled();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.android.dailynewsfeed;
+
+/**
+ * {@link CircuitBreaker} stops requests to a server that keeps failing, so loads fall back to
+ * cached data straight away instead of waiting for more failures.
+ * <ul>
+ * <li>Closed: requests are sent. After a number of failures in a row the circuit opens.</li>
+ * <li>Open: requests are refused until the open period has passed, or until the time the server
+ * asked to be left alone with Retry-After.</li>
+ * <li>Half open: a single trial request is sent. Its success closes the circuit, its failure
+ * opens it again.</li>
+ * </ul>
+ * All methods are thread safe.
+ */
+public class CircuitBreaker {
+
+    /**
+     * Answer of {@link #allowRequest(long)}
+     */
+    public enum Permit {
+        /**
+         * The circuit is open, the request must not be sent
+         */
+        REFUSED,
+        /**
+         * The circuit is closed, the request may be sent
+         */
+        ALLOWED,
+        /**
+         * The circuit is half open and the request is its single trial
+         */
+        TRIAL
+    }
+
+    /**
+     * Failures in a row that open the circuit
+     */
+    private final int failureThreshold;
+    /**
+     * How long the circuit stays open before a trial request
+     */
+    private final long openMillis;
+    /**
+     * Failures since the last success
+     */
+    private int failures;
+    /**
+     * Time until which requests are refused, 0 if the circuit is closed
+     */
+    private long openUntil;
+    /**
+     * Whether the trial request of a half open circuit is in progress
+     */
+    private boolean trialInFlight;
+
+    /**
+     * Create a new closed {@link CircuitBreaker}
+     *
+     * @param failureThreshold failures in a row that open the circuit
+     * @param openMillis       how long the circuit stays open before a trial request
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Ask whether a request may be sent. A request allowed must report its outcome with
+     * {@link #onSuccess()} or {@link #onFailure(long)}, or {@link #onAbandoned(Permit)} if it
+     * ends without one.
+     *
+     * @param now current time in milliseconds
+     * @return whether the request may be sent, and whether it is the trial of a half open circuit
+     */
+    public synchronized Permit allowRequest(long now) {
+        if (openUntil == 0) {
+            return Permit.ALLOWED;
+        }
+        if (now < openUntil || trialInFlight) {
+            return Permit.REFUSED;
+        }
+        // Half open: let one request find out whether the server is back
+        trialInFlight = true;
+        return Permit.TRIAL;
+    }
+
+    /**
+     * Report a request the server answered, which closes the circuit
+     */
+    public synchronized void onSuccess() {
+        failures = 0;
+        openUntil = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * Report a request that failed, e.g. a server error or no answer at all
+     *
+     * @param now current time in milliseconds
+     */
+    public synchronized void onFailure(long now) {
+        failures++;
+        if (trialInFlight || failures >= failureThreshold) {
+            openUntil = Math.max(openUntil, now + openMillis);
+        }
+        trialInFlight = false;
+    }
+
+    /**
+     * Report a request that ended without an outcome, e.g. because its load was cancelled. It
+     * says nothing about the server, so if it was the trial of a half open circuit the next
+     * request tries instead. Other requests, e.g. sent before the circuit opened, leave the trial
+     * in progress alone.
+     *
+     * @param permit the request was sent with
+     */
+    public synchronized void onAbandoned(Permit permit) {
+        if (permit == Permit.TRIAL) {
+            trialInFlight = false;
+        }
+    }
+
+    /**
+     * Refuse requests until a given time, e.g. the time a 429 response asked to retry after
+     *
+     * @param time in milliseconds
+     */
+    public synchronized void openUntil(long time) {
+        openUntil = Math.max(openUntil, time);
+        trialInFlight = false;
+    }
+
+    /**
+     * @param now current time in milliseconds
+     * @return whether requests are being refused
+     */
+    public synchronized boolean isOpen(long now) {
+        return openUntil != 0 && (now < openUntil || trialInFlight);
+    }
+}
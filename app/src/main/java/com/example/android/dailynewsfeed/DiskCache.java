@@ -0,0 +1,236 @@
+package com.example.android.dailynewsfeed;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link DiskCache} stores one file per key in a directory and keeps the total size of the files
+ * under a cap by deleting the least recently used files first. Files survive process restarts;
+ * their last modified time is used to restore the usage order.
+ * <p>
+ * All methods are thread safe within one process.
+ */
+public class DiskCache {
+
+    /**
+     * Suffix of files that are still being written
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
+    /**
+     * Size of the buffer used to copy streams into the cache
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Directory holding the cached files
+     */
+    private final File directory;
+    /**
+     * Maximum total size of the cached files in bytes
+     */
+    private final long maxBytes;
+    /**
+     * Size of each cached file by file name, the least recently used first
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(0, 0.75f, true);
+    /**
+     * Current total size of the cached files in bytes
+     */
+    private long size;
+
+    private int hitCount;
+    private int missCount;
+    private int evictionCount;
+
+    /**
+     * Create a new {@link DiskCache} and index the files already in the directory
+     *
+     * @param directory to keep the cached files in, created if it does not exist
+     * @param maxBytes  maximum total size of the cached files in bytes
+     */
+    public DiskCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        directory.mkdirs();
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        // Restore the usage order from the time each file was last read or written
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long difference = a.lastModified() - b.lastModified();
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                // Left over from a write that never finished
+                file.delete();
+            } else {
+                entries.put(file.getName(), file.length());
+                size += file.length();
+            }
+        }
+        trimToSize(null);
+    }
+
+    /**
+     * Return the cached file for the key and mark it as most recently used
+     *
+     * @return cached file, or null if there is none
+     */
+    public synchronized File get(String key) {
+        String name = fileName(key);
+        if (entries.get(name) == null) {
+            missCount++;
+            return null;
+        }
+        File file = new File(directory, name);
+        if (!file.exists()) {
+            // Deleted behind our back, e.g. by the system clearing the cache directory
+            size -= entries.remove(name);
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * Copy the stream into the cache under the key, replacing any previous file, and evict the
+     * least recently used files if the cache has grown over its cap. The new file itself is not
+     * evicted, so it can be read even if it is larger than the cap on its own; it is then the
+     * first to go on the next put. The stream is not closed.
+     *
+     * @return cached file
+     * @throws IOException if the stream cannot be read or the file cannot be written
+     */
+    public File put(String key, InputStream inputStream) throws IOException {
+        String name = fileName(key);
+        // Write to a temporary file first so readers never see a partly written file
+        File temp = new File(directory, name + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+        OutputStream outputStream = new FileOutputStream(temp);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            outputStream.close();
+            temp.delete();
+            throw e;
+        }
+        outputStream.close();
+
+        synchronized (this) {
+            File file = new File(directory, name);
+            Long previous = entries.remove(name);
+            if (previous != null) {
+                size -= previous;
+            }
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Cannot move " + temp + " to " + file);
+            }
+            entries.put(name, file.length());
+            size += file.length();
+            trimToSize(name);
+            return file;
+        }
+    }
+
+    /**
+     * Delete the least recently used files until the total size is within the cap
+     *
+     * @param kept name of a file not to delete, e.g. the one just written, or null
+     */
+    private synchronized void trimToSize(String kept) {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (size > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if (eldest.getKey().equals(kept)) {
+                continue;
+            }
+            iterator.remove();
+            new File(directory, eldest.getKey()).delete();
+            size -= eldest.getValue();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * @return current total size of the cached files in bytes
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * @return maximum total size of the cached files in bytes
+     */
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return number of lookups that found a file
+     */
+    public synchronized int hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of lookups that found no file
+     */
+    public synchronized int missCount() {
+        return missCount;
+    }
+
+    /**
+     * @return number of files deleted to stay within the cap
+     */
+    public synchronized int evictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("DiskCache[size=%d,maxBytes=%d,hits=%d,misses=%d,evictions=%d]",
+                size, maxBytes, hitCount, missCount, evictionCount);
+    }
+
+    /**
+     * Turn a key such as a url into a safe file name
+     */
+    private static String fileName(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] hash = digest.digest(key.getBytes(Charset.forName("UTF-8")));
+            StringBuilder name = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16));
+                name.append(Character.forDigit(b & 0xf, 16));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java and Android runtime ships MD5
+            throw new AssertionError(e);
+        }
+    }
+}
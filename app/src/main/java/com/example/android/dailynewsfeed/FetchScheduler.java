@@ -0,0 +1,415 @@
+package com.example.android.dailynewsfeed;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FetchScheduler} fetches the first page of every tab, so the tabs share their requests to
+ * the Guardian API:
+ * <ul>
+ * <li>concurrent fetches of the same query share one request,</li>
+ * <li>the tab the user is looking at is fetched straight away on its own,</li>
+ * <li>the other tabs wait a moment for each other and are then fetched in one query for all
+ * configured sections (section=world|politics|...), whose results are handed out per section.
+ * Sections no tab has asked for yet are kept until their tab does, e.g. when the user swipes to
+ * it.</li>
+ * </ul>
+ * A section that gets less than a page out of the combined query is fetched on its own. A fetch
+ * or combined query every tab waiting for has been cancelled is aborted, see {@link SharedCall}.
+ */
+public class FetchScheduler {
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = FetchScheduler.class.getSimpleName();
+    /**
+     * How long fetches of tabs that are not visible wait for other tabs to join them
+     */
+    static final long BATCH_DELAY_MILLIS = 100;
+    /**
+     * How long articles fetched ahead for a tab are kept for it
+     */
+    static final long PREFETCH_MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    /**
+     * Largest page size accepted by the Guardian API
+     */
+    private static final int MAX_PAGE_SIZE = 200;
+    /**
+     * How long the thread sending combined queries is kept when idle
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Scheduler shared by every tab
+     */
+    private static FetchScheduler instance;
+
+    /**
+     * Registry sending the requests
+     */
+    private final RequestRegistry requests;
+    /**
+     * Ids of the sections shown in the tabs
+     */
+    private final List<String> sections;
+    /**
+     * Sends the combined queries once their delay has passed
+     */
+    private final ScheduledThreadPoolExecutor executor;
+    /**
+     * Fetches in progress, by url of the first page of the tab
+     */
+    private final Map<String, SharedCall<List<Article>>> inFlight = new HashMap<>();
+    /**
+     * Combined queries waiting for their delay, by {@link SectionQuery#batchKey()}
+     */
+    private final Map<String, Batch> pendingBatches = new HashMap<>();
+    /**
+     * Combined queries being sent, by url of the first page of each tab they include
+     */
+    private final Map<String, Batch> runningBatches = new HashMap<>();
+    /**
+     * Articles fetched ahead for tabs that have not asked for them yet, by url of the first page.
+     * Those older than {@link #PREFETCH_MAX_AGE_MILLIS} are dropped when new ones are stored.
+     */
+    private final Map<String, Prefetched> prefetched = new HashMap<>();
+    /**
+     * When each tab last received its articles, by url of the first page
+     */
+    private final Map<String, Long> deliveredAt = new HashMap<>();
+
+    /**
+     * Create a new {@link FetchScheduler} whose requests are shared only while in progress
+     *
+     * @param transport to perform the requests with
+     * @param sections  ids of the sections shown in the tabs
+     */
+    public FetchScheduler(HttpTransport transport, List<String> sections) {
+        this(new RequestRegistry(transport, 0), sections);
+    }
+
+    /**
+     * Create a new {@link FetchScheduler}
+     *
+     * @param requests registry to send the requests through
+     * @param sections ids of the sections shown in the tabs
+     */
+    public FetchScheduler(RequestRegistry requests, List<String> sections) {
+        this.requests = requests;
+        this.sections = sections;
+        executor = new ScheduledThreadPoolExecutor(1);
+        executor.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Return the scheduler shared by the whole app
+     *
+     * @param context any context of the app
+     */
+    public static synchronized FetchScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new FetchScheduler(QueryUtils.getRequestRegistry(context),
+                    Arrays.asList(context.getResources().getStringArray(R.array.section_keys)));
+        }
+        return instance;
+    }
+
+    /**
+     * Fetch the first page of the query of a tab. Must not be called on the main thread.
+     *
+     * @param query   of the tab
+     * @param visible whether the tab is shown, so it is fetched without waiting for other tabs
+     * @return articles of the first page, empty or null if the request failed
+     */
+    public List<Article> fetch(SectionQuery query, boolean visible) {
+        return fetch(query, visible, null);
+    }
+
+    /**
+     * Fetch the first page of the query of a tab like {@link #fetch(SectionQuery, boolean)},
+     * unless the load is cancelled first. Must not be called on the main thread.
+     *
+     * @param query        of the tab
+     * @param visible      whether the tab is shown, so it is fetched without waiting for other
+     *                     tabs
+     * @param cancellation of the load, or null if it is never cancelled
+     * @return articles of the first page, empty or null if the request failed or the load was
+     * cancelled
+     */
+    public List<Article> fetch(SectionQuery query, boolean visible, Cancellation cancellation) {
+        String url = query.url();
+        SharedCall<List<Article>> task;
+        synchronized (this) {
+            List<Article> ready = takePrefetched(url);
+            if (ready != null) {
+                deliveredAt.put(url, System.currentTimeMillis());
+                return ready;
+            }
+            task = inFlight.get(url);
+            if (task == null || !task.join()) {
+                task = newTask(query, visible);
+                task.join();
+                inFlight.put(url, task);
+            }
+        }
+
+        // The first caller runs the fetch on its own thread, any other caller waits for it
+        try {
+            List<Article> articles = task.call(cancellation);
+            if (articles != null && !articles.isEmpty()) {
+                synchronized (this) {
+                    deliveredAt.put(url, System.currentTimeMillis());
+                }
+            }
+            return articles;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Error fetching " + url, e.getCause());
+            return null;
+        } finally {
+            synchronized (this) {
+                // Other tabs may still wait for the fetch this load stopped waiting for
+                if (inFlight.get(url) == task && (task.isDone() || task.isAbandoned())) {
+                    inFlight.remove(url);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of requests sent to the Guardian API so far
+     */
+    public int getRequestCount() {
+        return requests.getRequestCount();
+    }
+
+    /**
+     * Create the fetch of a tab, joining a combined query unless the tab is visible. Must hold
+     * the lock.
+     */
+    private SharedCall<List<Article>> newTask(final SectionQuery query, boolean visible) {
+        final String url = query.url();
+        Batch batch = runningBatches.get(url);
+        if (batch != null && !batch.task.join()) {
+            // Every tab left the combined query, which is being aborted
+            batch = null;
+        } else if (batch == null && !visible && sections.contains(query.getSection())) {
+            String key = query.batchKey();
+            batch = pendingBatches.get(key);
+            if (batch == null || !batch.task.join()) {
+                batch = new Batch(query);
+                batch.task.join();
+                pendingBatches.put(key, batch);
+                executor.schedule(batch.task, BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (batch != null) {
+            batch.claimed.add(query.getSection());
+        }
+
+        final Batch joined = batch;
+        final Cancellation cancellation = new Cancellation();
+        return new SharedCall<>(new Callable<List<Article>>() {
+            @Override
+            public List<Article> call() throws Exception {
+                if (joined != null) {
+                    Map<String, List<Article>> results = joined.task.await(cancellation);
+                    List<Article> articles = results != null
+                            ? results.get(query.getSection()) : null;
+                    if (articles != null) {
+                        return articles;
+                    }
+                }
+                if (cancellation.isCanceled()) {
+                    return null;
+                }
+                return fetchPage(url, cancellation).getArticles();
+            }
+        }, cancellation);
+    }
+
+    /**
+     * Take the articles fetched ahead for a tab if they are recent enough. Must hold the lock.
+     */
+    private List<Article> takePrefetched(String url) {
+        Prefetched entry = prefetched.remove(url);
+        if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        return entry.articles;
+    }
+
+    /**
+     * @return whether articles recent enough are waiting for a tab. Must hold the lock.
+     */
+    private boolean isPrefetched(String url) {
+        Prefetched entry = prefetched.get(url);
+        return entry != null && !entry.isExpired(System.currentTimeMillis());
+    }
+
+    /**
+     * Drop the articles fetched ahead that are too old to be handed out, e.g. for tabs never
+     * opened or queries of settings since changed, and forget tabs delivered as long ago. Must
+     * hold the lock.
+     */
+    private void removeExpired(long now) {
+        Iterator<Prefetched> entries = prefetched.values().iterator();
+        while (entries.hasNext()) {
+            if (entries.next().isExpired(now)) {
+                entries.remove();
+            }
+        }
+        Iterator<Long> times = deliveredAt.values().iterator();
+        while (times.hasNext()) {
+            if (now - times.next() >= PREFETCH_MAX_AGE_MILLIS) {
+                times.remove();
+            }
+        }
+    }
+
+    /**
+     * @return whether a tab has received its articles recently, so fetching them ahead again is
+     * not worth it. Must hold the lock.
+     */
+    private boolean isRecentlyDelivered(String url) {
+        Long time = deliveredAt.get(url);
+        return time != null && System.currentTimeMillis() - time < PREFETCH_MAX_AGE_MILLIS;
+    }
+
+    /**
+     * Send a request to the Guardian API
+     */
+    private ArticlePage fetchPage(String url, Cancellation cancellation) {
+        return requests.fetch(url, cancellation);
+    }
+
+    /**
+     * Articles fetched ahead for a tab
+     */
+    private static class Prefetched {
+        final List<Article> articles;
+        final long fetchedAt;
+
+        Prefetched(List<Article> articles, long fetchedAt) {
+            this.articles = articles;
+            this.fetchedAt = fetchedAt;
+        }
+
+        /**
+         * @return whether the articles are too old to be handed out
+         */
+        boolean isExpired(long now) {
+            return now - fetchedAt > PREFETCH_MAX_AGE_MILLIS;
+        }
+    }
+
+    /**
+     * One query for several sections, sent once the tabs have had a moment to join it. It also
+     * includes every configured section nobody is fetching, so their tabs are ready when shown.
+     */
+    private class Batch implements Callable<Map<String, List<Article>>> {
+        /**
+         * Query of the tab that started the batch, whose section is replaced
+         */
+        final SectionQuery template;
+        /**
+         * Sections whose tabs are waiting for the batch
+         */
+        final Set<String> claimed = new HashSet<>();
+        /**
+         * Cancelled once no tab waits for the combined query
+         */
+        final Cancellation cancellation = new Cancellation();
+        /**
+         * Articles of each section that got at least a page, or all there are
+         */
+        final SharedCall<Map<String, List<Article>>> task = new SharedCall<>(this, cancellation);
+
+        Batch(SectionQuery template) {
+            this.template = template;
+        }
+
+        @Override
+        public Map<String, List<Article>> call() {
+            List<String> included = new ArrayList<>();
+            synchronized (FetchScheduler.this) {
+                if (pendingBatches.get(template.batchKey()) == this) {
+                    pendingBatches.remove(template.batchKey());
+                }
+                if (cancellation.isCanceled()) {
+                    // Every tab left before the delay passed
+                    return new HashMap<>();
+                }
+                for (String section : sections) {
+                    String url = template.forSection(section).url();
+                    // Leave out tabs being fetched on their own, already fetched ahead or
+                    // recently loaded
+                    if (claimed.contains(section) || (!inFlight.containsKey(url)
+                            && !isPrefetched(url) && !isRecentlyDelivered(url))) {
+                        included.add(section);
+                        runningBatches.put(url, this);
+                    }
+                }
+            }
+
+            Map<String, List<Article>> results = new HashMap<>();
+            try {
+                int pageSize = template.getPageSize();
+                int combinedSize = Math.min(MAX_PAGE_SIZE, pageSize * included.size());
+                ArticlePage page = fetchPage(template.combinedUrl(included, combinedSize),
+                        cancellation);
+                if (page.getArticles() != null && page.getPages() > 0) {
+                    // When the query ran out of articles, every section has got all it has
+                    boolean exhausted = page.getArticles().size() < combinedSize;
+                    Map<String, List<Article>> bySection = new LinkedHashMap<>();
+                    for (String section : included) {
+                        bySection.put(section, new ArrayList<Article>());
+                    }
+                    for (Article article : page.getArticles()) {
+                        List<Article> articles = bySection.get(article.getSectionId());
+                        if (articles != null && articles.size() < pageSize) {
+                            articles.add(article);
+                        }
+                    }
+                    for (Map.Entry<String, List<Article>> entry : bySection.entrySet()) {
+                        if (exhausted || entry.getValue().size() >= pageSize) {
+                            results.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                }
+            } finally {
+                long now = System.currentTimeMillis();
+                synchronized (FetchScheduler.this) {
+                    removeExpired(now);
+                    for (String section : included) {
+                        String url = template.forSection(section).url();
+                        runningBatches.remove(url);
+                        List<Article> articles = results.get(section);
+                        if (!claimed.contains(section) && articles != null && !articles.isEmpty()) {
+                            prefetched.put(url, new Prefetched(articles, now));
+                        }
+                    }
+                }
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.android.dailynewsfeed;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * {@link HttpCache} keeps HTTP response bodies on disk together with what is needed to reuse them:
+ * the validators (ETag and Last-Modified) for a conditional request and the time until which the
+ * response is fresh according to its Cache-Control header.
+ */
+public class HttpCache {
+
+    /**
+     * Prefix of the disk cache key holding the metadata of a response
+     */
+    private static final String METADATA_PREFIX = "metadata:";
+    /**
+     * Prefix of the disk cache key holding the body of a response
+     */
+    private static final String BODY_PREFIX = "body:";
+
+    private static final String ETAG_PROPERTY = "etag";
+    private static final String LAST_MODIFIED_PROPERTY = "last-modified";
+    private static final String EXPIRES_AT_PROPERTY = "expires-at";
+
+    /**
+     * Files holding the metadata and bodies
+     */
+    private final DiskCache diskCache;
+
+    /**
+     * Create a new {@link HttpCache}
+     *
+     * @param directory to keep the cached responses in
+     * @param maxBytes  maximum total size of the cached responses in bytes
+     */
+    public HttpCache(File directory, long maxBytes) {
+        diskCache = new DiskCache(directory, maxBytes);
+    }
+
+    /**
+     * Return the cached response for the url
+     *
+     * @return cached response, or null if there is none
+     */
+    public Entry get(String url) {
+        File metadataFile = diskCache.get(METADATA_PREFIX + url);
+        File bodyFile = diskCache.get(BODY_PREFIX + url);
+        if (metadataFile == null || bodyFile == null) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try {
+            InputStream inputStream = new FileInputStream(metadataFile);
+            try {
+                properties.load(inputStream);
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        Entry entry = new Entry(properties.getProperty(ETAG_PROPERTY),
+                properties.getProperty(LAST_MODIFIED_PROPERTY),
+                Long.parseLong(properties.getProperty(EXPIRES_AT_PROPERTY, "0")));
+        entry.body = bodyFile;
+        return entry;
+    }
+
+    /**
+     * Store a response body for the url
+     *
+     * @param url         of the response
+     * @param entry       validators and freshness of the response
+     * @param inputStream body of the response, not closed by this method
+     * @return the stored entry, with its body file
+     * @throws IOException if the body cannot be read or stored
+     */
+    public Entry put(String url, Entry entry, InputStream inputStream) throws IOException {
+        entry.body = diskCache.put(BODY_PREFIX + url, inputStream);
+        update(url, entry);
+        return entry;
+    }
+
+    /**
+     * Replace the validators and freshness of a stored response, e.g. after a 304 Not Modified
+     *
+     * @throws IOException if the metadata cannot be stored
+     */
+    public void update(String url, Entry entry) throws IOException {
+        Properties properties = new Properties();
+        if (entry.etag != null) {
+            properties.setProperty(ETAG_PROPERTY, entry.etag);
+        }
+        if (entry.lastModified != null) {
+            properties.setProperty(LAST_MODIFIED_PROPERTY, entry.lastModified);
+        }
+        properties.setProperty(EXPIRES_AT_PROPERTY, String.valueOf(entry.expiresAt));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        properties.store(outputStream, null);
+        diskCache.put(METADATA_PREFIX + url, new ByteArrayInputStream(outputStream.toByteArray()));
+    }
+
+    /**
+     * @return disk cache holding the responses, e.g. for its counters
+     */
+    public DiskCache getDiskCache() {
+        return diskCache;
+    }
+
+    /**
+     * A cached response: its validators, freshness and body
+     */
+    public static class Entry {
+        /**
+         * Value of the ETag header, or null
+         */
+        final String etag;
+        /**
+         * Value of the Last-Modified header, or null
+         */
+        final String lastModified;
+        /**
+         * Time in milliseconds until which the response can be used without asking the server
+         */
+        final long expiresAt;
+        /**
+         * File holding the body, set once the entry is stored
+         */
+        File body;
+
+        Entry(String etag, String lastModified, long expiresAt) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * @return whether the response can be revalidated with a conditional request
+         */
+        boolean hasValidator() {
+            return etag != null || lastModified != null;
+        }
+
+        /**
+         * @return whether the response can be used at the given time without asking the server
+         */
+        boolean isFresh(long now) {
+            return now < expiresAt;
+        }
+    }
+}
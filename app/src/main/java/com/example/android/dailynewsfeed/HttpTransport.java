@@ -0,0 +1,575 @@
+package com.example.android.dailynewsfeed;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link HttpTransport} performs the GET requests to the Guardian API. It
+ * <ul>
+ * <li>keeps connections alive between requests by reading every response to the end and never
+ * disconnecting,</li>
+ * <li>asks for gzip and decompresses the response while it is being read,</li>
+ * <li>keeps responses in an {@link HttpCache} and reuses them while their Cache-Control max-age
+ * allows it,</li>
+ * <li>revalidates stale responses with If-None-Match / If-Modified-Since, so an unchanged
+ * response costs a 304 Not Modified instead of the full body,</li>
+ * <li>retries failed requests and 408, 429 and 5xx responses with jittered exponential backoff,
+ * waiting at least as long as the server asks for with Retry-After,</li>
+ * <li>gives up once the deadline of the load has passed, each attempt's connect and read
+ * timeouts being cut to the time left,</li>
+ * <li>stops sending requests for a while when the server keeps failing, see
+ * {@link CircuitBreaker},</li>
+ * <li>aborts the request as soon as its load is cancelled, closing the connection the response
+ * is being read from.</li>
+ * </ul>
+ * When the requests fail or are not sent, a cached response is served even if it is stale.
+ */
+public class HttpTransport {
+
+    /**
+     * Size of the buffer used to drain responses
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final String GZIP = "gzip";
+    private static final String NO_STORE = "no-store";
+    private static final String NO_CACHE = "no-cache";
+    private static final String MAX_AGE = "max-age=";
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    /**
+     * Format of an HTTP-date, e.g. in Retry-After
+     */
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    /**
+     * Cache of the responses, or null to always ask the server
+     */
+    private final HttpCache cache;
+    /**
+     * Retries, deadline and timeouts of the requests
+     */
+    private final Options options;
+    /**
+     * Stops requests while the server keeps failing
+     */
+    private final CircuitBreaker circuitBreaker;
+    /**
+     * Spreads the retries of different loads apart
+     */
+    private final Random random = new Random();
+
+    /**
+     * Create a new {@link HttpTransport} with the default {@link Options}
+     *
+     * @param cache to keep responses in, or null to disable caching
+     */
+    public HttpTransport(HttpCache cache) {
+        this(cache, new Options());
+    }
+
+    /**
+     * Create a new {@link HttpTransport}
+     *
+     * @param cache   to keep responses in, or null to disable caching
+     * @param options retries, deadline and timeouts of the requests
+     */
+    public HttpTransport(HttpCache cache, Options options) {
+        this.cache = cache;
+        this.options = options;
+        this.circuitBreaker = new CircuitBreaker(options.failureThreshold,
+                options.circuitOpenMillis);
+    }
+
+    /**
+     * Perform a GET request, answering from the cache when the cached response is still fresh or
+     * the server reports it as not modified. Failed attempts are retried until the deadline.
+     *
+     * @param url to request
+     * @return the response, which must be closed to release its connection. When every attempt
+     * failed it is the cached response if there is one, else the last error response.
+     * @throws IOException if the server cannot be reached or the response cannot be read, and
+     *                     nothing is cached
+     */
+    public Response get(URL url) throws IOException {
+        return get(url, null);
+    }
+
+    /**
+     * Perform a GET request like {@link #get(URL)}, aborting it when the load is cancelled: no
+     * further attempt is made, and the connection is closed, so a blocked read of the response,
+     * whether here or by the caller reading the body, fails right away.
+     *
+     * @param url          to request
+     * @param cancellation of the load, or null if it is never cancelled
+     * @return the response, which must be closed to release its connection
+     * @throws IOException if the load is cancelled, or as {@link #get(URL)}
+     */
+    public Response get(URL url, Cancellation cancellation) throws IOException {
+        String key = url.toString();
+        HttpCache.Entry cached = cache != null ? cache.get(key) : null;
+        long now = System.currentTimeMillis();
+        if (cached != null && cached.isFresh(now)) {
+            return Response.fromCache(cached);
+        }
+
+        long deadline = now + options.deadlineMillis;
+        Response errorResponse = null;
+        IOException failure = null;
+        for (int attempt = 1; ; attempt++) {
+            throwIfCanceled(cancellation);
+            CircuitBreaker.Permit permit = circuitBreaker.allowRequest(System.currentTimeMillis());
+            if (permit == CircuitBreaker.Permit.REFUSED) {
+                // The server keeps failing, answer with what was loaded before
+                Metrics.increment(Metrics.HTTP_CIRCUIT_OPEN);
+                if (failure == null && errorResponse == null) {
+                    failure = new IOException("Circuit open, not requesting " + url);
+                }
+                break;
+            }
+
+            long retryAfterMillis = -1;
+            boolean reported = false;
+            try {
+                Response response = attempt(url, key, cached, deadline, cancellation);
+                reported = true;
+                if (!isRetryable(response.getCode())) {
+                    circuitBreaker.onSuccess();
+                    return response;
+                }
+                errorResponse = response;
+                failure = null;
+                retryAfterMillis = response.retryAfterMillis;
+                if (response.getCode() == HTTP_TOO_MANY_REQUESTS && retryAfterMillis >= 0) {
+                    // Leave the server alone for as long as it asked, for every load
+                    circuitBreaker.openUntil(System.currentTimeMillis() + retryAfterMillis);
+                } else {
+                    circuitBreaker.onFailure(System.currentTimeMillis());
+                }
+            } catch (IOException e) {
+                // Closing the connection of a cancelled load says nothing about the server
+                throwIfCanceled(cancellation);
+                reported = true;
+                circuitBreaker.onFailure(System.currentTimeMillis());
+                errorResponse = null;
+                failure = e;
+            } finally {
+                // A cancelled trial request must not keep a half open circuit from trying again
+                if (!reported) {
+                    circuitBreaker.onAbandoned(permit);
+                }
+            }
+
+            long delay = Math.max(backoffMillis(attempt), retryAfterMillis);
+            if (attempt >= options.maxAttempts
+                    || System.currentTimeMillis() + delay >= deadline) {
+                break;
+            }
+            Metrics.increment(Metrics.HTTP_RETRY);
+            if (cancellation != null) {
+                // Returns as soon as the load is cancelled
+                cancellation.sleep(delay);
+            } else {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to retry " + url);
+                }
+            }
+        }
+
+        // Stale data is better than nothing on a flaky network
+        if (cached != null) {
+            Metrics.increment(Metrics.HTTP_STALE);
+            return Response.fromCache(cached);
+        }
+        if (errorResponse != null) {
+            return errorResponse;
+        }
+        throw failure;
+    }
+
+    private static void throwIfCanceled(Cancellation cancellation) throws InterruptedIOException {
+        if (cancellation != null) {
+            cancellation.throwIfCanceled();
+        }
+    }
+
+    /**
+     * Send one request, its timeouts cut to the time left before the deadline
+     */
+    private Response attempt(URL url, String key, HttpCache.Entry cached, long deadline,
+                             Cancellation cancellation) throws IOException {
+        long now = System.currentTimeMillis();
+        long remaining = deadline - now;
+        if (remaining <= 0) {
+            throw new SocketTimeoutException("Deadline passed before requesting " + url);
+        }
+
+        final HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+        Runnable abort = null;
+        if (cancellation != null) {
+            abort = new Runnable() {
+                @Override
+                public void run() {
+                    urlConnection.disconnect();
+                }
+            };
+            cancellation.addListener(abort);
+        }
+        boolean handedOver = false;
+        try {
+            Response response = attempt(urlConnection, key, cached, now, remaining, cancellation,
+                    abort);
+            handedOver = response.getBody() instanceof DrainingInputStream;
+            return response;
+        } finally {
+            // The body handed to the caller stops aborting the connection once it is closed
+            if (abort != null && !handedOver) {
+                cancellation.removeListener(abort);
+            }
+        }
+    }
+
+    /**
+     * Send one request on a connection
+     */
+    private Response attempt(HttpURLConnection urlConnection, String key, HttpCache.Entry cached,
+                             long now, long remaining, Cancellation cancellation, Runnable abort)
+            throws IOException {
+        urlConnection.setConnectTimeout((int) Math.min(options.connectTimeoutMillis, remaining));
+        urlConnection.setReadTimeout((int) Math.min(options.readTimeoutMillis, remaining));
+        urlConnection.setRequestMethod("GET");
+        urlConnection.setRequestProperty("Accept-Encoding", GZIP);
+        if (cached != null && cached.etag != null) {
+            urlConnection.setRequestProperty("If-None-Match", cached.etag);
+        }
+        if (cached != null && cached.lastModified != null) {
+            urlConnection.setRequestProperty("If-Modified-Since", cached.lastModified);
+        }
+
+        int responseCode;
+        try {
+            responseCode = urlConnection.getResponseCode();
+        } catch (IOException e) {
+            drain(urlConnection.getErrorStream());
+            throw e;
+        }
+
+        // The cached body is still valid, only its freshness changes
+        if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+            drain(urlConnection.getInputStream());
+            HttpCache.Entry revalidated = newEntry(urlConnection, now);
+            HttpCache.Entry merged = new HttpCache.Entry(
+                    revalidated.etag != null ? revalidated.etag : cached.etag,
+                    revalidated.lastModified != null ? revalidated.lastModified
+                            : cached.lastModified,
+                    revalidated.expiresAt);
+            merged.body = cached.body;
+            cache.update(key, merged);
+            return Response.fromCache(merged);
+        }
+
+        if (responseCode != HttpURLConnection.HTTP_OK) {
+            drain(urlConnection.getErrorStream());
+            Response response = new Response(responseCode, null, false);
+            response.retryAfterMillis =
+                    parseRetryAfter(urlConnection.getHeaderField("Retry-After"), now);
+            return response;
+        }
+
+        InputStream body = urlConnection.getInputStream();
+        if (cancellation != null) {
+            body = cancellation.wrap(body);
+        }
+        if (GZIP.equalsIgnoreCase(urlConnection.getContentEncoding())) {
+            body = new GZIPInputStream(body, BUFFER_SIZE);
+        }
+
+        String cacheControl = lowerCase(urlConnection.getHeaderField("Cache-Control"));
+        HttpCache.Entry entry = newEntry(urlConnection, now);
+        if (cache == null || cacheControl.contains(NO_STORE)
+                || (!entry.hasValidator() && !entry.isFresh(now))) {
+            // Nothing to reuse later, so hand the network stream straight to the caller
+            return new Response(responseCode,
+                    new DrainingInputStream(body, cancellation, abort), false);
+        }
+
+        try {
+            entry = cache.put(key, entry, body);
+        } finally {
+            drain(body);
+        }
+        return new Response(responseCode, new FileInputStream(entry.body), false);
+    }
+
+    /**
+     * @return whether a response with this code is worth requesting again
+     */
+    private static boolean isRetryable(int code) {
+        return code == HttpURLConnection.HTTP_CLIENT_TIMEOUT || code == HTTP_TOO_MANY_REQUESTS
+                || code >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+    }
+
+    /**
+     * @return how long to wait before an attempt after the given one: exponential, capped, and
+     * jittered between half and all of it so loads failing together do not retry together
+     */
+    private long backoffMillis(int attempt) {
+        long backoff = Math.min(options.maxBackoffMillis,
+                options.initialBackoffMillis << Math.min(attempt - 1, 30));
+        long half = backoff / 2;
+        synchronized (random) {
+            return half + (long) (random.nextDouble() * (backoff - half));
+        }
+    }
+
+    /**
+     * Parse a Retry-After header, either a number of seconds or an HTTP-date
+     *
+     * @return milliseconds to wait, or -1 if the header is missing or invalid
+     */
+    static long parseRetryAfter(String value, long now) {
+        if (value == null) {
+            return -1;
+        }
+        value = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            // Not a number of seconds, try a date
+        }
+        SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, format.parse(value).getTime() - now);
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Create a cache entry from the validators and Cache-Control header of a response
+     */
+    private static HttpCache.Entry newEntry(HttpURLConnection urlConnection, long now) {
+        String cacheControl = lowerCase(urlConnection.getHeaderField("Cache-Control"));
+        long expiresAt = 0;
+        int maxAgeIndex = cacheControl.indexOf(MAX_AGE);
+        if (maxAgeIndex >= 0 && !cacheControl.contains(NO_CACHE)) {
+            int start = maxAgeIndex + MAX_AGE.length();
+            int end = start;
+            while (end < cacheControl.length() && Character.isDigit(cacheControl.charAt(end))) {
+                end++;
+            }
+            if (end > start) {
+                expiresAt = now + Long.parseLong(cacheControl.substring(start, end)) * 1000;
+            }
+        }
+        return new HttpCache.Entry(urlConnection.getHeaderField("ETag"),
+                urlConnection.getHeaderField("Last-Modified"), expiresAt);
+    }
+
+    private static String lowerCase(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.US);
+    }
+
+    /**
+     * Read a response to the end and close it, so its connection can be reused
+     */
+    private static void drain(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (inputStream.read(buffer) != -1) {
+                // Discard
+            }
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * The outcome of a request
+     */
+    public static class Response implements Closeable {
+        private final int code;
+        private final InputStream body;
+        private final boolean fromCache;
+        /**
+         * How long the server asked to wait before requesting again, -1 if it did not say
+         */
+        long retryAfterMillis = -1;
+
+        Response(int code, InputStream body, boolean fromCache) {
+            this.code = code;
+            this.body = body;
+            this.fromCache = fromCache;
+        }
+
+        static Response fromCache(HttpCache.Entry entry) throws IOException {
+            return new Response(HttpURLConnection.HTTP_OK, new FileInputStream(entry.body), true);
+        }
+
+        /**
+         * @return HTTP status code, 200 for a response served from the cache
+         */
+        public int getCode() {
+            return code;
+        }
+
+        /**
+         * @return decompressed body, or null if the request was not successful
+         */
+        public InputStream getBody() {
+            return body;
+        }
+
+        /**
+         * @return whether the body is served from the cache, fresh or revalidated
+         */
+        public boolean isFromCache() {
+            return fromCache;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (body != null) {
+                body.close();
+            }
+        }
+    }
+
+    /**
+     * Retries, deadline and timeouts of the requests of an {@link HttpTransport}
+     */
+    public static class Options {
+        private int maxAttempts = 3;
+        private long initialBackoffMillis = 500;
+        private long maxBackoffMillis = 4000;
+        private long deadlineMillis = 15000;
+        private int connectTimeoutMillis = 5000;
+        private int readTimeoutMillis = 8000;
+        private int failureThreshold = 5;
+        private long circuitOpenMillis = 30000;
+
+        /**
+         * @param maxAttempts number of attempts of a request, including the first one
+         */
+        public Options maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * @param initialBackoffMillis wait before the first retry, doubled for each next one
+         * @param maxBackoffMillis     longest wait between two attempts
+         */
+        public Options backoff(long initialBackoffMillis, long maxBackoffMillis) {
+            this.initialBackoffMillis = initialBackoffMillis;
+            this.maxBackoffMillis = maxBackoffMillis;
+            return this;
+        }
+
+        /**
+         * @param deadlineMillis time after which a request and its retries give up
+         */
+        public Options deadline(long deadlineMillis) {
+            this.deadlineMillis = deadlineMillis;
+            return this;
+        }
+
+        /**
+         * @param connectTimeoutMillis longest time to connect in one attempt
+         * @param readTimeoutMillis    longest wait for data in one attempt
+         */
+        public Options timeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+            this.connectTimeoutMillis = connectTimeoutMillis;
+            this.readTimeoutMillis = readTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * @param failureThreshold  failures in a row that stop requests
+         * @param circuitOpenMillis how long requests are stopped before trying again
+         */
+        public Options circuitBreaker(int failureThreshold, long circuitOpenMillis) {
+            this.failureThreshold = failureThreshold;
+            this.circuitOpenMillis = circuitOpenMillis;
+            return this;
+        }
+    }
+
+    /**
+     * Reads the rest of a network response when it is closed early, so its connection goes back
+     * to the pool instead of being dropped
+     */
+    private static class DrainingInputStream extends InputStream {
+        private final InputStream inputStream;
+        /**
+         * Cancellation of the load reading the response, or null
+         */
+        private final Cancellation cancellation;
+        /**
+         * Listener closing the connection when the load is cancelled, or null
+         */
+        private final Runnable abort;
+        private boolean closed;
+
+        DrainingInputStream(InputStream inputStream, Cancellation cancellation, Runnable abort) {
+            this.inputStream = inputStream;
+            this.cancellation = cancellation;
+            this.abort = abort;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return inputStream.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            return inputStream.read(buffer, offset, length);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return inputStream.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (cancellation == null) {
+                drain(inputStream);
+                return;
+            }
+            try {
+                if (cancellation.isCanceled()) {
+                    // The connection is closed, there is nothing left to reuse
+                    inputStream.close();
+                } else {
+                    drain(inputStream);
+                }
+            } finally {
+                cancellation.removeListener(abort);
+            }
+        }
+    }
+}
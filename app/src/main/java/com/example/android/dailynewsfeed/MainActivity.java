@@ -1,18 +1,109 @@
 package com.example.android.dailynewsfeed;
 
 import android.content.Intent;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
 import android.support.design.widget.TabLayout;
 import android.support.v4.view.ViewPager;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.RecyclerView;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewTreeObserver;
 
-public class MainActivity extends AppCompatActivity {
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MainActivity extends AppCompatActivity implements SectionFragment.Host {
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = MainActivity.class.getSimpleName();
+    /**
+     * Name of the file the metrics are written to in debug builds
+     */
+    private static final String METRICS_FILE_NAME = "metrics.txt";
+    /**
+     * Number of tabs on each side of the shown one whose fragments have a view and load their
+     * articles. The others wait until the user comes near them
+     */
+    private static final int OFFSCREEN_TABS = 1;
+    /**
+     * Row views kept for reuse by the lists of all tabs together
+     */
+    private static final int POOLED_ROW_VIEWS = 20;
+    /**
+     * Time in milliseconds after which the work put off until the first articles are drawn runs
+     * anyway, e.g. when nothing is stored and there is no internet connection
+     */
+    private static final long STARTUP_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * Row views released by the list of a tab, for the list of another tab
+     */
+    private final RecyclerView.RecycledViewPool rowViewPool = new RecyclerView.RecycledViewPool();
+    /**
+     * Start of the timing of the first list drawn, 0 once it has been drawn
+     */
+    private long firstListStart;
+    /**
+     * Uptime in milliseconds of the first layout pass of the activity
+     */
+    private long firstLayoutTime;
+    /**
+     * Whether the first articles have been drawn
+     */
+    private boolean firstArticleDrawn;
+    /**
+     * Whether the work put off during startup has run
+     */
+    private boolean startupFinished;
+    /**
+     * Work put off until the first articles are drawn
+     */
+    private final List<Runnable> deferredWork = new ArrayList<>();
+    /**
+     * Handler running the work put off during startup when it times out
+     */
+    private final Handler handler = new Handler();
+    /**
+     * Runs the work put off during startup
+     */
+    private final Runnable finishStartup = new Runnable() {
+        @Override
+        public void run() {
+            if (startupFinished) {
+                return;
+            }
+            startupFinished = true;
+            handler.removeCallbacks(this);
+            for (Runnable task : deferredWork) {
+                task.run();
+            }
+            deferredWork.clear();
+        }
+    };
+    /**
+     * Tabs shown since the activity was created
+     */
+    private boolean[] visitedTabs;
+    /**
+     * Number of tabs shown since the activity was created
+     */
+    private int visitedTabCount;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        long start = StartupTrace.begin(Metrics.STARTUP_ACTIVITY);
+        firstListStart = Metrics.start();
         setContentView(R.layout.activity_main);
 
         // Find the view pager that will allow user to swipe between fragments
@@ -23,14 +114,136 @@ public class MainActivity extends AppCompatActivity {
 
         // Set the adapter onto view pager.
         viewPager.setAdapter(pagerAdapter);
+        viewPager.setOffscreenPageLimit(OFFSCREEN_TABS);
+        rowViewPool.setMaxRecycledViews(0, POOLED_ROW_VIEWS);
+
+        // Measure the heap once the user has been through every tab
+        visitedTabs = new boolean[pagerAdapter.getCount()];
+        onTabShown(viewPager.getCurrentItem());
+        viewPager.addOnPageChangeListener(new ViewPager.SimpleOnPageChangeListener() {
+            @Override
+            public void onPageSelected(int position) {
+                onTabShown(position);
+            }
+        });
 
         // Find the tab layout that shows the tabs
         TabLayout tabLayout = (TabLayout) findViewById(R.id.sliding_tab);
 
         // Connect the tab layout with the view pager. This will
         tabLayout.setupWithViewPager(viewPager);
+
+        // Remember the first layout pass, the first articles should follow within a frame
+        final View decorView = getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                        firstLayoutTime = SystemClock.uptimeMillis();
+                        return true;
+                    }
+                });
+
+        // Keep the articles of every section fresh on the device in the background, once the
+        // first articles are shown
+        runAfterStartup(new Runnable() {
+            @Override
+            public void run() {
+                SectionSyncService.schedule(MainActivity.this);
+            }
+        });
+        handler.postDelayed(finishStartup, STARTUP_TIMEOUT_MILLIS);
+        StartupTrace.end(Metrics.STARTUP_ACTIVITY, start);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        handler.removeCallbacks(finishStartup);
+        deferredWork.clear();
+    }
+
+
+    @Override
+    public RecyclerView.RecycledViewPool getRowViewPool() {
+        return rowViewPool;
+    }
+
+    /**
+     * Run work the shown tab does not need once its first articles are drawn, right away if
+     * they are
+     */
+    @Override
+    public void runAfterStartup(Runnable task) {
+        if (startupFinished) {
+            task.run();
+        } else {
+            deferredWork.add(task);
+        }
+    }
+
+    /**
+     * Record the time to the first list drawn with articles, and run the work put off until then
+     */
+    @Override
+    public void onArticlesDrawn() {
+        if (!firstArticleDrawn) {
+            firstArticleDrawn = true;
+            long sinceStart = StartupTrace.sinceApplicationStart();
+            long afterLayout = SystemClock.uptimeMillis() - firstLayoutTime;
+            Metrics.set(Metrics.FIRST_ARTICLE_MS, sinceStart);
+            Metrics.set(Metrics.FIRST_ARTICLE_AFTER_LAYOUT_MS, afterLayout);
+            if (Metrics.isEnabled()) {
+                // Read by the cold start measurement
+                Log.i(LOG_TAG, "First article drawn " + sinceStart + " ms after the application"
+                        + " was created, " + afterLayout + " ms after the first layout pass");
+            }
+            // Reported by the system as the time to fully drawn
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                reportFullyDrawn();
+            }
+            finishStartup.run();
+        }
+        if (firstListStart != 0) {
+            Metrics.stop(Metrics.FIRST_LIST, firstListStart);
+            firstListStart = 0;
+        }
+    }
+
+    /**
+     * Record the heap used whenever a tab is shown once every tab has been, the steady state of
+     * the tabs
+     */
+    private void onTabShown(int position) {
+        if (!visitedTabs[position]) {
+            visitedTabs[position] = true;
+            visitedTabCount++;
+        }
+        if (visitedTabCount == visitedTabs.length) {
+            Runtime runtime = Runtime.getRuntime();
+            Metrics.set(Metrics.HEAP_ALL_TABS_KB,
+                    (runtime.totalMemory() - runtime.freeMemory()) / 1024);
+        }
     }
 
+    /**
+     * Write the metrics collected so far to a file, e.g. for adb pull, whenever the app leaves the
+     * screen
+     */
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (Metrics.isEnabled()) {
+            File directory = getExternalFilesDir(null);
+            File file = new File(directory != null ? directory : getFilesDir(), METRICS_FILE_NAME);
+            try {
+                Metrics.dump(file);
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Error writing metrics", e);
+            }
+        }
+    }
 
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
@@ -41,6 +254,10 @@ public class MainActivity extends AppCompatActivity {
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         int id = item.getItemId();
+        if (id == R.id.action_search) {
+            startActivity(new Intent(this, SearchActivity.class));
+            return true;
+        }
         if (id == R.id.action_settings) {
             Intent settingIntent = new Intent(this, SettingActivity.class);
             startActivity(settingIntent);
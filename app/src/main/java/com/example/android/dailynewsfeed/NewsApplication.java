@@ -0,0 +1,61 @@
+package com.example.android.dailynewsfeed;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Process;
+
+/**
+ * {@link NewsApplication} starts the work a cold start needs before any activity is created:
+ * metrics are switched on in debug builds, and the shared components that read from disk are
+ * created on a background thread while the main thread creates the activity, so the first tab
+ * finds them ready instead of creating them on the main thread or on its loader thread. The
+ * stored articles of the first tab are read ahead too, and handed to its loader by the
+ * {@link ArticleStore}.
+ */
+public class NewsApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        StartupTrace.markApplicationStart();
+        super.onCreate();
+        // Collect timings of requests, parsing, decoding and binding in debug builds only
+        Metrics.setEnabled(BuildConfig.DEBUG);
+        long start = StartupTrace.begin(Metrics.STARTUP_APPLICATION);
+        // Start reading the search settings in the background
+        SettingsRepository.getInstance(this);
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new WarmUp(this));
+        StartupTrace.end(Metrics.STARTUP_APPLICATION, start);
+    }
+
+    /**
+     * Creates the shared components in the order the first tab needs them
+     */
+    private static class WarmUp implements Runnable {
+        private final Context context;
+
+        WarmUp(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            long start = StartupTrace.begin(Metrics.STARTUP_WARM_UP);
+            // Asked for on the main thread by the adapter of the first tab, and opens the
+            // thumbnail cache on disk
+            ThumbnailLoader.getInstance(context);
+
+            // Open the database and read the first page of the first tab ahead of its loader,
+            // which shows it before anything else
+            ArticleStore store = ArticleStore.getInstance(context);
+            store.getReadableDatabase();
+            String firstSection = context.getResources().getStringArray(R.array.section_keys)[0];
+            store.preload(SettingsRepository.getInstance(context).getQuery(firstSection).url());
+
+            // Open the HTTP cache the first tab revalidates its articles through
+            FetchScheduler.getInstance(context);
+            StartupTrace.end(Metrics.STARTUP_WARM_UP, start);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.android.dailynewsfeed;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * {@link PrefetchScrollListener} asks for the next page while the user is still a number of rows
+ * away from the end of the list, so the page has usually arrived before the end is reached.
+ */
+public class PrefetchScrollListener extends RecyclerView.OnScrollListener {
+
+    /**
+     * Receives the requests for the next page
+     */
+    public interface Callback {
+        /**
+         * @return whether there is a next page that is not being loaded already
+         */
+        boolean canLoadNextPage();
+
+        /**
+         * Start loading the next page
+         */
+        void loadNextPage();
+    }
+
+    /**
+     * Layout manager of the list
+     */
+    private final LinearLayoutManager layoutManager;
+    /**
+     * Number of rows before the end of the list at which the next page is requested
+     */
+    private final int prefetchDistance;
+    /**
+     * Receives the requests for the next page
+     */
+    private final Callback callback;
+
+    /**
+     * Create a new {@link PrefetchScrollListener}
+     *
+     * @param layoutManager    layout manager of the list
+     * @param prefetchDistance number of rows before the end at which the next page is requested
+     * @param callback         receives the requests for the next page
+     */
+    public PrefetchScrollListener(LinearLayoutManager layoutManager, int prefetchDistance,
+                                  Callback callback) {
+        this.layoutManager = layoutManager;
+        this.prefetchDistance = prefetchDistance;
+        this.callback = callback;
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        // Only scrolling down brings the end of the list closer
+        if (dy <= 0) {
+            return;
+        }
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        int itemCount = layoutManager.getItemCount();
+        if (lastVisible >= itemCount - 1 - prefetchDistance && callback.canLoadNextPage()) {
+            callback.loadNextPage();
+        }
+    }
+}
@@ -1,22 +1,15 @@
 package com.example.android.dailynewsfeed;
 
-import android.graphics.drawable.Drawable;
-import android.text.TextUtils;
+import android.content.Context;
 import android.util.Log;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Helper methods related to requesting and receiving article data from Guardian API.
@@ -28,29 +21,34 @@ public class QueryUtils {
      */
     private static final String LOG_TAG = QueryUtils.class.getSimpleName();
     /**
-     * Read time out in milliseconds
-     */
-    private static final int READ_TIMEOUT = 10000;
-    /**
-     * Connect time out in milliseconds
+     * Number of articles requested per page
      */
-    private static final int CONNECT_TIMEOUT = 15000;
+    public static final int PAGE_SIZE = 20;
     /**
      * Success response code
      */
     private static final int SUCCESS_RESPONSE_CODE = 200;
+    /**
+     * Name of the HTTP response cache directory within the cache directory of the app
+     */
+    private static final String HTTP_CACHE_DIRECTORY = "http";
+    /**
+     * Maximum total size of the cached HTTP responses in bytes
+     */
+    private static final long HTTP_CACHE_BYTES = 10 * 1024 * 1024;
+    /**
+     * How long a loaded page is served from memory to other loads of the same query
+     */
+    private static final long PAGE_MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(1);
 
-    // Guardian API keys
-    private static final String RESPONSE_KEY = "response";
-    private static final String RESULTS_KEY = "results";
-    private static final String TITLE_KEY = "webTitle";
-    private static final String SECTION_NAME_KEY = "sectionName";
-    private static final String PUBLICATION_DATE_KEY = "webPublicationDate";
-    private static final String WEB_URL_KEY = "webUrl";
-    private static final String FIELDS_KEY = "fields";
-    private static final String BYLINE_KEY = "byline";
-    private static final String TRAIL_TEXT_KEY = "trailText";
-    private static final String THUMBNAIL_KEY = "thumbnail";
+    /**
+     * Transport shared by every request so connections and cached responses are reused
+     */
+    private static HttpTransport transport;
+    /**
+     * Registry shared by every load so identical loads share one request
+     */
+    private static RequestRegistry requestRegistry;
 
     /**
      * Meant to hold static variables and methods, which can be accessed directly from class name
@@ -59,28 +57,98 @@ public class QueryUtils {
     private QueryUtils() {
     }
 
+    /**
+     * Return the transport shared by the whole app, creating it on first use
+     *
+     * @param context any context of the app
+     * @return HTTP transport with an on-disk response cache
+     */
+    public static synchronized HttpTransport getTransport(Context context) {
+        if (transport == null) {
+            HttpCache cache = new HttpCache(
+                    new File(context.getCacheDir(), HTTP_CACHE_DIRECTORY), HTTP_CACHE_BYTES);
+            transport = new HttpTransport(cache);
+        }
+        return transport;
+    }
+
+    /**
+     * Return the request registry shared by the whole app, creating it on first use
+     *
+     * @param context any context of the app
+     * @return registry sending requests through the shared transport
+     */
+    public static synchronized RequestRegistry getRequestRegistry(Context context) {
+        if (requestRegistry == null) {
+            requestRegistry = new RequestRegistry(getTransport(context), PAGE_MAX_AGE_MILLIS);
+        }
+        return requestRegistry;
+    }
+
     /**
      * Query Guardian API and return a list of {@link Article} objects
      *
+     * @param context   any context of the app
      * @param stringUrl to load articles from
      * @return list of articles
      */
-    public static List<Article> fetchArticleData(String stringUrl) {
+    public static List<Article> fetchArticleData(Context context, String stringUrl) {
+        return fetchArticlePage(context, stringUrl).getArticles();
+    }
+
+    /**
+     * Query Guardian API and return one page of {@link Article} objects, shared with other loads
+     * of the same query through the {@link RequestRegistry}
+     *
+     * @param context   any context of the app
+     * @param stringUrl to load the page from
+     * @return the page, with an empty list of articles if the request failed
+     */
+    public static ArticlePage fetchArticlePage(Context context, String stringUrl) {
+        return fetchArticlePage(context, stringUrl, null);
+    }
+
+    /**
+     * Query Guardian API and return one page of {@link Article} objects, shared with other loads
+     * of the same query through the {@link RequestRegistry}, unless the load is cancelled first
+     *
+     * @param context      any context of the app
+     * @param stringUrl    to load the page from
+     * @param cancellation of the load, or null if it is never cancelled
+     * @return the page, with an empty list of articles if the request failed or was cancelled
+     */
+    public static ArticlePage fetchArticlePage(Context context, String stringUrl,
+                                               Cancellation cancellation) {
+        return getRequestRegistry(context).fetch(stringUrl, cancellation);
+    }
+
+    /**
+     * Query Guardian API with the given transport and return one page of {@link Article} objects
+     *
+     * @param transport to perform the request with
+     * @param stringUrl to load the page from
+     * @return the page, with an empty list of articles if the request failed
+     */
+    public static ArticlePage fetchArticlePage(HttpTransport transport, String stringUrl) {
+        return fetchArticlePage(transport, stringUrl, null);
+    }
+
+    /**
+     * Query Guardian API with the given transport and return one page of {@link Article}
+     * objects. Cancelling the load closes the connection, which also stops parsing the response.
+     *
+     * @param transport    to perform the request with
+     * @param stringUrl    to load the page from
+     * @param cancellation of the load, or null if it is never cancelled
+     * @return the page, with an empty list of articles if the request failed or was cancelled
+     */
+    public static ArticlePage fetchArticlePage(HttpTransport transport, String stringUrl,
+                                               Cancellation cancellation) {
         // Create URL object from String
         URL url = createUrl(stringUrl);
 
-        // Perform HTTP request to the URL and receive back JSON response
-        String jsonResponse = null;
-        try {
-            jsonResponse = makeHttpRequest(url);
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "Error in closing input stream", e);
-        }
-
-        // Extract relevant fields from JSON response and create a list of articles
-        List<Article> articles = extractDataFromJSON(jsonResponse);
-        // Return a list of articles
-        return articles;
+        // Perform HTTP request to the URL and extract the page of articles from the response
+        return makeHttpRequest(transport, url, cancellation);
     }
 
     /**
@@ -100,182 +168,74 @@ public class QueryUtils {
     }
 
     /**
-     * Make a HTTP request to the given URL and return a String as the response
+     * Make a HTTP request to the given URL and parse the response as it is being read
      *
-     * @param url URL object
-     * @return json response string
-     * @throws IOException
+     * @param transport    to perform the request with
+     * @param url          URL object
+     * @param cancellation of the load, or null if it is never cancelled
+     * @return the page, whose articles are null if the response has no results
      */
-    private static String makeHttpRequest(URL url) throws IOException {
-        String jsonResponse = "";
+    private static ArticlePage makeHttpRequest(HttpTransport transport, URL url,
+                                               Cancellation cancellation) {
+        ArticlePage page = new ArticlePage(new ArrayList<Article>(), 0, 0);
 
         // If the url is null, return early
         if (url == null) {
-            return jsonResponse;
+            return page;
         }
 
-        HttpURLConnection urlConnection = null;
-        InputStream inputStream = null;
-
+        long requestStart = Metrics.start();
+        HttpTransport.Response response = null;
         try {
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(READ_TIMEOUT);
-            urlConnection.setConnectTimeout(CONNECT_TIMEOUT);
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
+            long responseStart = Metrics.start();
+            response = transport.get(url, cancellation);
+            Metrics.stop(Metrics.HTTP_RESPONSE, responseStart);
+            if (response.isFromCache()) {
+                Metrics.increment(Metrics.HTTP_FROM_CACHE);
+            }
 
-            // If the request is successful (response code 200), read from the input stream
-            // and parse the response.
-            if (urlConnection.getResponseCode() == SUCCESS_RESPONSE_CODE) {
-                inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
+            // If the request is successful (response code 200), parse the response directly
+            // from the input stream, which may come from the cache. Parsing therefore also
+            // includes reading the body from the network.
+            if (response.getCode() == SUCCESS_RESPONSE_CODE) {
+                long parseStart = Metrics.start();
+                page = GuardianResponseParser.parsePage(response.getBody());
+                Metrics.stop(Metrics.PARSE, parseStart);
             } else {
-                Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
+                Metrics.increment(Metrics.HTTP_ERROR);
+                Log.e(LOG_TAG, "Error response code: " + response.getCode());
             }
         } catch (IOException e) {
-            Log.e(LOG_TAG, "Problem with retrieving JSON response", e);
-        } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
+            // A cancelled load closed the connection, nobody waits for the page any more
+            if (!isCanceled(cancellation)) {
+                Metrics.increment(Metrics.HTTP_ERROR);
+                Log.e(LOG_TAG, "Problem with retrieving JSON response", e);
             }
-            if (inputStream != null) {
-                inputStream.close();
-            }
-        }
-        return jsonResponse;
-    }
-
-    /**
-     * Convert the {@link InputStream} into a String which contains the whole JSON response from
-     * server.
-     *
-     * @param inputStream
-     * @return json response in string
-     * @throws IOException
-     */
-    private static String readFromStream(InputStream inputStream) throws IOException {
-        StringBuilder output = new StringBuilder();
-        if (inputStream != null) {
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream);
-            BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
-            String line = bufferedReader.readLine();
-            while (line != null) {
-                output.append(line);
-                line = bufferedReader.readLine();
+        } finally {
+            // Closing the response returns its connection to the pool for the next request
+            if (response != null) {
+                close(response, cancellation);
             }
         }
-        return output.toString();
+        Metrics.stop(Metrics.MAKE_HTTP_REQUEST, requestStart);
+        return page;
     }
 
     /**
-     * Return a list {@link Article} objects that has been built up from parsing a JSON response.
-     *
-     * @param jsonResponse json response in String
-     * @return list of {@link Article} objects
+     * Close a response, which reads the rest of it so its connection can be reused
      */
-    private static ArrayList<Article> extractDataFromJSON(String jsonResponse) {
-        // If the JSON string is empty or null, then return early.
-        if (jsonResponse == null) {
-            return null;
-        }
-
-        // Create an empty Arraylist for adding article to
-        ArrayList<Article> articles = new ArrayList<>();
-        // Try to parse json response. If there is problem with the way the JSON is formatted,
-        // a JSONException exception object will be thrown.
-        // Catch the exception so the app doesn't crash and print the error message to log
+    private static void close(HttpTransport.Response response, Cancellation cancellation) {
         try {
-            // Create a JSONObject from the jsonResponse string
-            JSONObject baseJsonResponse = new JSONObject(jsonResponse);
-            // Extract JSONObject associated with the key called "response"
-            JSONObject response = baseJsonResponse.getJSONObject(RESPONSE_KEY);
-
-            // If the response has key called "results", proceed with extracting data, else
-            // set {@Article} object to be empty
-            if (response.has(RESULTS_KEY)) {
-                JSONArray resultsArray = response.getJSONArray(RESULTS_KEY);
-
-                // For each article in the resultsArray, create a {@link Article} object
-                for (int i = 0; i < resultsArray.length(); i++) {
-                    // Get the result at position i
-                    JSONObject result = resultsArray.getJSONObject(i);
-
-                    // If the results has key called "title", extract the String title
-                    String title = "";
-                    if (result.has(TITLE_KEY)) {
-                        title = result.getString(TITLE_KEY);
-                    }
-
-                    // If the results has key called "sectionName", extract the String section
-                    String section = "";
-                    if (result.has(SECTION_NAME_KEY)) {
-                        section = result.getString(SECTION_NAME_KEY);
-                    }
-
-                    // If the results has key called "webPublicationDate", extract the String publicationDate
-                    String publicationDate = "";
-                    if (result.has(PUBLICATION_DATE_KEY)) {
-                        publicationDate = result.getString(PUBLICATION_DATE_KEY);
-                    }
-
-                    // If the results has key called "webUrl", extract the String webUrl
-                    String webUrl = "";
-                    if (result.has(WEB_URL_KEY)) {
-                        webUrl = result.getString(WEB_URL_KEY);
-                    }
-
-                    String contributor = "";
-                    Drawable image = null;
-
-                    // Extract JSONObject associated with key called "fields"
-                    if (result.has(FIELDS_KEY)) {
-                        JSONObject fields = result.getJSONObject(FIELDS_KEY);
-                        // If the results has key called "byline", extract the String contributor
-                        if (fields.has(BYLINE_KEY)) {
-                            contributor = fields.getString(BYLINE_KEY);
-                        }
-                        // If the results has key called "thumbnail", extract the String thumbnail
-                        // and convert it to Drawable object
-                        if (fields.has(THUMBNAIL_KEY)) {
-                            String thumbnail = fields.getString(THUMBNAIL_KEY);
-                            image = createDrawable(thumbnail);
-                        }
-                    }
-
-                    // Create a new {@link Article} object with title, contributor, section name,
-                    // publication date, web url and image from jsonResponse
-                    articles.add(new Article(title, contributor, section, publicationDate,
-                            webUrl, image));
-                }
-            } else {
-                articles = null;
+            response.close();
+        } catch (IOException e) {
+            // The page has been read, only the connection is lost
+            if (!isCanceled(cancellation)) {
+                Log.e(LOG_TAG, "Error in closing the response", e);
             }
-        } catch (JSONException e) {
-            Log.e(LOG_TAG, "Error with parsing JSON response", e);
         }
-        // Return the list of articles
-        return articles;
     }
 
-    /**
-     * Create image drawable from string url
-     *
-     * @param stringImage string url to extract drawable from
-     * @return drawable image
-     */
-    private static Drawable createDrawable(String stringImage) {
-        if (TextUtils.isEmpty(stringImage)) {
-            return null;
-        }
-        InputStream content = null;
-        try {
-            URL imageUrl = new URL(stringImage);
-            content = (InputStream) imageUrl.getContent();
-        } catch (MalformedURLException e) {
-            Log.e(LOG_TAG, "Error with creating image url", e);
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "Error with obtaining url content", e);
-        }
-        return Drawable.createFromStream(content, "src");
+    private static boolean isCanceled(Cancellation cancellation) {
+        return cancellation != null && cancellation.isCanceled();
     }
 }
@@ -0,0 +1,223 @@
+package com.example.android.dailynewsfeed;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link RequestRegistry} sends every request for a page of articles, so loaders asking for the
+ * same query share the work:
+ * <ul>
+ * <li>requests are keyed by their normalized url, so urls differing only in the order of their
+ * parameters or the case of their host are the same request,</li>
+ * <li>a load asking for a query that is already being loaded waits for that request instead of
+ * sending its own, e.g. the loader of a fragment recreated by a rotation,</li>
+ * <li>pages loaded less than the configured age ago are served from memory without reading or
+ * parsing anything, e.g. when the user swipes back to a tab,</li>
+ * <li>a cancelled load stops waiting at once, and a request every load waiting for has been
+ * cancelled is aborted, see {@link SharedCall}.</li>
+ * </ul>
+ * Failed requests are shared with the loads waiting for them but not kept. Pages handed out are
+ * shared and must not be modified.
+ */
+public class RequestRegistry {
+
+    /**
+     * Number of loaded pages kept in memory
+     */
+    private static final int MAX_ENTRIES = 32;
+
+    /**
+     * Transport performing the requests
+     */
+    private final HttpTransport transport;
+    /**
+     * How long a loaded page is served from memory, 0 to only share requests in progress
+     */
+    private final long maxAgeMillis;
+    /**
+     * Requests in progress, by normalized url
+     */
+    private final Map<String, SharedCall<ArticlePage>> inFlight = new HashMap<>();
+    /**
+     * Pages loaded recently, by normalized url, least recently used first
+     */
+    private final Map<String, Loaded> loaded = new LinkedHashMap<String, Loaded>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Loaded> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    /**
+     * Number of requests sent to the Guardian API
+     */
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    /**
+     * Create a new {@link RequestRegistry}
+     *
+     * @param transport    to perform the requests with
+     * @param maxAgeMillis how long a loaded page is served from memory, 0 to only share requests
+     *                     in progress
+     */
+    public RequestRegistry(HttpTransport transport, long maxAgeMillis) {
+        this.transport = transport;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Load a page of articles, sharing the request with concurrent loads of the same query. Must
+     * not be called on the main thread.
+     *
+     * @param url of the page
+     * @return the page, with an empty list of articles if the request failed
+     */
+    public ArticlePage fetch(String url) {
+        return fetch(url, null);
+    }
+
+    /**
+     * Load a page of articles like {@link #fetch(String)}, unless the load is cancelled first.
+     * Must not be called on the main thread.
+     *
+     * @param url          of the page
+     * @param cancellation of the load, or null if it is never cancelled
+     * @return the page, with an empty list of articles if the request failed or the load was
+     * cancelled
+     */
+    public ArticlePage fetch(final String url, Cancellation cancellation) {
+        String key = normalize(url);
+        SharedCall<ArticlePage> task;
+        synchronized (this) {
+            Loaded recent = loaded.get(key);
+            if (recent != null) {
+                if (System.currentTimeMillis() - recent.loadedAt < maxAgeMillis) {
+                    return recent.page;
+                }
+                loaded.remove(key);
+            }
+            task = inFlight.get(key);
+            if (task == null || !task.join()) {
+                final Cancellation request = new Cancellation();
+                task = new SharedCall<>(new Callable<ArticlePage>() {
+                    @Override
+                    public ArticlePage call() {
+                        requestCount.incrementAndGet();
+                        return QueryUtils.fetchArticlePage(transport, url, request);
+                    }
+                }, request);
+                task.join();
+                inFlight.put(key, task);
+            }
+        }
+
+        // The first caller sends the request on its own thread, any other caller waits for it
+        ArticlePage page;
+        try {
+            page = task.call(cancellation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            page = null;
+        } catch (ExecutionException e) {
+            page = null;
+        }
+
+        synchronized (this) {
+            // Other loads may still wait for the request this load stopped waiting for
+            if (inFlight.get(key) == task && (task.isDone() || task.isAbandoned())) {
+                inFlight.remove(key);
+                if (page != null && page.getPages() > 0 && maxAgeMillis > 0) {
+                    loaded.put(key, new Loaded(page, System.currentTimeMillis()));
+                }
+            }
+        }
+        return page != null ? page : new ArticlePage(new ArrayList<Article>(), 0, 0);
+    }
+
+    /**
+     * Forget the page loaded for a query, so the next load sends a request, e.g. when the user
+     * pulls to refresh
+     *
+     * @param url of the page
+     */
+    public synchronized void invalidate(String url) {
+        loaded.remove(normalize(url));
+    }
+
+    /**
+     * @return number of requests sent to the Guardian API so far
+     */
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Normalize a url so urls asking for the same resource are equal: the scheme and host are
+     * lower case, the default port and the fragment are left out, and the parameters are sorted.
+     *
+     * @param url to normalize
+     * @return the normalized url, or the url itself if it cannot be parsed
+     */
+    static String normalize(String url) {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            return url;
+        }
+        if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+            return url;
+        }
+
+        String scheme = uri.getScheme().toLowerCase(Locale.US);
+        StringBuilder normalized = new StringBuilder(scheme).append("://");
+        if (uri.getHost() != null) {
+            normalized.append(uri.getHost().toLowerCase(Locale.US));
+            int port = uri.getPort();
+            boolean defaultPort = ("http".equals(scheme) && port == 80)
+                    || ("https".equals(scheme) && port == 443);
+            if (port != -1 && !defaultPort) {
+                normalized.append(':').append(port);
+            }
+        } else {
+            normalized.append(uri.getRawAuthority());
+        }
+        String path = uri.getRawPath();
+        normalized.append(path == null || path.isEmpty() ? "/" : path);
+
+        String query = uri.getRawQuery();
+        if (query != null && !query.isEmpty()) {
+            String[] parameters = query.split("&");
+            Arrays.sort(parameters);
+            char separator = '?';
+            for (String parameter : parameters) {
+                if (!parameter.isEmpty()) {
+                    normalized.append(separator).append(parameter);
+                    separator = '&';
+                }
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * A page and when it was loaded
+     */
+    private static class Loaded {
+        final ArticlePage page;
+        final long loadedAt;
+
+        Loaded(ArticlePage page, long loadedAt) {
+            this.page = page;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.android.dailynewsfeed;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Bundle;
+import android.os.Handler;
+import android.support.v4.app.LoaderManager.LoaderCallbacks;
+import android.support.v4.content.Loader;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.DividerItemDecoration;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Searches as the user types. The articles stored on the device answer straight away from an
+ * {@link ArticleSearchIndex}; the Guardian API is only asked once the user pauses typing and the
+ * device has fewer results than a page.
+ */
+public class SearchActivity extends AppCompatActivity implements LoaderCallbacks<ArticleSearchIndex>,
+        TextWatcher {
+
+    /**
+     * Constant value for the loader ID of the index of the stored articles
+     */
+    private static final int INDEX_LOADER_ID = 0;
+    /**
+     * Constant value for the loader ID of the search on the Guardian API
+     */
+    private static final int REMOTE_LOADER_ID = 1;
+    /**
+     * Key of the url in the arguments of the remote loader
+     */
+    private static final String URL_ARG = "url";
+    /**
+     * Time in milliseconds the user has to pause typing before the Guardian API is asked
+     */
+    private static final long REMOTE_DELAY_MILLIS = 500;
+    /**
+     * Shortest query sent to the Guardian API
+     */
+    private static final int MIN_REMOTE_QUERY_LENGTH = 3;
+
+    /**
+     * Adapter for the list of results
+     */
+    private ArticleAdapter adapter;
+    /**
+     * Field the user types the query in
+     */
+    private EditText queryEditText;
+    /**
+     * TextView that is displayed when there are no results
+     */
+    private TextView emptyStateTextView;
+    /**
+     * Index of the stored articles, null until it has been built
+     */
+    private ArticleSearchIndex index;
+    /**
+     * Results from the device for the query shown
+     */
+    private List<Article> localResults = new ArrayList<>();
+    /**
+     * Query the Guardian API is being asked for, null if none
+     */
+    private String remoteQuery;
+    /**
+     * Delays the request to the Guardian API until the user pauses typing
+     */
+    private final Handler handler = new Handler();
+    /**
+     * Asks the Guardian API for the query typed
+     */
+    private final Runnable remoteSearch = new Runnable() {
+        @Override
+        public void run() {
+            searchRemote();
+        }
+    };
+    /**
+     * Callbacks of the remote loader
+     */
+    private final LoaderCallbacks<ArticlePageLoader.Result> remoteCallbacks =
+            new RemoteCallbacks();
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_search);
+
+        emptyStateTextView = (TextView) findViewById(R.id.empty_state_text);
+        queryEditText = (EditText) findViewById(R.id.search_query);
+        queryEditText.addTextChangedListener(this);
+
+        RecyclerView recyclerView = (RecyclerView) findViewById(R.id.recycler_view);
+        recyclerView.setHasFixedSize(true);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        adapter = new ArticleAdapter(this, QueryUtils.PAGE_SIZE);
+        recyclerView.setAdapter(adapter);
+        recyclerView.addItemDecoration(
+                new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
+
+        // Build the index of the stored articles in the background
+        getSupportLoaderManager().initLoader(INDEX_LOADER_ID, null, this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        handler.removeCallbacks(remoteSearch);
+    }
+
+    @Override
+    public Loader<ArticleSearchIndex> onCreateLoader(int id, Bundle args) {
+        return new SearchIndexLoader(this);
+    }
+
+    @Override
+    public void onLoadFinished(Loader<ArticleSearchIndex> loader, ArticleSearchIndex data) {
+        index = data;
+        // Answer what has been typed while the index was being built
+        searchLocal();
+    }
+
+    @Override
+    public void onLoaderReset(Loader<ArticleSearchIndex> loader) {
+        index = null;
+    }
+
+    @Override
+    public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+    }
+
+    @Override
+    public void onTextChanged(CharSequence s, int start, int before, int count) {
+    }
+
+    @Override
+    public void afterTextChanged(Editable s) {
+        searchLocal();
+    }
+
+    /**
+     * Show the stored articles matching the query, and ask the Guardian API for more once the
+     * user pauses typing if there are only a few
+     */
+    private void searchLocal() {
+        handler.removeCallbacks(remoteSearch);
+        getSupportLoaderManager().destroyLoader(REMOTE_LOADER_ID);
+        remoteQuery = null;
+
+        String query = queryEditText.getText().toString().trim();
+        localResults = index != null ? index.search(query, QueryUtils.PAGE_SIZE)
+                : new ArrayList<Article>();
+        showResults(localResults);
+
+        if (localResults.size() < QueryUtils.PAGE_SIZE
+                && query.length() >= MIN_REMOTE_QUERY_LENGTH && isConnected()) {
+            handler.postDelayed(remoteSearch, REMOTE_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Ask the Guardian API for the query typed
+     */
+    private void searchRemote() {
+        remoteQuery = queryEditText.getText().toString().trim();
+        Bundle args = new Bundle();
+        args.putString(URL_ARG, GuardianQuery.search()
+                .searchTerm(remoteQuery)
+                .pageSize(QueryUtils.PAGE_SIZE)
+                .build());
+        getSupportLoaderManager().restartLoader(REMOTE_LOADER_ID, args, remoteCallbacks);
+    }
+
+    private void showResults(List<Article> results) {
+        adapter.submitList(ArticleItem.fromArticles(results));
+        if (!results.isEmpty()) {
+            emptyStateTextView.setVisibility(View.GONE);
+        } else {
+            emptyStateTextView.setVisibility(View.VISIBLE);
+            emptyStateTextView.setText(getString(isConnected() ? R.string.no_news_found
+                    : R.string.no_internet_connection));
+        }
+    }
+
+    /**
+     * Check if there is internet connection
+     */
+    private boolean isConnected() {
+        ConnectivityManager cm = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
+        return (activeNetwork != null && activeNetwork.isConnectedOrConnecting());
+    }
+
+    /**
+     * Appends the results of the Guardian API to the results from the device
+     */
+    private class RemoteCallbacks implements LoaderCallbacks<ArticlePageLoader.Result> {
+
+        @Override
+        public Loader<ArticlePageLoader.Result> onCreateLoader(int id, Bundle args) {
+            return new ArticlePageLoader(SearchActivity.this, args.getString(URL_ARG));
+        }
+
+        @Override
+        public void onLoadFinished(Loader<ArticlePageLoader.Result> loader,
+                                   ArticlePageLoader.Result result) {
+            List<Article> remoteResults = result.getPage().getArticles();
+            if (remoteQuery == null || remoteResults == null) {
+                return;
+            }
+            remoteQuery = null;
+
+            List<Article> results = new ArrayList<>(localResults);
+            Set<String> shownUrls = new HashSet<>();
+            for (Article article : localResults) {
+                shownUrls.add(article.getWebUrl());
+            }
+            for (Article article : remoteResults) {
+                if (shownUrls.add(article.getWebUrl())) {
+                    results.add(article);
+                }
+            }
+            showResults(results);
+        }
+
+        @Override
+        public void onLoaderReset(Loader<ArticlePageLoader.Result> loader) {
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.android.dailynewsfeed;
+
+import android.content.Context;
+import android.support.v4.content.AsyncTaskLoader;
+
+/**
+ * Builds an {@link ArticleSearchIndex} of every article kept in the {@link ArticleStore}, so
+ * searches can be answered on the device.
+ */
+public class SearchIndexLoader extends AsyncTaskLoader<ArticleSearchIndex> {
+
+    /**
+     * The index once it has been built
+     */
+    private ArticleSearchIndex index;
+
+    /**
+     * Constructs a new {@link SearchIndexLoader}.
+     *
+     * @param context of the activity
+     */
+    public SearchIndexLoader(Context context) {
+        super(context);
+    }
+
+    @Override
+    public ArticleSearchIndex loadInBackground() {
+        ArticleSearchIndex index = new ArticleSearchIndex();
+        index.addAll(ArticleStore.getInstance(getContext()).loadAll());
+        return index;
+    }
+
+    @Override
+    public void deliverResult(ArticleSearchIndex data) {
+        if (isReset()) {
+            return;
+        }
+        index = data;
+        if (isStarted()) {
+            super.deliverResult(data);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        // Hand over the index already built, e.g. after a rotation
+        if (index != null) {
+            deliverResult(index);
+        } else {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        onStopLoading();
+        index = null;
+    }
+}
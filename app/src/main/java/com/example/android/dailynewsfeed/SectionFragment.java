@@ -2,13 +2,9 @@ package com.example.android.dailynewsfeed;
 
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
-import android.net.Uri;
 import android.os.Bundle;
-import android.os.Handler;
-import android.preference.PreferenceManager;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.LoaderManager;
 import android.support.v4.app.LoaderManager.LoaderCallbacks;
@@ -17,30 +13,55 @@ import android.support.v4.widget.SwipeRefreshLayout;
 import android.support.v7.widget.DividerItemDecoration;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
-import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
-import java.util.ArrayList;
 import java.util.List;
 
 
 /**
- * A simple {@link Fragment} subclass.
+ * A simple {@link Fragment} subclass showing the articles of a section.
+ * <p>
+ * The adapter, its rows and the loaders belong to the fragment rather than to its view, so a tab
+ * whose view has been released while the user was on other tabs shows its articles again as soon
+ * as its view is created, without loading them again.
+ * <p>
+ * When the search settings change, the tab reloads only if the urls of its query change, and
+ * the pages of its previous query are dropped from the {@link RequestRegistry}.
  */
-public class SectionFragment extends Fragment implements LoaderCallbacks<List<Article>>, SwipeRefreshLayout.OnRefreshListener {
+public class SectionFragment extends Fragment implements LoaderCallbacks<List<ArticleItem>>,
+        SwipeRefreshLayout.OnRefreshListener, PrefetchScrollListener.Callback,
+        SettingsRepository.Listener {
 
-    /**
-     * Base url for query
-     */
-    private static final String BASE_URL = "https://content.guardianapis.com/search?";
     /**
      * Constant value for the article loader ID
      */
     private static final int ARTICLE_LOADER_ID = 0;
+    /**
+     * Constant value for the loader ID of the pages after the first one
+     */
+    private static final int NEXT_PAGE_LOADER_ID = 1;
+    /**
+     * Number of rows before the end of the list at which the next page is requested
+     */
+    private static final int PREFETCH_DISTANCE = 10;
+    /**
+     * Number of rows kept around the rows on screen, the others are read again from the
+     * snapshots of their pages when they scroll back into view
+     */
+    private static final int WINDOW_SIZE = 60;
+    /**
+     * Key of the section id in the arguments of the fragment
+     */
+    private static final String SECTION_ARG = "section";
+    /**
+     * Key of the page number in the arguments of the next page loader
+     */
+    private static final String PAGE_ARG = "page";
     /**
      * Adapter for the list of articles
      */
@@ -53,6 +74,10 @@ public class SectionFragment extends Fragment implements LoaderCallbacks<List<Ar
      * View layout
      */
     private View view;
+    /**
+     * List of the articles
+     */
+    private RecyclerView recyclerView;
     /**
      * Swipe refresh layout for refreshing view layout
      */
@@ -61,6 +86,58 @@ public class SectionFragment extends Fragment implements LoaderCallbacks<List<Ar
      * Section name extracted from fragment pager adapter
      */
     private String section;
+    /**
+     * Query of the articles shown, null until the article loader has delivered them
+     */
+    private SectionQuery query;
+    /**
+     * Query the next article loader created reloads, null to build it from the settings
+     */
+    private SectionQuery refreshQuery;
+    /**
+     * Number of the next page to load
+     */
+    private int nextPage;
+    /**
+     * Whether the API has more pages for the query
+     */
+    private boolean hasMorePages;
+    /**
+     * Whether the next page is being loaded
+     */
+    private boolean loadingNextPage;
+    /**
+     * Rows last delivered by the article loader and shown in the adapter
+     */
+    private List<ArticleItem> shownData;
+    /**
+     * Callbacks of the next page loader
+     */
+    private final LoaderCallbacks<ArticlePageLoader.Result> nextPageCallbacks = new NextPageCallbacks();
+    /**
+     * Starts the article loader, or connects the view to it, if the fragment has a view
+     */
+    private final Runnable initArticleLoader = new Runnable() {
+        @Override
+        public void run() {
+            if (view != null) {
+                getLoaderManager().initLoader(ARTICLE_LOADER_ID, null, SectionFragment.this);
+            }
+        }
+    };
+
+    /**
+     * Create the fragment of a section
+     *
+     * @param section id of the section, e.g. "world"
+     */
+    public static SectionFragment newInstance(String section) {
+        Bundle b = new Bundle();
+        b.putString(SECTION_ARG, section);
+        SectionFragment fragment = new SectionFragment();
+        fragment.setArguments(b);
+        return fragment;
+    }
 
     /**
      * Obtain section name from fragment pager adapter
@@ -72,8 +149,18 @@ public class SectionFragment extends Fragment implements LoaderCallbacks<List<Ar
         super.onCreate(savedInstanceState);
         Bundle b = getArguments();
         if (b != null) {
-            section = b.getString("section");
+            section = b.getString(SECTION_ARG);
         }
+        // Create adapter keeping the rows around the ones on screen. It outlives the views of
+        // the fragment
+        adapter = new ArticleAdapter(getContext(), WINDOW_SIZE);
+        SettingsRepository.getInstance(getContext()).addListener(this);
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        SettingsRepository.getInstance(getContext()).removeListener(this);
     }
 
     @Override
@@ -90,39 +177,86 @@ public class SectionFragment extends Fragment implements LoaderCallbacks<List<Ar
         mEmptyStateTextView = (TextView) view.findViewById(R.id.empty_state_text);
 
         // Find reference to the recyclerView in the layout
-        RecyclerView recyclerView = (RecyclerView) view.findViewById(R.id.recycler_view);
+        recyclerView = (RecyclerView) view.findViewById(R.id.recycler_view);
         recyclerView.setHasFixedSize(true);
+        // Reuse the row views released by the lists of other tabs
+        Host host = getHost();
+        if (host != null) {
+            recyclerView.setRecycledViewPool(host.getRowViewPool());
+        }
 
         // Set layout manager to position the items
-        RecyclerView.LayoutManager layoutManager = new LinearLayoutManager(getContext());
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
         recyclerView.setLayoutManager(layoutManager);
 
-        // Create adapter passing in the sample user data
-        adapter = new ArticleAdapter(getContext(), new ArrayList<Article>());
+        // Load the next page while the user is still scrolling through the current one
+        recyclerView.addOnScrollListener(
+                new PrefetchScrollListener(layoutManager, PREFETCH_DISTANCE, this));
 
         // Attach the adapter to the recyclerview to populate items
         recyclerView.setAdapter(adapter);
+        if (shownData != null) {
+            // The articles are still here from before the view was released
+            view.findViewById(R.id.progress_bar).setVisibility(View.GONE);
+        }
 
         // Displays dividers between each item within the list
         RecyclerView.ItemDecoration itemDecoration = new
                 DividerItemDecoration(getContext(), DividerItemDecoration.VERTICAL);
         recyclerView.addItemDecoration(itemDecoration);
 
-        // Check internet connection and start loader to fetch book data and update the adapter.
-        // If there is a network connection, fetch data
-        if (isConnected()) {
-            LoaderManager loadermanager = getLoaderManager();
-            loadermanager.initLoader(ARTICLE_LOADER_ID, null, this);
-
+        // Start loader to fetch article data and update the adapter. The loader shows the
+        // articles stored on the device first, so it also runs without internet connection. A
+        // tab next to the shown one waits until the shown one has drawn its first articles, so
+        // it does not compete with it during startup
+        if (host != null && !getUserVisibleHint()) {
+            host.runAfterStartup(initArticleLoader);
         } else {
-            ProgressBar progressBar = (ProgressBar) view.findViewById(R.id.progress_bar);
-            progressBar.setVisibility(View.GONE);
-            mEmptyStateTextView.setText(getString(R.string.no_internet_connection));
+            initArticleLoader.run();
         }
         // Inflate the layout for this fragment
         return view;
     }
 
+    /**
+     * Start loading right away when the user swipes to the tab before it was allowed to load, and
+     * tell the loader whether the tab is shown
+     */
+    @Override
+    public void setUserVisibleHint(boolean isVisibleToUser) {
+        super.setUserVisibleHint(isVisibleToUser);
+        // The loader of a tab created offscreen keeps the visibility it was created with
+        if (isAdded()) {
+            Loader<List<ArticleItem>> loader = getLoaderManager().getLoader(ARTICLE_LOADER_ID);
+            if (loader != null) {
+                ((ArticleLoader) loader).setVisible(isVisibleToUser);
+            }
+        }
+        if (isVisibleToUser) {
+            initArticleLoader.run();
+        }
+    }
+
+    /**
+     * Release the views, keeping the adapter and its rows for the next view of the fragment
+     */
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // Hands the row views over to the pool shared with the other tabs
+        recyclerView.setAdapter(null);
+        recyclerView = null;
+        swipeRefreshLayout = null;
+        mEmptyStateTextView = null;
+        view = null;
+    }
+
+    /**
+     * @return the activity showing the tab if it shares its resources with the tabs, or null
+     */
+    private Host getHost() {
+        return getActivity() instanceof Host ? (Host) getActivity() : null;
+    }
     /**
      * Check if there is internet connection
      */
@@ -132,96 +266,224 @@ public class SectionFragment extends Fragment implements LoaderCallbacks<List<Ar
         return (activeNetwork != null && activeNetwork.isConnectedOrConnecting());
     }
 
+    @Override
+    public Loader<List<ArticleItem>> onCreateLoader(int id, Bundle args) {
+        // Create a new loader for the first page of the query, fetched straight away if this tab
+        // is shown and together with the other tabs otherwise. Unless it refreshes the query of
+        // the previous loader, it reads the settings in the background
+        SectionQuery reloaded = refreshQuery;
+        refreshQuery = null;
+        return new ArticleLoader(getContext(), section, reloaded, getUserVisibleHint());
+    }
 
     @Override
-    public Loader<List<Article>> onCreateLoader(int id, Bundle args) {
-        // Get parameter from shared preferences
-        SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(getContext());
-        String orderBy = sharedPreferences.getString(
-                getString(R.string.settings_order_by_key),
-                getString(R.string.settings_order_by_default));
-        String productionOffice = sharedPreferences.getString(
-                getString(R.string.settings_production_by_key),
-                getString(R.string.settings_production_by_default));
-        String searchTerm = sharedPreferences.getString(
-                getString(R.string.settings_search_term_key), "");
+    public void onLoadFinished(Loader<List<ArticleItem>> loader, List<ArticleItem> data) {
+        // The loader hands its articles over again to a new view of the fragment, which the
+        // adapter already shows together with the next pages
+        if (data == null || data != shownData) {
+            shownData = data;
+            query = ((ArticleLoader) loader).getQuery();
 
-        // Create query uri and add on parameter
-        Uri baseUri = Uri.parse(BASE_URL);
-        Uri.Builder uriBuider = baseUri.buildUpon();
+            // Pages loaded after the previous first page no longer follow on from this one
+            getLoaderManager().destroyLoader(NEXT_PAGE_LOADER_ID);
+            loadingNextPage = false;
+            nextPage = 2;
+            hasMorePages = data != null && data.size() >= QueryUtils.PAGE_SIZE;
 
-        uriBuider.appendQueryParameter("format", "json");
-        if (!TextUtils.isEmpty(section)) {
-            uriBuider.appendQueryParameter("section", section);
+            // Show the loaded list of {@link Article}s, even when the articles come from the
+            // device without internet connection. Only the rows that differ from the shown
+            // articles are updated
+            adapter.submitList(data);
         }
-        if (!TextUtils.isEmpty(productionOffice)) {
-            uriBuider.appendQueryParameter("production-office", productionOffice);
+        if (view == null) {
+            return;
         }
-        if (!TextUtils.isEmpty(productionOffice)) {
-            uriBuider.appendQueryParameter("production-office", productionOffice);
-        }
-        if (!TextUtils.isEmpty(searchTerm)) {
-            uriBuider.appendQueryParameter("q", searchTerm);
-        }
-        uriBuider.appendQueryParameter("show-fields", "all");
-        uriBuider.appendQueryParameter("order-by", orderBy);
-        uriBuider.appendQueryParameter("api-key", "test");
 
-        // Create a new loader for the query url
-        return new ArticleLoader(getContext(), uriBuider.toString());
-    }
+        // A refresh ends when the Guardian API has answered, not when the stored articles shown
+        // in the meantime arrive
+        if (!((ArticleLoader) loader).isRevalidating()) {
+            swipeRefreshLayout.setRefreshing(false);
+        }
 
-    @Override
-    public void onLoadFinished(Loader<List<Article>> loader, List<Article> data) {
         // Hide relative layout with progress bar because the data has been loaded
         ProgressBar progressBar = (ProgressBar) view.findViewById(R.id.progress_bar);
         progressBar.setVisibility(View.GONE);
+        if (data != null && !data.isEmpty()) {
+            reportFirstDraw();
+        }
 
-        // Clear the adapter of previous earthquake data
-        adapter.clear();
-
-        // Check if there is internet connection
-        if (isConnected()) {
-            // IF there is a valid list of {@link Article}s, then add them to the adapter's
-            // data set This will trigger the ListView to update. Else, show error message
-            if (data != null && !data.isEmpty()) {
-                mEmptyStateTextView.setVisibility(View.GONE);
-                // Update recyclerView
-                adapter.addall(data);
-            } else {
-                // Set empty state text to display "No book found."
-                mEmptyStateTextView.setText(getString(R.string.no_news_found));
-            }
+        // IF there is a valid list of {@link Article}s, hide the empty state text. Else, show
+        // error message
+        if (data != null && !data.isEmpty()) {
+            mEmptyStateTextView.setVisibility(View.GONE);
+        } else if (isConnected()) {
+            // Set empty state text to display "No news found."
+            mEmptyStateTextView.setText(getString(R.string.no_news_found));
         } else {
             // Set empty state text to display "No internet connection."
             mEmptyStateTextView.setText(getString(R.string.no_internet_connection));
         }
     }
 
+    /**
+     * Tell the activity when the list is about to be drawn with the articles
+     */
+    private void reportFirstDraw() {
+        final Host host = getHost();
+        if (host == null) {
+            return;
+        }
+        final ViewTreeObserver observer = recyclerView.getViewTreeObserver();
+        observer.addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                if (observer.isAlive()) {
+                    observer.removeOnPreDrawListener(this);
+                }
+                host.onArticlesDrawn();
+                return true;
+            }
+        });
+    }
+
     @Override
-    public void onLoaderReset(Loader<List<Article>> loader) {
+    public void onLoaderReset(Loader<List<ArticleItem>> loader) {
+        shownData = null;
         adapter.clear();
+        if (swipeRefreshLayout != null) {
+            swipeRefreshLayout.setRefreshing(false);
+        }
+    }
+
+    @Override
+    public boolean canLoadNextPage() {
+        return query != null && hasMorePages && !loadingNextPage && isConnected();
     }
 
     /**
-     * Refresh the view and restart loader
+     * Start loading the next page, appended to the list when it arrives
+     */
+    @Override
+    public void loadNextPage() {
+        loadingNextPage = true;
+        Bundle args = new Bundle();
+        args.putInt(PAGE_ARG, nextPage);
+        getLoaderManager().restartLoader(NEXT_PAGE_LOADER_ID, args, nextPageCallbacks);
+    }
+
+    /**
+     * Refresh the view and restart loader. The refresh indicator stays until the loader
+     * delivers the answer of the Guardian API.
      */
     @Override
     public void onRefresh() {
         if (isConnected()) {
+            // Reload the query of the loader, which is null if it has not read the settings yet.
+            // Ask the Guardian API again rather than for the page loaded a moment ago. Restarting
+            // cancels the load in progress, which aborts its requests
             LoaderManager loadermanager = getLoaderManager();
+            Loader<List<ArticleItem>> loader = loadermanager.getLoader(ARTICLE_LOADER_ID);
+            refreshQuery = loader != null ? ((ArticleLoader) loader).getQuery() : null;
+            if (refreshQuery != null) {
+                QueryUtils.getRequestRegistry(getContext()).invalidate(refreshQuery.url());
+            }
             loadermanager.restartLoader(ARTICLE_LOADER_ID, null, this);
 
         } else {
             ProgressBar progressBar = (ProgressBar) view.findViewById(R.id.progress_bar);
             progressBar.setVisibility(View.GONE);
             mEmptyStateTextView.setText(getString(R.string.no_internet_connection));
+            swipeRefreshLayout.setRefreshing(false);
         }
-        new Handler().postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                swipeRefreshLayout.setRefreshing(false);
+    }
+
+    /**
+     * Reload the articles if the new settings change the query of the loader
+     */
+    @Override
+    public void onSettingsChanged(QuerySettings previous, QuerySettings settings) {
+        Loader<List<ArticleItem>> loader = getLoaderManager().getLoader(ARTICLE_LOADER_ID);
+        if (loader == null) {
+            // The loader reads the new settings once it is created
+            return;
+        }
+        // Null if the loader has not read the settings yet, restarting it is then cheap
+        SectionQuery loaded = ((ArticleLoader) loader).getQuery();
+        if (loaded != null) {
+            if (loaded.getSettings().equals(settings)) {
+                return;
+            }
+            // The pages of the previous query are no longer shown
+            RequestRegistry registry = QueryUtils.getRequestRegistry(getContext());
+            registry.invalidate(loaded.url());
+            for (int page = 2; page < nextPage; page++) {
+                registry.invalidate(loaded.url(page));
             }
-        }, 5000);
+        }
+
+        getLoaderManager().destroyLoader(NEXT_PAGE_LOADER_ID);
+        loadingNextPage = false;
+        if (swipeRefreshLayout != null) {
+            swipeRefreshLayout.setRefreshing(true);
+        }
+        getLoaderManager().restartLoader(ARTICLE_LOADER_ID, null, this);
+    }
+
+    /**
+     * Implemented by the activity showing the tabs, to share resources between them
+     */
+    public interface Host {
+
+        /**
+         * @return pool of row views shared by the lists of every tab
+         */
+        RecyclerView.RecycledViewPool getRowViewPool();
+
+        /**
+         * Run work the shown tab does not need once it has drawn its first articles, right away
+         * if it has
+         */
+        void runAfterStartup(Runnable task);
+
+        /**
+         * Called each time the list of a tab is about to be drawn with its articles
+         */
+        void onArticlesDrawn();
+    }
+
+    /**
+     * Appends the pages after the first one to the list
+     */
+    private class NextPageCallbacks implements LoaderCallbacks<ArticlePageLoader.Result> {
+
+        @Override
+        public Loader<ArticlePageLoader.Result> onCreateLoader(int id, Bundle args) {
+            return new ArticlePageLoader(getContext(), query.url(args.getInt(PAGE_ARG)));
+        }
+
+        @Override
+        public void onLoadFinished(Loader<ArticlePageLoader.Result> loader,
+                                   ArticlePageLoader.Result result) {
+            if (!loadingNextPage) {
+                return;
+            }
+            loadingNextPage = false;
+            ArticlePage page = result.getPage();
+            if (result.getItems() == null || page.getPages() == 0) {
+                // The request failed, try the same page again on the next scroll
+                return;
+            }
+            if (!adapter.appendPage(result.getItems())) {
+                // The refreshed first page is not shown yet, load this page again later
+                return;
+            }
+            nextPage++;
+            hasMorePages = page.hasNextPage();
+        }
+
+        @Override
+        public void onLoaderReset(Loader<ArticlePageLoader.Result> loader) {
+            loadingNextPage = false;
+        }
     }
 }
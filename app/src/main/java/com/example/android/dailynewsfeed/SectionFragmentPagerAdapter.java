@@ -1,21 +1,30 @@
 package com.example.android.dailynewsfeed;
 
 import android.content.Context;
-import android.os.Bundle;
+import android.content.res.Resources;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
 import android.support.v4.app.FragmentPagerAdapter;
 
 /**
- * {@link SectionFragmentPagerAdapter} is a {@link FragmentPagerAdapter} that can provide the
- * layout for each list item based on a data source which is a list of {@link Article} objects.
+ * {@link SectionFragmentPagerAdapter} is a {@link FragmentPagerAdapter} that provides a
+ * {@link SectionFragment} for each section listed in the section_keys array, titled by the
+ * section_titles array.
+ * <p>
+ * Fragments of the tabs away from the shown one are detached rather than destroyed: their views
+ * are released, while the fragments keep their loaders and rows, so swiping back to a tab shows
+ * its articles without loading them again.
  */
 public class SectionFragmentPagerAdapter extends FragmentPagerAdapter {
 
     /**
-     * Context of the app
+     * Ids of the sections, in tab order
      */
-    private Context context;
+    private final String[] sectionKeys;
+    /**
+     * Titles of the tabs
+     */
+    private final String[] sectionTitles;
 
     /**
      * Create a new {@link SectionFragmentPagerAdapter} object.
@@ -26,7 +35,9 @@ public class SectionFragmentPagerAdapter extends FragmentPagerAdapter {
      */
     public SectionFragmentPagerAdapter(Context context, FragmentManager fm) {
         super(fm);
-        this.context = context;
+        Resources resources = context.getResources();
+        sectionKeys = resources.getStringArray(R.array.section_keys);
+        sectionTitles = resources.getStringArray(R.array.section_titles);
     }
 
     /**
@@ -37,42 +48,7 @@ public class SectionFragmentPagerAdapter extends FragmentPagerAdapter {
      */
     @Override
     public Fragment getItem(int position) {
-        Bundle b = new Bundle();
-        switch (position) {
-            case 0:
-                b.putString("section", context.getString(R.string.section_world_key));
-                break;
-            case 1:
-                b.putString("section", context.getString(R.string.section_politics_key));
-                break;
-            case 2:
-                b.putString("section", context.getString(R.string.section_business_key));
-                break;
-            case 3:
-                b.putString("section", context.getString(R.string.section_technology_key));
-                break;
-            case 4:
-                b.putString("section", context.getString(R.string.section_science_key));
-                break;
-            case 5:
-                b.putString("section", context.getString(R.string.section_sport_key));
-                break;
-            case 6:
-                b.putString("section", context.getString(R.string.section_culture_key));
-                break;
-            case 7:
-                b.putString("section", context.getString(R.string.section_lifeandstyle_key));
-                break;
-            case 8:
-                b.putString("section", context.getString(R.string.section_fashion_key));
-                break;
-            default:
-                b.putString("section", context.getString(R.string.section_travel_key));
-                break;
-        }
-        SectionFragment fragment = new SectionFragment();
-        fragment.setArguments(b);
-        return fragment;
+        return SectionFragment.newInstance(sectionKeys[position]);
     }
 
     /**
@@ -80,7 +56,7 @@ public class SectionFragmentPagerAdapter extends FragmentPagerAdapter {
      */
     @Override
     public int getCount() {
-        return 9;
+        return sectionKeys.length;
     }
 
     /**
@@ -91,27 +67,6 @@ public class SectionFragmentPagerAdapter extends FragmentPagerAdapter {
      */
     @Override
     public CharSequence getPageTitle(int position) {
-        switch (position) {
-            case 0:
-                return context.getString(R.string.section_world_key);
-            case 1:
-                return context.getString(R.string.section_politics_key);
-            case 2:
-                return context.getString(R.string.section_business_key);
-            case 3:
-                return context.getString(R.string.section_technology_key);
-            case 4:
-                return context.getString(R.string.section_science_key);
-            case 5:
-                return context.getString(R.string.section_sport_key);
-            case 6:
-                return context.getString(R.string.section_culture_key);
-            case 7:
-                return context.getString(R.string.section_lifeandstyle_title);
-            case 8:
-                return context.getString(R.string.section_fashion_key);
-            default:
-                return context.getString(R.string.section_travel_key);
-        }
+        return sectionTitles[position];
     }
 }
@@ -0,0 +1,155 @@
+package com.example.android.dailynewsfeed;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SectionSyncService} refreshes the first page of every section into the
+ * {@link ArticleStore} in the background while the device is charging on an unmetered network, so
+ * a tab opened later shows its articles from the device straight away.
+ * <p>
+ * Each run is a one-shot job that schedules the next one a jittered interval later, so devices do
+ * not all call the Guardian API at the same moment. A run that fails is retried with exponential
+ * backoff. Needs JobScheduler, so there is no background refresh before Lollipop.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class SectionSyncService extends JobService {
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = SectionSyncService.class.getSimpleName();
+    /**
+     * Id of the sync job
+     */
+    private static final int JOB_ID = 1;
+    /**
+     * Time between two runs
+     */
+    private static final long SYNC_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(3);
+    /**
+     * Largest time a run is moved earlier or later
+     */
+    private static final long SYNC_JITTER_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    /**
+     * Wait before retrying a failed run, doubled on each further failure
+     */
+    private static final long INITIAL_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final Random RANDOM = new Random();
+
+    /**
+     * Thread running the current sync, or null
+     */
+    private Thread syncThread;
+
+    /**
+     * Schedule the sync unless it is already scheduled
+     *
+     * @param context any context of the app
+     */
+    public static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+        JobScheduler jobScheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        for (JobInfo job : jobScheduler.getAllPendingJobs()) {
+            if (job.getId() == JOB_ID) {
+                return;
+            }
+        }
+        scheduleNext(context);
+    }
+
+    /**
+     * Schedule the next run about {@link #SYNC_INTERVAL_MILLIS} from now
+     */
+    private static void scheduleNext(Context context) {
+        long jitter = (long) ((RANDOM.nextDouble() * 2 - 1) * SYNC_JITTER_MILLIS);
+        JobInfo job = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, SectionSyncService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setRequiresCharging(true)
+                .setMinimumLatency(SYNC_INTERVAL_MILLIS + jitter)
+                .setBackoffCriteria(INITIAL_BACKOFF_MILLIS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setPersisted(true)
+                .build();
+        JobScheduler jobScheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler.schedule(job) != JobScheduler.RESULT_SUCCESS) {
+            Log.e(LOG_TAG, "Error scheduling the sync");
+        }
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        syncThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                boolean synced = sync(getApplicationContext());
+                if (Thread.currentThread().isInterrupted()) {
+                    // onStopJob has already asked for the job to be run again
+                    return;
+                }
+                // A failed run is retried with backoff, a successful one schedules the next run
+                jobFinished(params, !synced);
+                if (synced) {
+                    scheduleNext(getApplicationContext());
+                }
+            }
+        }, LOG_TAG);
+        syncThread.setPriority(Thread.MIN_PRIORITY);
+        syncThread.start();
+        // The sync goes on in the background
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The constraints no longer hold, stop and run again later
+        if (syncThread != null) {
+            syncThread.interrupt();
+            syncThread = null;
+        }
+        return true;
+    }
+
+    /**
+     * Refresh the first page of every section, with the search settings, into the store
+     *
+     * @param context any context of the app
+     * @return whether every section has been refreshed
+     */
+    static boolean sync(Context context) {
+        FetchScheduler scheduler = FetchScheduler.getInstance(context);
+        ArticleStore store = ArticleStore.getInstance(context);
+        boolean synced = true;
+        // The first fetch also fetches every other section ahead in one combined query, so the
+        // others are handed over without further requests
+        for (String section : context.getResources().getStringArray(R.array.section_keys)) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            SectionQuery query = SettingsRepository.getInstance(context).getQuery(section);
+            List<Article> articles = scheduler.fetch(query, false);
+            if (articles != null && !articles.isEmpty()) {
+                store.save(query.url(), articles);
+            } else {
+                synced = false;
+            }
+        }
+        return synced;
+    }
+}
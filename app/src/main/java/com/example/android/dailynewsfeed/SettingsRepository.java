@@ -0,0 +1,229 @@
+package com.example.android.dailynewsfeed;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link SettingsRepository} holds the search settings shared by every tab. The shared
+ * preferences are read on a background thread, first when the repository is created and again
+ * each time a search setting is edited, and kept as canonical {@link QuerySettings}.
+ * <p>
+ * Listeners hear about the settings that changed the urls of the queries, on the main thread.
+ * A change of the search term is passed on once the term has not been edited for
+ * {@link #SEARCH_TERM_DEBOUNCE_MILLIS}, so editing it several times in a row reloads the tabs
+ * once, and an edit that leaves the canonical settings as they were is not passed on at all.
+ */
+public class SettingsRepository implements SharedPreferences.OnSharedPreferenceChangeListener {
+
+    /**
+     * Time in milliseconds the search term must stay as it is before the tabs reload
+     */
+    private static final long SEARCH_TERM_DEBOUNCE_MILLIS = 1000;
+
+    /**
+     * Repository shared by the whole app
+     */
+    private static SettingsRepository instance;
+
+    /**
+     * Context of the app, to read the keys and defaults of the settings
+     */
+    private final Context context;
+    /**
+     * Thread reading the shared preferences
+     */
+    private final Executor executor = Executors.newSingleThreadExecutor();
+    /**
+     * Handler passing on the changes on the main thread
+     */
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    /**
+     * Keys of the search settings in the shared preferences
+     */
+    private final List<String> keys;
+    /**
+     * Released once the settings have been read for the first time
+     */
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    /**
+     * Listeners of the changes, only used on the main thread
+     */
+    private final List<Listener> listeners = new ArrayList<>();
+    /**
+     * Settings passed on last
+     */
+    private volatile QuerySettings settings;
+    /**
+     * Settings read after an edit and waiting to be passed on, only used on the main thread
+     */
+    private QuerySettings pending;
+    /**
+     * Passes the pending settings on
+     */
+    private final Runnable publish = new Runnable() {
+        @Override
+        public void run() {
+            QuerySettings previous = settings;
+            settings = pending;
+            pending = null;
+            for (Listener listener : new ArrayList<>(listeners)) {
+                listener.onSettingsChanged(previous, settings);
+            }
+        }
+    };
+
+    private SettingsRepository(final Context context) {
+        this.context = context;
+        keys = Arrays.asList(context.getString(R.string.settings_order_by_key),
+                context.getString(R.string.settings_production_by_key),
+                context.getString(R.string.settings_search_term_key));
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                SharedPreferences sharedPreferences =
+                        PreferenceManager.getDefaultSharedPreferences(context);
+                settings = read(sharedPreferences);
+                loaded.countDown();
+                sharedPreferences.registerOnSharedPreferenceChangeListener(
+                        SettingsRepository.this);
+            }
+        });
+    }
+
+    /**
+     * Return the repository shared by the whole app, and start reading the settings
+     *
+     * @param context any context of the app
+     */
+    public static synchronized SettingsRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new SettingsRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Return the current settings, waiting for them to be read the first time. Must not be
+     * called on the main thread.
+     *
+     * @return the settings last passed on to the listeners
+     */
+    public QuerySettings getSettings() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                loaded.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return settings;
+    }
+
+    /**
+     * Return the query of a section with the current settings. Must not be called on the main
+     * thread.
+     *
+     * @param section id of the section, e.g. "world"
+     * @return the query, whose urls ask only for the fields shown in the list
+     */
+    public SectionQuery getQuery(String section) {
+        return new SectionQuery(section, getSettings(), QueryUtils.PAGE_SIZE);
+    }
+
+    /**
+     * Hear about the changes of the settings. Must be called on the main thread.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stop hearing about the changes of the settings. Must be called on the main thread.
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Read the settings again after one of them has been edited. Runs on the main thread.
+     */
+    @Override
+    public void onSharedPreferenceChanged(final SharedPreferences sharedPreferences, String key) {
+        if (!keys.contains(key)) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final QuerySettings read = read(sharedPreferences);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onSettingsRead(read);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Pass the settings read after an edit on, once the search term has settled. Runs on the
+     * main thread.
+     */
+    private void onSettingsRead(QuerySettings read) {
+        mainHandler.removeCallbacks(publish);
+        Set<QuerySettings.Parameter> changes = read.changes(settings);
+        if (changes.isEmpty()) {
+            // Also an edit undone before it was passed on
+            pending = null;
+            return;
+        }
+        pending = read;
+        boolean searchTermOnly = changes.equals(
+                Collections.singleton(QuerySettings.Parameter.SEARCH_TERM));
+        mainHandler.postDelayed(publish, searchTermOnly ? SEARCH_TERM_DEBOUNCE_MILLIS : 0);
+    }
+
+    private QuerySettings read(SharedPreferences sharedPreferences) {
+        String orderBy = sharedPreferences.getString(
+                context.getString(R.string.settings_order_by_key),
+                context.getString(R.string.settings_order_by_default));
+        String productionOffice = sharedPreferences.getString(
+                context.getString(R.string.settings_production_by_key),
+                context.getString(R.string.settings_production_by_default));
+        String searchTerm = sharedPreferences.getString(
+                context.getString(R.string.settings_search_term_key), "");
+        return new QuerySettings(productionOffice, searchTerm, orderBy);
+    }
+
+    /**
+     * Hears about the changes of the settings
+     */
+    public interface Listener {
+
+        /**
+         * Called on the main thread when the settings have changed the urls of the queries
+         *
+         * @param previous settings the queries were built with so far
+         * @param settings new settings
+         */
+        void onSettingsChanged(QuerySettings previous, QuerySettings settings);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.android.dailynewsfeed;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link SharedCall} is work several loads wait for together, e.g. a request of a query asked for
+ * by two loaders at once. Each load {@link #join()}s the call and then waits for it with its own
+ * {@link Cancellation}: a cancelled load stops waiting straight away, and once every load has
+ * stopped waiting before the work is done, the work is cancelled through the
+ * {@link Cancellation} it was created with.
+ * <p>
+ * The thread running the work is freed only when the work is cancelled, so a load that runs it
+ * and is cancelled while other loads still wait keeps running it for them.
+ */
+class SharedCall<V> extends FutureTask<V> {
+
+    /**
+     * Cancels the work once no load waits for it
+     */
+    private final Cancellation cancellation;
+    /**
+     * Number of loads waiting for the work
+     */
+    private int callers;
+    /**
+     * Whether every load stopped waiting before the work was done, so the work is being cancelled
+     */
+    private boolean abandoned;
+
+    /**
+     * @param callable     the work, which checks cancellation
+     * @param cancellation cancelled once no load waits for the work
+     */
+    SharedCall(Callable<V> callable, Cancellation cancellation) {
+        super(callable);
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Count one more load waiting for the work. Each successful join must be followed by one
+     * call to {@link #call(Cancellation)} or {@link #await(Cancellation)}.
+     *
+     * @return false if the work has been cancelled, so the load needs a call of its own
+     */
+    synchronized boolean join() {
+        if (abandoned || cancellation.isCanceled()) {
+            return false;
+        }
+        callers++;
+        return true;
+    }
+
+    /**
+     * @return whether every load stopped waiting before the work was done
+     */
+    synchronized boolean isAbandoned() {
+        return abandoned || cancellation.isCanceled();
+    }
+
+    /**
+     * Run the work on this thread unless another load runs it, and wait for its result
+     *
+     * @param caller cancellation of the load, or null if it is never cancelled
+     * @return the result, or null if the load was cancelled first
+     */
+    V call(Cancellation caller) throws InterruptedException, ExecutionException {
+        return await(caller, true);
+    }
+
+    /**
+     * Wait for the result of the work run by another thread
+     *
+     * @param caller cancellation of the load, or null if it is never cancelled
+     * @return the result, or null if the load was cancelled first
+     */
+    V await(Cancellation caller) throws InterruptedException, ExecutionException {
+        return await(caller, false);
+    }
+
+    private V await(Cancellation caller, boolean run)
+            throws InterruptedException, ExecutionException {
+        final AtomicBoolean left = new AtomicBoolean();
+        Runnable leave = new Runnable() {
+            @Override
+            public void run() {
+                if (left.compareAndSet(false, true)) {
+                    leave();
+                }
+            }
+        };
+        if (caller != null) {
+            caller.addListener(leave);
+        }
+        try {
+            if (run) {
+                run();
+            }
+            synchronized (this) {
+                while (!isDone() && !left.get()) {
+                    wait();
+                }
+            }
+            return left.get() && !isDone() ? null : get();
+        } finally {
+            if (caller != null) {
+                caller.removeListener(leave);
+            }
+            leave.run();
+        }
+    }
+
+    /**
+     * One load stops waiting, the last one cancels the work if it is not done
+     */
+    private void leave() {
+        synchronized (this) {
+            callers--;
+            // Decided under the lock, so no load joins the work once it is to be cancelled
+            if (callers == 0 && !isDone()) {
+                abandoned = true;
+            }
+            notifyAll();
+            if (!abandoned) {
+                return;
+            }
+        }
+        // Outside the lock, as the listeners of the cancellation may take a while, e.g. closing
+        // a connection, and other loads must not wait for them in join or call
+        cancellation.cancel();
+    }
+
+    @Override
+    protected void done() {
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+}
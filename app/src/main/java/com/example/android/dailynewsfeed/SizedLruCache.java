@@ -0,0 +1,171 @@
+package com.example.android.dailynewsfeed;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link SizedLruCache} is a least recently used cache bounded by the total size of its values
+ * rather than by their number, e.g. the byte count of bitmaps. When an entry is added and the
+ * total size goes over the budget, the least recently used entries are evicted until it fits.
+ * <p>
+ * It keeps hit, miss and eviction counters so the cache can be tuned. All methods are thread
+ * safe.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+public abstract class SizedLruCache<K, V> {
+
+    /**
+     * Entries in access order, the least recently used entry first
+     */
+    private final LinkedHashMap<K, V> map = new LinkedHashMap<>(0, 0.75f, true);
+    /**
+     * Maximum total size of the values
+     */
+    private final int maxSize;
+    /**
+     * Current total size of the values
+     */
+    private int size;
+
+    private int hitCount;
+    private int missCount;
+    private int evictionCount;
+
+    /**
+     * Create a new {@link SizedLruCache}
+     *
+     * @param maxSize maximum total size of the values, in the unit returned by {@link #sizeOf}
+     */
+    public SizedLruCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Return the size of a value in the unit of the budget
+     */
+    protected abstract int sizeOf(K key, V value);
+
+    /**
+     * Called after an entry has been evicted to stay within the budget
+     */
+    protected void entryEvicted(K key, V value) {
+    }
+
+    /**
+     * Return the cached value for the key and mark it as most recently used
+     *
+     * @return cached value, or null if there is none
+     */
+    public synchronized V get(K key) {
+        V value = map.get(key);
+        if (value != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return value;
+    }
+
+    /**
+     * Cache the value for the key. A value larger than the whole budget is not cached.
+     */
+    public void put(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("key == null || value == null");
+        }
+        Map<K, V> evicted = new LinkedHashMap<>();
+        synchronized (this) {
+            int valueSize = sizeOf(key, value);
+            V previous = map.remove(key);
+            if (previous != null) {
+                size -= sizeOf(key, previous);
+            }
+            if (valueSize > maxSize) {
+                return;
+            }
+            map.put(key, value);
+            size += valueSize;
+
+            Iterator<Map.Entry<K, V>> iterator = map.entrySet().iterator();
+            while (size > maxSize && iterator.hasNext()) {
+                Map.Entry<K, V> eldest = iterator.next();
+                iterator.remove();
+                size -= sizeOf(eldest.getKey(), eldest.getValue());
+                evictionCount++;
+                evicted.put(eldest.getKey(), eldest.getValue());
+            }
+        }
+        // Notify outside the lock so subclasses can do slow work with evicted values
+        for (Map.Entry<K, V> entry : evicted.entrySet()) {
+            entryEvicted(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Remove the value cached for the key, without counting it as an eviction
+     *
+     * @return removed value, or null if there was none
+     */
+    public synchronized V remove(K key) {
+        V previous = map.remove(key);
+        if (previous != null) {
+            size -= sizeOf(key, previous);
+        }
+        return previous;
+    }
+
+    /**
+     * Remove every cached value
+     */
+    public synchronized void clear() {
+        map.clear();
+        size = 0;
+    }
+
+    /**
+     * @return current total size of the cached values
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return maximum total size of the cached values
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return number of lookups that found a value
+     */
+    public synchronized int hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of lookups that found no value
+     */
+    public synchronized int missCount() {
+        return missCount;
+    }
+
+    /**
+     * @return number of values evicted to stay within the budget
+     */
+    public synchronized int evictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("SizedLruCache[size=%d,maxSize=%d,hits=%d,misses=%d,evictions=%d]",
+                size, maxSize, hitCount, missCount, evictionCount);
+    }
+}
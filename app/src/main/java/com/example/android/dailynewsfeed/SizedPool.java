@@ -0,0 +1,134 @@
+package com.example.android.dailynewsfeed;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link SizedPool} keeps values that are no longer used so their memory can be used again
+ * instead of allocating new values, e.g. bitmaps a thumbnail can be decoded into. A value is taken
+ * out for a minimum size and handed out at most once; the smallest value large enough is taken,
+ * and none that would waste more than its requested size. Values that do not fit in the budget
+ * are left to the garbage collector.
+ * <p>
+ * It keeps hit and miss counters so the pool can be tuned. All methods are thread safe.
+ *
+ * @param <V> type of the values
+ */
+public abstract class SizedPool<V> {
+
+    /**
+     * Largest size of a value handed out, as a multiple of the requested size
+     */
+    private static final int MAX_OVERSIZE = 2;
+
+    /**
+     * Values by their size
+     */
+    private final TreeMap<Integer, ArrayDeque<V>> bySize = new TreeMap<>();
+    /**
+     * Maximum total size of the values
+     */
+    private final int maxSize;
+    /**
+     * Current total size of the values
+     */
+    private int size;
+
+    private int hitCount;
+    private int missCount;
+
+    /**
+     * Create a new {@link SizedPool}
+     *
+     * @param maxSize maximum total size of the values, in the unit returned by {@link #sizeOf}
+     */
+    public SizedPool(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Return the size of a value in the unit of the budget
+     */
+    protected abstract int sizeOf(V value);
+
+    /**
+     * Take a value of at least the given size out of the pool
+     *
+     * @param minSize size the value must have at least
+     * @return the smallest such value, or null if there is none
+     */
+    public synchronized V take(int minSize) {
+        Map.Entry<Integer, ArrayDeque<V>> entry = bySize.ceilingEntry(minSize);
+        if (entry == null || entry.getKey() / MAX_OVERSIZE > minSize) {
+            missCount++;
+            return null;
+        }
+        ArrayDeque<V> values = entry.getValue();
+        V value = values.poll();
+        if (values.isEmpty()) {
+            bySize.remove(entry.getKey());
+        }
+        size -= entry.getKey();
+        hitCount++;
+        return value;
+    }
+
+    /**
+     * Keep a value that is no longer used. It must not be used any more by the caller.
+     *
+     * @return whether the value is kept, false if it does not fit in the budget
+     */
+    public synchronized boolean put(V value) {
+        int valueSize = sizeOf(value);
+        if (size + valueSize > maxSize) {
+            return false;
+        }
+        ArrayDeque<V> values = bySize.get(valueSize);
+        if (values == null) {
+            values = new ArrayDeque<>();
+            bySize.put(valueSize, values);
+        }
+        values.add(value);
+        size += valueSize;
+        return true;
+    }
+
+    /**
+     * Remove every value
+     */
+    public synchronized void clear() {
+        bySize.clear();
+        size = 0;
+    }
+
+    /**
+     * @return current total size of the values
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return number of values handed out
+     */
+    public synchronized int hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of requests that found no value
+     */
+    public synchronized int missCount() {
+        return missCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("SizedPool[size=%d,maxSize=%d,hits=%d,misses=%d]", size, maxSize,
+                hitCount, missCount);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.android.dailynewsfeed;
+
+import android.os.SystemClock;
+import android.support.v4.os.TraceCompat;
+
+/**
+ * {@link StartupTrace} marks the phases of a cold start, both as sections of a systrace, e.g.
+ * captured with {@code python systrace.py -a com.example.android.dailynewsfeed}, and as timers
+ * of {@link Metrics} under the name of the phase. A phase must end on the thread it began on.
+ * <p>
+ * It also keeps the time the application was created, the origin of the time to the first
+ * article.
+ */
+public final class StartupTrace {
+
+    /**
+     * Uptime in milliseconds when the application was created, 0 before
+     */
+    private static volatile long applicationStart;
+
+    /**
+     * Meant to hold static methods only.
+     */
+    private StartupTrace() {
+    }
+
+    /**
+     * Remember that the application is being created now
+     */
+    static void markApplicationStart() {
+        applicationStart = SystemClock.uptimeMillis();
+    }
+
+    /**
+     * @return milliseconds since the application was created, or -1 if it is not known
+     */
+    public static long sinceApplicationStart() {
+        long start = applicationStart;
+        return start == 0 ? -1 : SystemClock.uptimeMillis() - start;
+    }
+
+    /**
+     * Begin a phase on the calling thread
+     *
+     * @param name of the phase, one of the startup timers of {@link Metrics}
+     * @return start time to pass to {@link #end(String, long)}
+     */
+    public static long begin(String name) {
+        TraceCompat.beginSection(name);
+        return Metrics.start();
+    }
+
+    /**
+     * End the phase begun last on the calling thread
+     *
+     * @param name  of the phase
+     * @param start returned by {@link #begin(String)}
+     */
+    public static void end(String name, long start) {
+        Metrics.stop(name, start);
+        TraceCompat.endSection();
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.android.dailynewsfeed;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.text.TextUtils;
+import android.util.Log;
+import android.widget.ImageView;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ThumbnailLoader} downloads article thumbnails on a small pool of background threads and
+ * sets them on the {@link ImageView} that asked for them, so the article list can be shown before
+ * any image has arrived. Thumbnails are looked up in the {@link BitmapCache} first, in memory on
+ * the main thread and on disk in the background.
+ * <p>
+ * Requests for the same url are coalesced into one download, and a request is cancelled once none
+ * of its image views wants it any more: a queued request never starts, and a running one has its
+ * connection closed, so the download stops and nothing is decoded. All bookkeeping happens on
+ * the main thread.
+ * <p>
+ * Every bitmap shown is retained in the {@link BitmapCache} until its image view is cancelled,
+ * so the cache does not decode another thumbnail into a bitmap that is still on screen.
+ */
+public class ThumbnailLoader {
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = ThumbnailLoader.class.getSimpleName();
+    /**
+     * Maximum number of thumbnails downloaded at the same time
+     */
+    private static final int MAX_CONCURRENT_DOWNLOADS = 3;
+    /**
+     * Time an idle download thread is kept alive in seconds
+     */
+    private static final int KEEP_ALIVE_SECONDS = 30;
+    /**
+     * Read time out in milliseconds
+     */
+    private static final int READ_TIMEOUT = 10000;
+    /**
+     * Connect time out in milliseconds
+     */
+    private static final int CONNECT_TIMEOUT = 15000;
+
+    /**
+     * Loader shared by every section so the download limit applies to the whole app
+     */
+    private static ThumbnailLoader instance;
+
+    /**
+     * Memory and disk cache of the thumbnails
+     */
+    private final BitmapCache bitmapCache;
+    /**
+     * Bounded pool running the downloads
+     */
+    private final ThreadPoolExecutor executor;
+    /**
+     * Handler delivering decoded thumbnails on the main thread
+     */
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    /**
+     * Requests that are queued or downloading, keyed by thumbnail url
+     */
+    private final Map<String, Request> requests = new HashMap<>();
+    /**
+     * Request each image view is currently waiting for
+     */
+    private final Map<ImageView, Request> targets = new WeakHashMap<>();
+    /**
+     * Bitmap each image view shows, retained in the cache
+     */
+    private final Map<ImageView, Bitmap> shown = new WeakHashMap<>();
+
+    private ThumbnailLoader(Context context) {
+        bitmapCache = new BitmapCache(context);
+        executor = new ThreadPoolExecutor(MAX_CONCURRENT_DOWNLOADS, MAX_CONCURRENT_DOWNLOADS,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        return new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                                runnable.run();
+                            }
+                        }, "Thumbnail #" + count.incrementAndGet());
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Return the loader shared by the whole app
+     *
+     * @param context any context of the app
+     */
+    public static synchronized ThumbnailLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new ThumbnailLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * @return cache holding the loaded thumbnails
+     */
+    public BitmapCache getBitmapCache() {
+        return bitmapCache;
+    }
+
+    /**
+     * Load the thumbnail at the given url into the image view. Any earlier request of the image
+     * view is cancelled. Must be called on the main thread.
+     *
+     * @param url       of the thumbnail, or null or empty to only cancel the earlier request
+     * @param imageView to show the thumbnail in
+     */
+    public void load(String url, ImageView imageView) {
+        cancel(imageView);
+        if (TextUtils.isEmpty(url)) {
+            return;
+        }
+
+        // Show the thumbnail right away if it has been decoded before
+        Bitmap cached = bitmapCache.getFromMemory(url);
+        if (cached != null) {
+            Metrics.increment(Metrics.THUMBNAIL_MEMORY_HIT);
+            show(imageView, cached);
+            return;
+        }
+
+        // Join a download of the same url that is already queued or running
+        Request request = requests.get(url);
+        if (request == null) {
+            request = new Request(url);
+            requests.put(url, request);
+            request.future = executor.submit(request);
+        }
+        request.imageViews.add(imageView);
+        targets.put(imageView, request);
+    }
+
+    /**
+     * Stop loading a thumbnail into the image view, e.g. because its view holder is recycled, and
+     * clear the thumbnail it shows so its bitmap can be reused. The download itself is cancelled
+     * when no other image view waits for it. Must be called on the main thread.
+     *
+     * @param imageView that no longer needs its thumbnail
+     */
+    public void cancel(ImageView imageView) {
+        Bitmap bitmap = shown.remove(imageView);
+        if (bitmap != null) {
+            // Cleared first, so the view never draws the bitmap once another thumbnail is in it
+            imageView.setImageDrawable(null);
+            bitmapCache.release(bitmap);
+        }
+
+        Request request = targets.remove(imageView);
+        if (request == null) {
+            return;
+        }
+        request.imageViews.remove(imageView);
+        if (request.imageViews.isEmpty()) {
+            requests.remove(request.url);
+            request.cancellation.cancel();
+            request.future.cancel(true);
+        }
+    }
+
+    /**
+     * Show a bitmap retained for the image view
+     */
+    private void show(ImageView imageView, Bitmap bitmap) {
+        imageView.setImageBitmap(bitmap);
+        shown.put(imageView, bitmap);
+    }
+
+    /**
+     * Hand a downloaded thumbnail to every image view still waiting for it. Runs on the main
+     * thread.
+     *
+     * @param bitmap retained for the request, or null if it could not be loaded
+     */
+    private void deliver(Request request, Bitmap bitmap) {
+        // The request was cancelled while it was being downloaded
+        if (requests.get(request.url) != request) {
+            if (bitmap != null) {
+                bitmapCache.release(bitmap);
+            }
+            return;
+        }
+        requests.remove(request.url);
+        if (bitmap == null) {
+            for (ImageView imageView : request.imageViews) {
+                targets.remove(imageView);
+            }
+            return;
+        }
+        for (ImageView imageView : request.imageViews) {
+            targets.remove(imageView);
+            bitmapCache.retain(bitmap);
+            show(imageView, bitmap);
+        }
+        bitmapCache.release(bitmap);
+    }
+
+    /**
+     * Return the thumbnail at the given url from the disk cache, or download it into the cache
+     *
+     * @param stringUrl    url of the thumbnail
+     * @param cancellation of the request
+     * @return decoded thumbnail retained for the request, or null if it could not be loaded or
+     * the request was cancelled
+     */
+    private Bitmap loadBitmap(String stringUrl, Cancellation cancellation) {
+        Bitmap bitmap = bitmapCache.getFromDisk(stringUrl);
+        if (bitmap != null || cancellation.isCanceled()) {
+            return bitmap;
+        }
+
+        long start = Metrics.start();
+        HttpURLConnection urlConnection = null;
+        Runnable abort = null;
+        InputStream inputStream = null;
+        try {
+            urlConnection = (HttpURLConnection) new URL(stringUrl).openConnection();
+            urlConnection.setReadTimeout(READ_TIMEOUT);
+            urlConnection.setConnectTimeout(CONNECT_TIMEOUT);
+            // Closing the connection stops the download, and the decoding that follows it
+            final HttpURLConnection connection = urlConnection;
+            abort = new Runnable() {
+                @Override
+                public void run() {
+                    connection.disconnect();
+                }
+            };
+            cancellation.addListener(abort);
+            inputStream = cancellation.wrap(urlConnection.getInputStream());
+            return bitmapCache.put(stringUrl, inputStream);
+        } catch (IOException e) {
+            if (!cancellation.isCanceled()) {
+                Log.e(LOG_TAG, "Error with loading thumbnail " + stringUrl, e);
+            }
+            return null;
+        } finally {
+            if (abort != null) {
+                cancellation.removeListener(abort);
+            }
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Error in closing thumbnail stream", e);
+                }
+            }
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+            // Includes storing and decoding the downloaded thumbnail
+            Metrics.stop(Metrics.THUMBNAIL_DOWNLOAD, start);
+        }
+    }
+
+    /**
+     * A download of one thumbnail url and the image views waiting for it
+     */
+    private class Request implements Runnable {
+        private final String url;
+        private final List<ImageView> imageViews = new ArrayList<>();
+        private final Cancellation cancellation = new Cancellation();
+        private Future<?> future;
+
+        Request(String url) {
+            this.url = url;
+        }
+
+        @Override
+        public void run() {
+            final Bitmap bitmap = loadBitmap(url, cancellation);
+            if (cancellation.isCanceled()) {
+                if (bitmap != null) {
+                    bitmapCache.release(bitmap);
+                }
+                return;
+            }
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    deliver(Request.this, bitmap);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.android.dailynewsfeed;
+
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks which notifications {@link ArticleDiffCallback} produces for a refresh of the list.
+ */
+public class ArticleDiffCallbackTest {
+
+    private static final int ARTICLES = 50;
+
+    @Test
+    public void refreshWithTwoChangedArticles_notifiesOnlyThoseRows() {
+        List<Article> oldArticles = articles(0, ARTICLES);
+        List<Article> newArticles = new ArrayList<>(oldArticles);
+        newArticles.set(7, updated(oldArticles.get(7)));
+        newArticles.set(31, updated(oldArticles.get(31)));
+
+        List<String> events = diff(oldArticles, newArticles);
+
+        assertEquals(2, events.size());
+        assertEquals(new HashSet<>(Arrays.asList("changed 7 1", "changed 31 1")),
+                new HashSet<>(events));
+    }
+
+    @Test
+    public void unchangedRefresh_notifiesNothing() {
+        assertEquals(0, diff(articles(0, ARTICLES), articles(0, ARTICLES)).size());
+    }
+
+    @Test
+    public void newArticleOnTop_insertsItAndRemovesTheOldestOnly() {
+        List<Article> oldArticles = articles(0, ARTICLES);
+        List<Article> newArticles = articles(-1, ARTICLES);
+
+        List<String> events = diff(oldArticles, newArticles);
+
+        // Updates are dispatched from the end of the list, so the removal comes before the insert
+        assertEquals(new HashSet<>(Arrays.asList("removed 49 1", "inserted 0 1")),
+                new HashSet<>(events));
+    }
+
+    private static List<String> diff(List<Article> oldArticles, List<Article> newArticles) {
+        final List<String> events = new ArrayList<>();
+        DiffUtil.calculateDiff(new ArticleDiffCallback(ArticleItem.fromArticles(oldArticles),
+                ArticleItem.fromArticles(newArticles)))
+                .dispatchUpdatesTo(new ListUpdateCallback() {
+                    @Override
+                    public void onInserted(int position, int count) {
+                        events.add("inserted " + position + " " + count);
+                    }
+
+                    @Override
+                    public void onRemoved(int position, int count) {
+                        events.add("removed " + position + " " + count);
+                    }
+
+                    @Override
+                    public void onMoved(int fromPosition, int toPosition) {
+                        events.add("moved " + fromPosition + " " + toPosition);
+                    }
+
+                    @Override
+                    public void onChanged(int position, int count, Object payload) {
+                        events.add("changed " + position + " " + count);
+                    }
+                });
+        return events;
+    }
+
+    /**
+     * Create articles numbered from first, newest first
+     */
+    private static List<Article> articles(int first, int count) {
+        List<Article> articles = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            articles.add(new Article("Title " + i, "Contributor " + i, "World news", "world",
+                    GuardianResponseParser.parseDate("2017-10-26T12:00:00Z"),
+                    "https://www.theguardian.com/world/" + i,
+                    "https://media.guim.co.uk/" + i + "/500.jpg"));
+        }
+        return articles;
+    }
+
+    private static Article updated(Article article) {
+        return new Article(article.getTitle() + " (updated)", article.getContributor(),
+                article.getSection(), article.getSectionId(), article.getDate(),
+                article.getWebUrl(), article.getThumbnailUrl());
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.android.dailynewsfeed;
+
+import android.view.View;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the texts prepared by {@link ArticleItem}.
+ */
+public class ArticleItemTest {
+
+    @Test
+    public void item_formatsDateAndContributor() {
+        ArticleItem item = new ArticleItem(new Article("Title", "Amanda Holpuch in New York",
+                "World news", "world",
+                GuardianResponseParser.parseDate("2017-10-26T12:00:00Z"),
+                "https://www.theguardian.com/world/1", "https://media.guim.co.uk/1/500.jpg"));
+
+        assertEquals("2017-10-26", item.getDate());
+        assertEquals("Amanda Holpuch", item.getContributor());
+        assertEquals(View.VISIBLE, item.getContributorVisibility());
+        assertEquals(View.VISIBLE, item.getThumbnailVisibility());
+    }
+
+    @Test
+    public void item_withoutContributorOrThumbnail_hidesThem() {
+        ArticleItem item = new ArticleItem(new Article("Title", "", "World news", "world",
+                GuardianResponseParser.parseDate("2017-10-26T12:00:00Z"),
+                "https://www.theguardian.com/world/1", null));
+
+        assertEquals("", item.getContributor());
+        assertEquals(View.GONE, item.getContributorVisibility());
+        assertEquals(View.GONE, item.getThumbnailVisibility());
+    }
+}
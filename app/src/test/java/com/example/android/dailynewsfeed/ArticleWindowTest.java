@@ -0,0 +1,185 @@
+package com.example.android.dailynewsfeed;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the rows of {@link ArticleWindow}, including that scrolling through a long section keeps
+ * only the rows of the window.
+ */
+public class ArticleWindowTest {
+
+    private static final int WINDOW_SIZE = 60;
+    private static final int PAGE_SIZE = 50;
+    private static final int SCROLLED_ARTICLES = 20000;
+
+    private final List<File> files = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void get_readsAppendedListsInOrder() {
+        ArticleWindow window = new ArticleWindow(3, ArticleItem.fromArticles(articles(0, 4)));
+        window.append(ArticleItem.lazyList(articles(4, 2)));
+        window.append(new ArrayList<ArticleItem>());
+        window.append(ArticleItem.fromArticles(articles(6, 5)));
+
+        assertEquals(11, window.size());
+        // Back and forth, as rows are bound while scrolling
+        for (int i : new int[]{0, 5, 10, 3, 4, 9, 1, 6, 8, 2, 7, 0, 10}) {
+            assertEquals(url(i), window.get(i).getWebUrl());
+        }
+        assertEquals(3, window.keptRowCount());
+    }
+
+    @Test
+    public void appendMissing_leavesOutShownArticles() {
+        ArticleWindow window = new ArticleWindow(WINDOW_SIZE,
+                ArticleItem.fromArticles(articles(0, 5)));
+        // Two newer articles pushed 3 and 4 onto the next page
+        List<Article> nextPage = articles(3, 5);
+
+        assertEquals(3, window.appendMissing(ArticleItem.lazyList(nextPage)));
+        assertEquals(8, window.size());
+        for (int i = 0; i < window.size(); i++) {
+            assertEquals(url(i), window.get(i).getWebUrl());
+        }
+        assertEquals(0, window.appendMissing(ArticleItem.lazyList(nextPage)));
+    }
+
+    @Test
+    public void appendMissing_keepsArticlesWhoseUrlsHashAlike() {
+        // "Aa" and "BB" have the same hash code
+        ArticleWindow window = new ArticleWindow(WINDOW_SIZE,
+                ArticleItem.fromArticles(Arrays.asList(article("Aa"))));
+
+        assertEquals(1, window.appendMissing(ArticleItem.fromArticles(
+                Arrays.asList(article("BB"), article("Aa")))));
+        assertEquals("BB", window.get(1).getWebUrl());
+    }
+
+    @Test
+    public void appendMissing_readsEachRowOnce() {
+        ArticleWindow window = new ArticleWindow(WINDOW_SIZE);
+        List<CountingRows> pages = new ArrayList<>();
+        for (int first = 0; first < 10 * PAGE_SIZE; first += PAGE_SIZE) {
+            CountingRows page = new CountingRows(ArticleItem.fromArticles(
+                    articles(first, PAGE_SIZE)));
+            pages.add(page);
+            window.appendMissing(page);
+        }
+
+        assertEquals(10 * PAGE_SIZE, window.size());
+        for (CountingRows page : pages) {
+            assertEquals(PAGE_SIZE, page.reads);
+        }
+    }
+
+    @Test
+    public void copy_isNotChangedByTheWindow() {
+        ArticleWindow window = new ArticleWindow(WINDOW_SIZE,
+                ArticleItem.fromArticles(articles(0, 5)));
+        ArticleWindow copy = window.copy();
+        window.append(ArticleItem.fromArticles(articles(5, 5)));
+
+        assertEquals(5, copy.size());
+        assertEquals(url(4), copy.get(4).getWebUrl());
+        window.clear();
+        assertEquals(0, window.size());
+        assertEquals(5, copy.size());
+    }
+
+    /**
+     * Scrolls through {@link #SCROLLED_ARTICLES} articles loaded page by page, each page spilled
+     * to a snapshot file, and checks that only the rows of the window are kept
+     */
+    @Test
+    public void scrolling_keepsOnlyTheWindow() throws IOException {
+        ArticleWindow window = new ArticleWindow(WINDOW_SIZE);
+        int bound = 0;
+        for (int first = 0; first < SCROLLED_ARTICLES; first += PAGE_SIZE) {
+            window.appendMissing(ArticleItem.lazyList(spill(articles(first, PAGE_SIZE))));
+            for (; bound < window.size(); bound++) {
+                window.get(bound);
+            }
+            assertEquals(Math.min(bound, WINDOW_SIZE), window.keptRowCount());
+        }
+
+        assertEquals(SCROLLED_ARTICLES, window.size());
+        assertEquals(url(SCROLLED_ARTICLES - 1), window.get(SCROLLED_ARTICLES - 1).getWebUrl());
+        // Scrolling back reads the row again from its snapshot
+        assertEquals(url(0), window.get(0).getWebUrl());
+        assertEquals(WINDOW_SIZE, window.keptRowCount());
+    }
+
+    /**
+     * Write articles to a snapshot file and map it, as {@link ArticleStore#spill} does
+     */
+    private List<Article> spill(List<Article> articles) throws IOException {
+        File file = File.createTempFile("page", ".snapshot");
+        files.add(file);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(ArticleSnapshot.toBytes(articles));
+        } finally {
+            out.close();
+        }
+        return ArticleSnapshot.open(file).asList();
+    }
+
+    /**
+     * Rows counting how many times they are read
+     */
+    private static class CountingRows extends AbstractList<ArticleItem> {
+        private final List<ArticleItem> rows;
+        private int reads;
+
+        CountingRows(List<ArticleItem> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public ArticleItem get(int index) {
+            reads++;
+            return rows.get(index);
+        }
+
+        @Override
+        public int size() {
+            return rows.size();
+        }
+    }
+
+    private static List<Article> articles(int first, int count) {
+        List<Article> articles = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            articles.add(new Article("Headline number " + i, "Contributor " + (i % 40)
+                    + " in London", "World news", "world", 1509019200000L - i * 60000L, url(i),
+                    i % 3 == 0 ? null : "https://media.guim.co.uk/" + i + "/500.jpg"));
+        }
+        return articles;
+    }
+
+    private static Article article(String webUrl) {
+        return new Article("Headline", null, "World news", "world", 1509019200000L, webUrl, null);
+    }
+
+    private static String url(int number) {
+        return "https://www.theguardian.com/world/2017/oct/26/article-" + number;
+    }
+}
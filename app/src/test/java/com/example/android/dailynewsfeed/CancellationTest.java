@@ -0,0 +1,250 @@
+package com.example.android.dailynewsfeed;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Restarts loads of a tab through {@link RequestRegistry} against a local stand-in for the
+ * Guardian API that streams its response slowly, and checks that cancelled loads close their
+ * connection instead of reading the response to the end.
+ */
+public class CancellationTest {
+
+    private static final String WORLD = "https://content.guardianapis.com/search?format=json"
+            + "&section=world&page-size=20&api-key=test";
+    /**
+     * Pieces the response is streamed in, one every {@link #CHUNK_INTERVAL_MILLIS}
+     */
+    private static final int CHUNKS = 40;
+    private static final long CHUNK_INTERVAL_MILLIS = 25;
+    private static final long RESPONSE_MILLIS = CHUNKS * CHUNK_INTERVAL_MILLIS;
+    private static final int RESTARTS = 8;
+    private static final long RESTART_INTERVAL_MILLIS = 50;
+
+    private HttpServer server;
+    private HttpTransport transport;
+    private ExecutorService loaders;
+    /**
+     * Responses the server sent to the end
+     */
+    private final AtomicInteger completedResponses = new AtomicInteger();
+    /**
+     * Responses the client closed before the end
+     */
+    private final AtomicInteger abortedResponses = new AtomicInteger();
+    /**
+     * Requests sent by the transport whose response has not been closed yet
+     */
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger maxActiveRequests = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/search", new SlowHandler());
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        // Sends the requests to the local server and counts those in progress
+        transport = new HttpTransport(null) {
+            @Override
+            public Response get(URL url, Cancellation cancellation) throws IOException {
+                maxActiveRequests.set(Math.max(maxActiveRequests.get(),
+                        activeRequests.incrementAndGet()));
+                Response response;
+                try {
+                    response = super.get(new URL("http", "127.0.0.1",
+                            server.getAddress().getPort(), url.getFile()), cancellation);
+                } catch (IOException e) {
+                    activeRequests.decrementAndGet();
+                    throw e;
+                }
+                return new Response(response.getCode(), new CountedInputStream(
+                        response.getBody()), response.isFromCache());
+            }
+        };
+        loaders = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        loaders.shutdownNow();
+        server.stop(0);
+    }
+
+    /**
+     * The user pulls to refresh again and again: each restart cancels the load in progress, and
+     * the new load starts once the cancelled one has returned, as the LoaderManager does
+     */
+    @Test
+    public void restartLoaderStorm_leavesOneActiveRequest() throws Exception {
+        RequestRegistry registry = new RequestRegistry(transport, 0);
+
+        Cancellation cancellation = new Cancellation();
+        Future<ArticlePage> load = load(registry, cancellation);
+        for (int i = 1; i < RESTARTS; i++) {
+            Thread.sleep(RESTART_INTERVAL_MILLIS);
+            cancellation.cancel();
+            assertTrue(load.get().getArticles().isEmpty());
+
+            cancellation = new Cancellation();
+            load = load(registry, cancellation);
+        }
+        assertEquals(2, load.get().getArticles().size());
+        waitForServer(RESTARTS);
+
+        assertEquals(1, maxActiveRequests.get());
+        assertEquals(0, activeRequests.get());
+        assertEquals(RESTARTS, registry.getRequestCount());
+        // Every cancelled load closed its connection before the end of the response
+        assertEquals(1, completedResponses.get());
+        assertEquals(RESTARTS - 1, abortedResponses.get());
+    }
+
+    /**
+     * A rotation while loading: the old loader is cancelled but the new one waits for the same
+     * request, which carries on
+     */
+    @Test
+    public void sharedRequest_carriesOnForTheLoadStillWaiting() throws Exception {
+        RequestRegistry registry = new RequestRegistry(transport, 0);
+
+        Cancellation first = new Cancellation();
+        Future<ArticlePage> firstLoad = load(registry, first);
+        Thread.sleep(RESTART_INTERVAL_MILLIS);
+        Future<ArticlePage> rotatedLoad = load(registry, new Cancellation());
+        Thread.sleep(RESTART_INTERVAL_MILLIS);
+        first.cancel();
+
+        assertEquals(2, rotatedLoad.get().getArticles().size());
+        firstLoad.get();
+        assertEquals(1, registry.getRequestCount());
+        waitForServer(1);
+        assertEquals(1, completedResponses.get());
+        assertEquals(0, abortedResponses.get());
+    }
+
+    @Test
+    public void cancel_runsListenersOnce() {
+        final AtomicInteger runs = new AtomicInteger();
+        Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+        Cancellation cancellation = new Cancellation();
+        cancellation.addListener(listener);
+        cancellation.cancel();
+        cancellation.cancel();
+        // Added after the cancellation, so run right away
+        cancellation.addListener(listener);
+
+        assertTrue(cancellation.isCanceled());
+        assertEquals(2, runs.get());
+    }
+
+    private Future<ArticlePage> load(final RequestRegistry registry,
+                                     final Cancellation cancellation) {
+        return loaders.submit(new Callable<ArticlePage>() {
+            @Override
+            public ArticlePage call() {
+                return registry.fetch(WORLD, cancellation);
+            }
+        });
+    }
+
+    /**
+     * Wait until the server has finished the given number of responses, sent or cut short
+     */
+    private void waitForServer(int responses) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2 * RESPONSE_MILLIS;
+        while (completedResponses.get() + abortedResponses.get() < responses
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(CHUNK_INTERVAL_MILLIS);
+        }
+    }
+
+    /**
+     * Counts a request as finished once its response is closed
+     */
+    private class CountedInputStream extends FilterInputStream {
+        private boolean closed;
+
+        CountedInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                activeRequests.decrementAndGet();
+            }
+            super.close();
+        }
+    }
+
+    /**
+     * Answers every search with two articles, padded and streamed in {@link #CHUNKS} pieces
+     */
+    private class SlowHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            StringBuilder json = new StringBuilder("{\"response\":{\"status\":\"ok\","
+                    + "\"currentPage\":1,\"pages\":1,\"padding\":\"");
+            // Larger than what the JDK drains in the background to keep the connection alive,
+            // 512 KB by default, so closing the response closes the connection as on Android
+            for (int i = 0; i < 1024 * 1024; i++) {
+                json.append('x');
+            }
+            json.append("\",\"results\":[{\"sectionId\":\"world\",\"sectionName\":\"World news\","
+                    + "\"webPublicationDate\":\"2017-10-26T12:00:00Z\",\"webTitle\":\"One\","
+                    + "\"webUrl\":\"https://www.theguardian.com/world/1\"},"
+                    + "{\"sectionId\":\"world\",\"sectionName\":\"World news\","
+                    + "\"webPublicationDate\":\"2017-10-26T11:00:00Z\",\"webTitle\":\"Two\","
+                    + "\"webUrl\":\"https://www.theguardian.com/world/2\"}]}}");
+            byte[] body = json.toString().getBytes("UTF-8");
+
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            int chunk = (body.length + CHUNKS - 1) / CHUNKS;
+            try {
+                for (int offset = 0; offset < body.length; offset += chunk) {
+                    Thread.sleep(CHUNK_INTERVAL_MILLIS);
+                    out.write(body, offset, Math.min(chunk, body.length - offset));
+                    out.flush();
+                }
+                out.close();
+                completedResponses.incrementAndGet();
+            } catch (IOException e) {
+                // The client closed the connection
+                abortedResponses.incrementAndGet();
+                exchange.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.android.dailynewsfeed;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link DiskCache} keeps its files under the size cap and evicts the least recently
+ * used ones.
+ */
+public class DiskCacheTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("disk-cache", "");
+        directory.delete();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static void put(DiskCache cache, String key, int bytes) throws IOException {
+        cache.put(key, new ByteArrayInputStream(new byte[bytes]));
+    }
+
+    @Test
+    public void put_overCap_evictsLeastRecentlyUsed() throws IOException {
+        DiskCache cache = new DiskCache(directory, 300);
+        put(cache, "a", 100);
+        put(cache, "b", 100);
+        put(cache, "c", 100);
+        assertNotNull(cache.get("a"));
+
+        put(cache, "d", 100);
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertEquals(300, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertEquals(3, directory.listFiles().length);
+    }
+
+    @Test
+    public void put_largerThanCap_keepsTheNewFileUntilTheNextPut() throws IOException {
+        DiskCache cache = new DiskCache(directory, 300);
+        put(cache, "a", 100);
+
+        File large = cache.put("large", new ByteArrayInputStream(new byte[500]));
+
+        assertTrue(large.exists());
+        assertEquals(500, large.length());
+        assertNull(cache.get("a"));
+        assertEquals(500, cache.size());
+
+        put(cache, "b", 100);
+
+        assertFalse(large.exists());
+        assertNull(cache.get("large"));
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    public void constructor_indexesExistingFiles() throws IOException {
+        DiskCache cache = new DiskCache(directory, 1000);
+        put(cache, "a", 100);
+        put(cache, "b", 200);
+
+        DiskCache reopened = new DiskCache(directory, 1000);
+
+        assertEquals(300, reopened.size());
+        assertNotNull(reopened.get("a"));
+        assertNotNull(reopened.get("b"));
+    }
+
+    @Test
+    public void constructor_withSmallerCap_trimsExistingFiles() throws IOException {
+        DiskCache cache = new DiskCache(directory, 1000);
+        for (int i = 0; i < 10; i++) {
+            put(cache, "key" + i, 100);
+        }
+
+        DiskCache reopened = new DiskCache(directory, 500);
+
+        assertTrue(reopened.size() <= 500);
+        assertEquals(5, directory.listFiles().length);
+    }
+
+    @Test
+    public void get_countsHitsAndMisses() throws IOException {
+        DiskCache cache = new DiskCache(directory, 1000);
+        put(cache, "a", 10);
+
+        cache.get("a");
+        cache.get("b");
+
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+}
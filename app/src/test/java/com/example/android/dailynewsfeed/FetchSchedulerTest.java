@@ -0,0 +1,238 @@
+package com.example.android.dailynewsfeed;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Populates the nine tabs through {@link FetchScheduler} and with one request per tab against a
+ * local stand-in for the Guardian API that answers after a fixed latency, counting the requests
+ * until every tab has its articles.
+ */
+public class FetchSchedulerTest {
+
+    private static final List<String> SECTIONS = Arrays.asList("world", "politics", "business",
+            "technology", "science", "sport", "culture", "lifeandstyle", "fashion");
+    private static final int PAGE_SIZE = 20;
+    private static final long LATENCY_MILLIS = 150;
+    private static final long MINUTE_MILLIS = 60 * 1000;
+    /**
+     * Articles published per section
+     */
+    private static final int ARTICLES_PER_SECTION = 200;
+
+    private HttpServer server;
+    private HttpTransport transport;
+    private ExecutorService tabs;
+    private final AtomicInteger requests = new AtomicInteger();
+    /**
+     * Section publishing ten times less often than the others, or null
+     */
+    private String quietSection;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/search", new SearchHandler());
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        // Sends the requests built for the Guardian API to the local server instead
+        transport = new HttpTransport(null) {
+            @Override
+            public Response get(URL url, Cancellation cancellation) throws IOException {
+                return super.get(new URL("http", "127.0.0.1", server.getAddress().getPort(),
+                        url.getFile()), cancellation);
+            }
+        };
+        tabs = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        tabs.shutdownNow();
+        server.stop(0);
+    }
+
+    @Test
+    public void populateAllTabs_sendsTwoRequests() throws Exception {
+        FetchScheduler scheduler = new FetchScheduler(transport, SECTIONS);
+
+        List<List<Article>> results = populateTabs(scheduler);
+        int schedulerRequests = requests.getAndSet(0);
+        List<List<Article>> baseline = populateTabs(null);
+        int baselineRequests = requests.get();
+
+        assertTabs(results);
+        assertTabs(baseline);
+        // The visible tab on its own, then every other tab in one combined query
+        assertEquals(2, schedulerRequests);
+        assertEquals(SECTIONS.size(), baselineRequests);
+        assertEquals(scheduler.getRequestCount(), schedulerRequests);
+    }
+
+    @Test
+    public void sectionShortInCombinedQuery_isFetchedOnItsOwn() throws Exception {
+        quietSection = "fashion";
+        FetchScheduler scheduler = new FetchScheduler(transport, SECTIONS);
+
+        assertTabs(populateTabs(scheduler));
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void concurrentFetchesOfSameQuery_shareOneRequest() throws Exception {
+        final FetchScheduler scheduler = new FetchScheduler(transport, SECTIONS);
+        List<Future<List<Article>>> fetches = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            fetches.add(tabs.submit(new Callable<List<Article>>() {
+                @Override
+                public List<Article> call() {
+                    return scheduler.fetch(query("world"), true);
+                }
+            }));
+        }
+
+        for (Future<List<Article>> fetch : fetches) {
+            assertEquals(PAGE_SIZE, fetch.get().size());
+        }
+        assertEquals(1, requests.get());
+    }
+
+    /**
+     * Populate the tabs the way the view pager creates them: the visible first tab and its
+     * neighbour at start, then one more tab each time the user swipes to the next one and waits
+     * for it.
+     *
+     * @param scheduler to fetch through, or null to send one request per tab
+     */
+    private List<List<Article>> populateTabs(final FetchScheduler scheduler) throws Exception {
+        List<List<Article>> results = new ArrayList<>();
+        Future<List<Article>> first = tabs.submit(fetchTab(scheduler, SECTIONS.get(0), true));
+        Future<List<Article>> second = tabs.submit(fetchTab(scheduler, SECTIONS.get(1), false));
+        results.add(first.get());
+        results.add(second.get());
+        for (int i = 2; i < SECTIONS.size(); i++) {
+            results.add(fetchTab(scheduler, SECTIONS.get(i), false).call());
+        }
+        return results;
+    }
+
+    private Callable<List<Article>> fetchTab(final FetchScheduler scheduler, final String section,
+                                             final boolean visible) {
+        return new Callable<List<Article>>() {
+            @Override
+            public List<Article> call() {
+                SectionQuery query = query(section);
+                if (scheduler != null) {
+                    return scheduler.fetch(query, visible);
+                }
+                return QueryUtils.fetchArticlePage(transport, query.url()).getArticles();
+            }
+        };
+    }
+
+    private static SectionQuery query(String section) {
+        return new SectionQuery(section, "uk", null, "newest", PAGE_SIZE);
+    }
+
+    private static void assertTabs(List<List<Article>> results) {
+        assertEquals(SECTIONS.size(), results.size());
+        for (int i = 0; i < SECTIONS.size(); i++) {
+            assertEquals(PAGE_SIZE, results.get(i).size());
+            for (Article article : results.get(i)) {
+                assertEquals(SECTIONS.get(i), article.getSectionId());
+            }
+        }
+    }
+
+    /**
+     * Answers searches for one or more sections with their newest articles, page-size at a time
+     */
+    private class SearchHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            String sectionParameter = "";
+            int pageSize = 10;
+            for (String parameter : exchange.getRequestURI().getRawQuery().split("&")) {
+                String[] pair = parameter.split("=", 2);
+                if ("section".equals(pair[0])) {
+                    sectionParameter = URLDecoder.decode(pair[1], "UTF-8");
+                } else if ("page-size".equals(pair[0])) {
+                    pageSize = Integer.parseInt(pair[1]);
+                }
+            }
+
+            // Every section publishes at the same rate except the quiet one
+            final List<long[]> articles = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            for (String section : sectionParameter.split("\\|")) {
+                int sectionIndex = SECTIONS.indexOf(section);
+                long interval = section.equals(quietSection) ? 10 * MINUTE_MILLIS : MINUTE_MILLIS;
+                for (int i = 0; i < ARTICLES_PER_SECTION; i++) {
+                    articles.add(new long[]{sectionIndex, i, now - i * interval - sectionIndex});
+                }
+            }
+            Collections.sort(articles, new Comparator<long[]>() {
+                @Override
+                public int compare(long[] a, long[] b) {
+                    return Long.compare(b[2], a[2]);
+                }
+            });
+
+            StringBuilder json = new StringBuilder("{\"response\":{\"status\":\"ok\",");
+            json.append("\"currentPage\":1,\"pages\":")
+                    .append(articles.size() / pageSize).append(",\"results\":[");
+            for (int i = 0; i < pageSize && i < articles.size(); i++) {
+                String section = SECTIONS.get((int) articles.get(i)[0]);
+                long number = articles.get(i)[1];
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"sectionId\":\"").append(section)
+                        .append("\",\"sectionName\":\"").append(section)
+                        .append("\",\"webPublicationDate\":\"2017-10-26T12:00:00Z\"")
+                        .append(",\"webTitle\":\"").append(section).append(' ').append(number)
+                        .append("\",\"webUrl\":\"https://www.theguardian.com/").append(section)
+                        .append('/').append(number)
+                        .append("\",\"fields\":{\"byline\":\"Contributor\"}}");
+            }
+            json.append("]}}");
+
+            try {
+                Thread.sleep(LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = json.toString().getBytes("UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.android.dailynewsfeed;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs {@link HttpTransport} against a local server that fails on purpose: server errors, 429
+ * with Retry-After, dropped connections and responses slower than the deadline.
+ */
+public class HttpTransportRetryTest {
+
+    private static final byte[] BODY = "{\"response\":{}}".getBytes();
+    private static final long DEADLINE_MILLIS = 600;
+
+    private HttpServer server;
+    private File cacheDirectory;
+    private final AtomicInteger requests = new AtomicInteger();
+    /**
+     * What the server does for each request in turn, the last one being repeated:
+     * a status code, "429:seconds" for 429 with Retry-After, "drop" or "slow"
+     */
+    private volatile List<String> script;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDirectory = File.createTempFile("http-cache", "");
+        cacheDirectory.delete();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new FaultHandler());
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        File[] files = cacheDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        cacheDirectory.delete();
+    }
+
+    @Test
+    public void transientFailures_areRetried() throws IOException {
+        script = Arrays.asList("503", "500", "200");
+        HttpTransport transport = new HttpTransport(null, options());
+
+        HttpTransport.Response response = transport.get(url());
+
+        assertEquals(200, response.getCode());
+        assertEquals(new String(BODY), new String(readFully(response)));
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void droppedConnection_isRetried() throws IOException {
+        script = Arrays.asList("drop", "200");
+        HttpTransport transport = new HttpTransport(null, options());
+
+        assertEquals(200, transport.get(url()).getCode());
+        // The JDK client may resend a request dropped this way once on its own
+        assertTrue(requests.get() >= 2);
+    }
+
+    @Test
+    public void tooManyRequests_waitsForRetryAfter() throws IOException {
+        script = Arrays.asList("429:1", "200");
+        HttpTransport transport = new HttpTransport(null, options().deadline(5000));
+
+        long start = System.currentTimeMillis();
+        HttpTransport.Response response = transport.get(url());
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(200, response.getCode());
+        assertEquals(2, requests.get());
+        assertTrue("retried after " + elapsed + " ms", elapsed >= 1000);
+    }
+
+    @Test
+    public void retryAfterBeyondDeadline_isNotWaitedFor() throws IOException {
+        script = Arrays.asList("429:60", "200");
+        HttpTransport transport = new HttpTransport(null, options());
+
+        long start = System.currentTimeMillis();
+        HttpTransport.Response response = transport.get(url());
+
+        assertEquals(429, response.getCode());
+        assertEquals(1, requests.get());
+        // Returned without sleeping through the 60 s asked for
+        assertTrue(System.currentTimeMillis() - start < 60 * 1000);
+    }
+
+    @Test
+    public void slowServer_givesUpAtDeadline() {
+        script = Arrays.asList("slow");
+        HttpTransport transport = new HttpTransport(null, options().timeouts(5000, 5000));
+
+        long start = System.currentTimeMillis();
+        try {
+            transport.get(url());
+            fail("Expected the deadline to pass");
+        } catch (IOException e) {
+            // Expected
+        }
+        // Gave up before the first timeout, so the deadline cut the request short
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    @Test
+    public void failingServer_opensCircuitAndServesStaleCache() throws IOException {
+        script = Arrays.asList("200");
+        HttpTransport transport = new HttpTransport(new HttpCache(cacheDirectory, 1024 * 1024),
+                options().circuitBreaker(3, 60000));
+        readFully(transport.get(url()));
+
+        // The API starts failing: the retries fail, then the stale response is served
+        script = Arrays.asList("500");
+        HttpTransport.Response response = transport.get(url());
+        assertTrue(response.isFromCache());
+        assertEquals(new String(BODY), new String(readFully(response)));
+        assertEquals(1 + 3, requests.get());
+
+        // The circuit is open, so the next load does not even ask
+        response = transport.get(url());
+        assertTrue(response.isFromCache());
+        readFully(response);
+        assertEquals(1 + 3, requests.get());
+    }
+
+    @Test
+    public void openCircuit_failsFastThenTriesAgain() throws Exception {
+        script = Arrays.asList("500");
+        HttpTransport transport = new HttpTransport(null, options().circuitBreaker(2, 200));
+
+        // Two failures open the circuit, so the third attempt is not sent
+        assertEquals(500, transport.get(url()).getCode());
+        assertEquals(2, requests.get());
+        try {
+            transport.get(url());
+            fail("Expected the open circuit to refuse the request");
+        } catch (IOException e) {
+            assertEquals(2, requests.get());
+        }
+
+        // Once the circuit has been open long enough, a trial request closes it again
+        script = Arrays.asList("200");
+        Thread.sleep(250);
+        assertEquals(200, transport.get(url()).getCode());
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void abandonedRequestSentBeforeOpening_keepsTheSingleTrial() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 100);
+        CircuitBreaker.Permit early = circuitBreaker.allowRequest(0);
+        assertEquals(CircuitBreaker.Permit.ALLOWED, early);
+        circuitBreaker.onFailure(0);
+
+        assertEquals(CircuitBreaker.Permit.TRIAL, circuitBreaker.allowRequest(200));
+        // A request sent while the circuit was closed is cancelled during the trial
+        circuitBreaker.onAbandoned(early);
+        assertEquals(CircuitBreaker.Permit.REFUSED, circuitBreaker.allowRequest(200));
+
+        circuitBreaker.onAbandoned(CircuitBreaker.Permit.TRIAL);
+        assertEquals(CircuitBreaker.Permit.TRIAL, circuitBreaker.allowRequest(200));
+    }
+
+    @Test
+    public void cancelledTrial_letsTheNextRequestTry() throws Exception {
+        script = Arrays.asList("500");
+        HttpTransport transport = new HttpTransport(null, options().circuitBreaker(1, 100));
+        assertEquals(500, transport.get(url()).getCode());
+        assertEquals(1, requests.get());
+
+        // The trial request of the half open circuit is cancelled while the server answers
+        script = Arrays.asList("slow");
+        Thread.sleep(150);
+        final Cancellation cancellation = new Cancellation();
+        Thread canceller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (requests.get() < 2) {
+                    Thread.yield();
+                }
+                cancellation.cancel();
+            }
+        });
+        canceller.start();
+        try {
+            transport.get(url(), cancellation);
+            fail("Expected the cancelled load to fail");
+        } catch (IOException e) {
+            assertTrue(cancellation.isCanceled());
+        }
+        canceller.join();
+
+        // Its cancellation says nothing about the server, so the next request is sent
+        script = Arrays.asList("200");
+        assertEquals(200, transport.get(url()).getCode());
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void parseRetryAfter_readsSecondsAndDates() {
+        long now = 1509019200000L; // Thu, 26 Oct 2017 12:00:00 GMT
+        assertEquals(120000, HttpTransport.parseRetryAfter("120", now));
+        assertEquals(30000, HttpTransport.parseRetryAfter("Thu, 26 Oct 2017 12:00:30 GMT", now));
+        assertEquals(-1, HttpTransport.parseRetryAfter("soon", now));
+        assertEquals(-1, HttpTransport.parseRetryAfter(null, now));
+    }
+
+    private static HttpTransport.Options options() {
+        return new HttpTransport.Options()
+                .maxAttempts(3)
+                .backoff(20, 100)
+                .deadline(DEADLINE_MILLIS)
+                .circuitBreaker(10, 60000);
+    }
+
+    private URL url() throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/search");
+    }
+
+    private static byte[] readFully(HttpTransport.Response response) throws IOException {
+        try {
+            InputStream body = response.getBody();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Plays the {@link #script}
+     */
+    private class FaultHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            int index = requests.getAndIncrement();
+            List<String> actions = script;
+            String action = actions.get(Math.min(index, actions.size() - 1));
+            if (action.equals("drop")) {
+                exchange.close();
+                return;
+            }
+            if (action.equals("slow")) {
+                try {
+                    Thread.sleep(3000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                action = "200";
+            }
+            if (action.startsWith("429:")) {
+                exchange.getResponseHeaders().set("Retry-After", action.substring(4));
+                action = "429";
+            }
+
+            int code = Integer.parseInt(action);
+            // Cacheable only with revalidation, so every load asks the server
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            byte[] body = code == 200 ? BODY : new byte[0];
+            exchange.sendResponseHeaders(code, body.length > 0 ? body.length : -1);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.android.dailynewsfeed;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link HttpTransport} against a local stand-in for the Guardian API that counts requests,
+ * body bytes sent and connections opened across repeated refreshes.
+ */
+public class HttpTransportTest {
+
+    private static final int REFRESHES = 5;
+    private static final String ETAG = "\"v1\"";
+
+    private HttpServer server;
+    private File cacheDirectory;
+    private byte[] payload;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+
+    @Before
+    public void setUp() throws IOException {
+        payload = readFixture("guardian_search_show_fields_all.json");
+        cacheDirectory = File.createTempFile("http-cache", "");
+        cacheDirectory.delete();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/etag", new GuardianHandler("no-cache", true));
+        server.createContext("/max-age", new GuardianHandler("max-age=60", false));
+        server.createContext("/no-store", new GuardianHandler("no-store", false));
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        File[] files = cacheDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        cacheDirectory.delete();
+    }
+
+    @Test
+    public void unchangedResponse_isRevalidatedWith304() throws IOException {
+        HttpTransport transport = new HttpTransport(new HttpCache(cacheDirectory, 1024 * 1024));
+
+        for (int i = 0; i < REFRESHES; i++) {
+            HttpTransport.Response response = transport.get(url("/etag"));
+            assertArrayEquals(payload, readFully(response));
+            assertEquals(i > 0, response.isFromCache());
+        }
+
+        assertEquals(REFRESHES, requests.get());
+        assertEquals(REFRESHES - 1, notModified.get());
+        // Only the first refresh transfers the body, gzipped. Connections are not asserted here:
+        // the JDK client used by this test does not pool a connection after a bodiless 304.
+        assertTrue(bytesSent.get() < payload.length);
+    }
+
+    @Test
+    public void freshResponse_isServedWithoutRequest() throws IOException {
+        HttpTransport transport = new HttpTransport(new HttpCache(cacheDirectory, 1024 * 1024));
+
+        for (int i = 0; i < REFRESHES; i++) {
+            assertArrayEquals(payload, readFully(transport.get(url("/max-age"))));
+        }
+
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void uncacheableResponse_reusesConnection() throws IOException {
+        HttpTransport transport = new HttpTransport(new HttpCache(cacheDirectory, 1024 * 1024));
+
+        for (int i = 0; i < REFRESHES; i++) {
+            HttpTransport.Response response = transport.get(url("/no-store"));
+            assertFalse(response.isFromCache());
+            assertArrayEquals(payload, readFully(response));
+        }
+
+        assertEquals(REFRESHES, requests.get());
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    public void responseClosedEarly_stillReusesConnection() throws IOException {
+        HttpTransport transport = new HttpTransport(null);
+
+        for (int i = 0; i < REFRESHES; i++) {
+            HttpTransport.Response response = transport.get(url("/no-store"));
+            // Read only the start of the body, like a parser giving up on a bad response
+            response.getBody().read(new byte[16]);
+            response.close();
+        }
+
+        assertEquals(REFRESHES, requests.get());
+        assertEquals(1, clientPorts.size());
+    }
+
+    private URL url(String path) throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    private static byte[] readFully(HttpTransport.Response response) throws IOException {
+        try {
+            return readFully(response.getBody());
+        } finally {
+            response.close();
+        }
+    }
+
+    private static byte[] readFixture(String name) throws IOException {
+        InputStream in = HttpTransportTest.class.getClassLoader().getResourceAsStream(name);
+        try {
+            return readFully(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Serves the recorded payload, gzipped when the client accepts it
+     */
+    private class GuardianHandler implements HttpHandler {
+        private final String cacheControl;
+        private final boolean withEtag;
+
+        GuardianHandler(String cacheControl, boolean withEtag) {
+            this.cacheControl = cacheControl;
+            this.withEtag = withEtag;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+            if (withEtag) {
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModified.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+            }
+
+            byte[] body = payload;
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+                gzip.write(payload);
+                gzip.close();
+                body = compressed.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+            bytesSent.addAndGet(body.length);
+        }
+    }
+}
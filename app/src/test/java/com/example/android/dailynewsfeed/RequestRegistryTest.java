@@ -0,0 +1,186 @@
+package com.example.android.dailynewsfeed;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Replays rotations and swipes between tabs through {@link RequestRegistry} against a local
+ * stand-in for the Guardian API that answers after a fixed latency, counting the requests made
+ * for each query.
+ */
+public class RequestRegistryTest {
+
+    private static final long LATENCY_MILLIS = 200;
+    private static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final String WORLD = "https://content.guardianapis.com/search?format=json"
+            + "&section=world&page-size=20&api-key=test";
+    /**
+     * The same query as {@link #WORLD}, with its parameters in another order and its host in
+     * upper case
+     */
+    private static final String WORLD_REORDERED = "https://CONTENT.guardianapis.com:443/search"
+            + "?api-key=test&page-size=20&section=world&format=json";
+    private static final String POLITICS = "https://content.guardianapis.com/search?format=json"
+            + "&section=politics&page-size=20&api-key=test";
+    private static final String WORLD_PAGE_2 = "https://content.guardianapis.com/search"
+            + "?format=json&section=world&page=2&page-size=20&api-key=test";
+
+    private HttpServer server;
+    private HttpTransport transport;
+    private ExecutorService loaders;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final ConcurrentHashMap<String, AtomicInteger> requestsByQuery =
+            new ConcurrentHashMap<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/search", new SearchHandler());
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        // Sends the requests built for the Guardian API to the local server instead
+        transport = new HttpTransport(null) {
+            @Override
+            public Response get(URL url, Cancellation cancellation) throws IOException {
+                return super.get(new URL("http", "127.0.0.1", server.getAddress().getPort(),
+                        url.getFile()), cancellation);
+            }
+        };
+        loaders = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        loaders.shutdownNow();
+        server.stop(0);
+    }
+
+    @Test
+    public void normalize_ignoresParameterOrderHostCaseAndDefaultPort() {
+        assertEquals(RequestRegistry.normalize(WORLD),
+                RequestRegistry.normalize(WORLD_REORDERED));
+        assertEquals("http://example.com:8080/?a=1&b=2",
+                RequestRegistry.normalize("HTTP://Example.com:8080?b=2&a=1#top"));
+    }
+
+    /**
+     * Every load is started the way the loaders of a fragment are: one when the tab is created,
+     * another when a rotation recreates it while the first is still loading, and more when the
+     * user swipes away and back within a minute
+     */
+    @Test
+    public void rotateAndSwipeSequences_sendOneRequestPerQuery() throws Exception {
+        RequestRegistry registry = new RequestRegistry(transport, MAX_AGE_MILLIS);
+        String[] queries = {WORLD, POLITICS, WORLD_PAGE_2};
+
+        for (String query : queries) {
+            List<Future<ArticlePage>> loads = new ArrayList<>();
+            // Created, then rotated twice while loading
+            loads.add(load(registry, query));
+            Thread.sleep(LATENCY_MILLIS / 4);
+            loads.add(load(registry, query));
+            loads.add(load(registry, query));
+            for (Future<ArticlePage> load : loads) {
+                assertEquals(2, load.get().getArticles().size());
+            }
+            // Swiped away and back, and rotated again
+            assertEquals(2, load(registry, query).get().getArticles().size());
+            assertEquals(2, load(registry, query).get().getArticles().size());
+        }
+        // The same query written differently
+        assertEquals(2, load(registry, WORLD_REORDERED).get().getArticles().size());
+
+        assertEquals(queries.length, requests.get());
+        assertEquals(queries.length, registry.getRequestCount());
+        for (AtomicInteger count : requestsByQuery.values()) {
+            assertEquals(1, count.get());
+        }
+    }
+
+    @Test
+    public void invalidatedQuery_isRequestedAgain() throws Exception {
+        RequestRegistry registry = new RequestRegistry(transport, MAX_AGE_MILLIS);
+
+        load(registry, WORLD).get();
+        registry.invalidate(WORLD_REORDERED);
+        load(registry, WORLD).get();
+
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void withoutMaxAge_onlyConcurrentLoadsShareTheRequest() throws Exception {
+        RequestRegistry registry = new RequestRegistry(transport, 0);
+
+        Future<ArticlePage> first = load(registry, WORLD);
+        Future<ArticlePage> rotated = load(registry, WORLD);
+        first.get();
+        rotated.get();
+        load(registry, WORLD).get();
+
+        assertEquals(2, requests.get());
+    }
+
+    private Future<ArticlePage> load(final RequestRegistry registry, final String url) {
+        return loaders.submit(new Callable<ArticlePage>() {
+            @Override
+            public ArticlePage call() {
+                return registry.fetch(url);
+            }
+        });
+    }
+
+    /**
+     * Answers every search with two articles, after {@link #LATENCY_MILLIS}
+     */
+    private class SearchHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            String query = RequestRegistry.normalize("http://host" + exchange.getRequestURI());
+            requestsByQuery.putIfAbsent(query, new AtomicInteger());
+            requestsByQuery.get(query).incrementAndGet();
+
+            String json = "{\"response\":{\"status\":\"ok\",\"currentPage\":1,\"pages\":5,"
+                    + "\"results\":[{\"sectionId\":\"world\",\"sectionName\":\"World news\","
+                    + "\"webPublicationDate\":\"2017-10-26T12:00:00Z\",\"webTitle\":\"One\","
+                    + "\"webUrl\":\"https://www.theguardian.com/world/1\"},"
+                    + "{\"sectionId\":\"world\",\"sectionName\":\"World news\","
+                    + "\"webPublicationDate\":\"2017-10-26T11:00:00Z\",\"webTitle\":\"Two\","
+                    + "\"webUrl\":\"https://www.theguardian.com/world/2\"}]}}";
+            try {
+                Thread.sleep(LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = json.getBytes("UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.android.dailynewsfeed;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link SizedLruCache} stays within its byte budget and counts hits, misses and
+ * evictions.
+ */
+public class SizedLruCacheTest {
+
+    /**
+     * Bytes of a 360 x 210 ARGB_8888 thumbnail, the thumbnail_image view size at xxhdpi
+     */
+    private static final int THUMBNAIL_BYTES = 360 * 210 * 4;
+    /**
+     * Budget that holds 20 thumbnails
+     */
+    private static final int BUDGET = 20 * THUMBNAIL_BYTES;
+    /**
+     * Rows visible on screen at the same time
+     */
+    private static final int VISIBLE_ROWS = 8;
+
+    private static SizedLruCache<String, byte[]> newCache(int maxSize) {
+        return new SizedLruCache<String, byte[]>(maxSize) {
+            @Override
+            protected int sizeOf(String key, byte[] value) {
+                return value.length;
+            }
+        };
+    }
+
+    @Test
+    public void scrolling1000Items_staysUnderBudget() {
+        SizedLruCache<String, byte[]> cache = newCache(BUDGET);
+        int items = 1000;
+
+        // Scroll down one row at a time, binding every visible row as a RecyclerView would
+        for (int first = 0; first + VISIBLE_ROWS <= items; first++) {
+            for (int position = first; position < first + VISIBLE_ROWS; position++) {
+                String url = "https://media.guim.co.uk/" + position + "/500.jpg";
+                if (cache.get(url) == null) {
+                    cache.put(url, new byte[THUMBNAIL_BYTES]);
+                }
+                assertTrue(cache.toString(), cache.size() <= BUDGET);
+            }
+        }
+
+        assertEquals(items, cache.missCount());
+        assertEquals(items - BUDGET / THUMBNAIL_BYTES, cache.evictionCount());
+        assertEquals((items - VISIBLE_ROWS + 1) * VISIBLE_ROWS - items, cache.hitCount());
+        assertEquals(BUDGET, cache.size());
+    }
+
+    @Test
+    public void get_marksEntryAsRecentlyUsed() {
+        SizedLruCache<String, byte[]> cache = newCache(3);
+        cache.put("a", new byte[1]);
+        cache.put("b", new byte[1]);
+        cache.put("c", new byte[1]);
+
+        assertNotNull(cache.get("a"));
+        cache.put("d", new byte[1]);
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+    }
+
+    @Test
+    public void put_replacingValue_updatesSize() {
+        SizedLruCache<String, byte[]> cache = newCache(10);
+        cache.put("a", new byte[4]);
+        cache.put("a", new byte[6]);
+
+        assertEquals(6, cache.size());
+        assertEquals(0, cache.evictionCount());
+    }
+
+    @Test
+    public void put_valueLargerThanBudget_isNotCached() {
+        SizedLruCache<String, byte[]> cache = newCache(10);
+        cache.put("a", new byte[4]);
+        cache.put("b", new byte[11]);
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertEquals(4, cache.size());
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.android.dailynewsfeed;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link SizedPool} hands out values of a fitting size within its budget, and counts
+ * what decoding thumbnails into pooled bitmaps saves while scrolling, with byte arrays standing in
+ * for the bitmaps as in {@link SizedLruCacheTest}.
+ */
+public class SizedPoolTest {
+
+    /**
+     * Pixels of a 360 x 210 thumbnail, the thumbnail_image view size at xxhdpi
+     */
+    private static final int THUMBNAIL_PIXELS = 360 * 210;
+    /**
+     * Memory cache budget that holds 20 ARGB_8888 thumbnails
+     */
+    private static final int BUDGET = 20 * THUMBNAIL_PIXELS * 4;
+    /**
+     * Rows visible on screen at the same time
+     */
+    private static final int VISIBLE_ROWS = 8;
+    private static final int ITEMS = 1000;
+
+    private static SizedPool<byte[]> newPool(int maxSize) {
+        return new SizedPool<byte[]>(maxSize) {
+            @Override
+            protected int sizeOf(byte[] value) {
+                return value.length;
+            }
+        };
+    }
+
+    @Test
+    public void take_returnsSmallestValueLargeEnough() {
+        SizedPool<byte[]> pool = newPool(100);
+        byte[] small = new byte[10];
+        byte[] medium = new byte[20];
+        byte[] large = new byte[40];
+        pool.put(large);
+        pool.put(small);
+        pool.put(medium);
+
+        assertSame(medium, pool.take(15));
+        assertSame(large, pool.take(20));
+        // Twice as large as asked for at most
+        assertNull(pool.take(4));
+        assertSame(small, pool.take(5));
+        assertNull(pool.take(1));
+        assertEquals(0, pool.size());
+        assertEquals(3, pool.hitCount());
+        assertEquals(2, pool.missCount());
+    }
+
+    @Test
+    public void put_overBudget_dropsValue() {
+        SizedPool<byte[]> pool = newPool(25);
+        assertTrue(pool.put(new byte[10]));
+        assertTrue(pool.put(new byte[10]));
+        assertFalse(pool.put(new byte[10]));
+
+        assertEquals(20, pool.size());
+        pool.take(10);
+        assertTrue(pool.put(new byte[10]));
+    }
+
+    @Test
+    public void policy_decodesOpaqueThumbnailsAt16BitsOnSmallHeaps() {
+        BitmapCache.Policy small = BitmapCache.Policy.forDevice(64, 16, BUDGET);
+        assertTrue(small.rgb565ForOpaque);
+        assertEquals(0, small.poolBytes);
+
+        BitmapCache.Policy kitKat = BitmapCache.Policy.forDevice(192, 19, BUDGET);
+        assertTrue(kitKat.rgb565ForOpaque);
+        assertEquals(BUDGET / BitmapCache.Policy.POOL_CACHE_DIVISOR, kitKat.poolBytes);
+
+        assertFalse(BitmapCache.Policy.forDevice(512, 26, BUDGET).rgb565ForOpaque);
+    }
+
+    /**
+     * Scroll through 1,000 rows with the memory cache of {@link BitmapCache}, first decoding every
+     * thumbnail as ARGB_8888 into a new bitmap, then as RGB_565 into bitmaps evicted from the
+     * cache, and compare the allocations of both
+     */
+    @Test
+    public void scrolling1000Items_reusesEvictedBitmaps() {
+        ScrollResult before = scroll(4, false);
+        ScrollResult after = scroll(2, true);
+
+        assertEquals(ITEMS, before.allocations);
+        // The cache holds twice as many RGB_565 thumbnails, and one more is decoded before the
+        // first eviction, after which every thumbnail is decoded into the one evicted last
+        assertEquals(2 * BUDGET / (THUMBNAIL_PIXELS * 4) + 1, after.allocations);
+        assertEquals(ITEMS - after.allocations, after.reused);
+        assertTrue(after.allocatedBytes * 20 < before.allocatedBytes);
+    }
+
+    private static ScrollResult scroll(int bytesPerPixel, boolean pooled) {
+        final ScrollResult result = new ScrollResult();
+        final SizedPool<byte[]> pool = pooled ? newPool(BUDGET / 4) : null;
+        // Bitmaps on screen, never reused
+        final Set<byte[]> shown = Collections.newSetFromMap(new IdentityHashMap<byte[], Boolean>());
+        SizedLruCache<String, byte[]> cache = new SizedLruCache<String, byte[]>(BUDGET) {
+            @Override
+            protected int sizeOf(String key, byte[] value) {
+                return value.length;
+            }
+
+            @Override
+            protected void entryEvicted(String key, byte[] value) {
+                if (pool != null && !shown.contains(value)) {
+                    pool.put(value);
+                }
+            }
+        };
+        byte[][] rows = new byte[ITEMS][];
+
+        // Scroll down one row at a time, binding every visible row as a RecyclerView would
+        for (int first = 0; first + VISIBLE_ROWS <= ITEMS; first++) {
+            if (first > 0) {
+                shown.remove(rows[first - 1]);
+            }
+            for (int position = first; position < first + VISIBLE_ROWS; position++) {
+                String url = "https://media.guim.co.uk/" + position + "/500.jpg";
+                byte[] bitmap = cache.get(url);
+                if (bitmap == null) {
+                    bitmap = decode(position, THUMBNAIL_PIXELS * bytesPerPixel, pool, result);
+                    cache.put(url, bitmap);
+                }
+                rows[position] = bitmap;
+                shown.add(bitmap);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stand-in for BitmapFactory: writes the pixels into a pooled bitmap, or a new one
+     */
+    private static byte[] decode(int position, int bytes, SizedPool<byte[]> pool,
+                                 ScrollResult result) {
+        byte[] bitmap = pool != null ? pool.take(bytes) : null;
+        if (bitmap == null) {
+            bitmap = new byte[bytes];
+            result.allocations++;
+            result.allocatedBytes += bytes;
+        } else {
+            result.reused++;
+        }
+        Arrays.fill(bitmap, (byte) position);
+        return bitmap;
+    }
+
+    /**
+     * Bitmaps decoded while scrolling
+     */
+    private static class ScrollResult {
+        int allocations;
+        long allocatedBytes;
+        int reused;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.android.dailynewsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ArticleFormatter} with the formatString of the adapter it replaced, which
+ * searched each text twice: once with contains and once with indexOf. The date used to be cut out
+ * of the ISO 8601 String and is now formatted from its milliseconds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ArticleFormatterBenchmark {
+
+    /**
+     * Not final, so the JIT cannot fold the results into constants
+     */
+    private long date = 1509019200000L;
+    private String isoDate = "2017-10-26T12:00:00Z";
+    private String byline = "Amanda Holpuch in New York";
+
+    @Benchmark
+    public String formatDate() {
+        return ArticleFormatter.formatDate(date);
+    }
+
+    @Benchmark
+    public long parseDate() {
+        return GuardianResponseParser.parseDate(isoDate);
+    }
+
+    @Benchmark
+    public String formatContributor() {
+        return ArticleFormatter.formatContributor(byline);
+    }
+
+    @Benchmark
+    public String formatStringDate() {
+        return formatString(isoDate, "T");
+    }
+
+    @Benchmark
+    public String formatStringContributor() {
+        return formatString(byline, " in");
+    }
+
+    private static String formatString(String originalString, String separator) {
+        String newString = originalString;
+        if (originalString.contains(separator)) {
+            newString = originalString.substring(0, originalString.indexOf(separator));
+        }
+        return newString;
+    }
+}
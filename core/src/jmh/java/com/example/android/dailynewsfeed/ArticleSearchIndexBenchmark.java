@@ -0,0 +1,67 @@
+package com.example.android.dailynewsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long {@link ArticleSearchIndex} takes to answer typical search-as-you-type queries
+ * over 50,000 indexed articles. Answering from the device must stay well within a frame budget
+ * while typing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ArticleSearchIndexBenchmark {
+
+    private static final int ARTICLES = 50000;
+    private static final int LIMIT = 20;
+    private static final String[] WORDS = {"brexit", "election", "climate", "market", "football",
+            "budget", "energy", "health", "trade", "science", "space", "film", "music", "travel",
+            "fashion", "court", "police", "school", "housing", "bank", "labour", "tory", "europe",
+            "china", "america", "australia", "london", "storm", "summit", "vote", "strike",
+            "record", "report", "deal", "crisis", "talks", "policy", "review", "season", "final"};
+    private static final String[] SECTIONS = {"World news", "Politics", "Business", "Technology",
+            "Science", "Sport", "Culture", "Life and style", "Fashion", "Travel"};
+
+    /**
+     * Text typed in the search box
+     */
+    @Param({"b", "br", "brexit", "climate ta", "london storm", "sport final", "jones", "zzz"})
+    public String query;
+
+    private ArticleSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        index = new ArticleSearchIndex();
+        for (int i = 0; i < ARTICLES; i++) {
+            StringBuilder title = new StringBuilder();
+            for (int w = 0; w < 8; w++) {
+                title.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            // Some unique words as well, like names and places
+            title.append("w").append(random.nextInt(ARTICLES));
+            index.add(new Article(title.toString(), "Writer" + random.nextInt(500) + " in London",
+                    SECTIONS[random.nextInt(SECTIONS.length)], "section",
+                    GuardianResponseParser.parseDate(String.format("2017-%02d-%02dT12:00:00Z",
+                            1 + random.nextInt(12), 1 + random.nextInt(28))),
+                    "https://www.theguardian.com/" + i, null));
+        }
+    }
+
+    @Benchmark
+    public List<Article> search() {
+        return index.search(query, LIMIT);
+    }
+}
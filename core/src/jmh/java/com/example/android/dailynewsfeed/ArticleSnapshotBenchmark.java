@@ -0,0 +1,159 @@
+package com.example.android.dailynewsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares restoring 5000 articles from the JSON response, from Java serialization of their
+ * fields, and from a mapped {@link ArticleSnapshot} file, both for the rows on screen and for
+ * every row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ArticleSnapshotBenchmark {
+
+    private static final int ARTICLES = 5000;
+    /**
+     * Rows on screen after a restore, the only ones decoded from a snapshot
+     */
+    private static final int VISIBLE_ROWS = 10;
+    private static final String[] SECTIONS = {"world", "politics", "business", "technology",
+            "science", "sport", "culture", "lifeandstyle", "fashion", "travel"};
+
+    private byte[] json;
+    private byte[] serialized;
+    private File snapshotFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < ARTICLES; i++) {
+            String section = SECTIONS[i % SECTIONS.length];
+            articles.add(new Article("Headline number " + i + " about " + section + " news",
+                    "Contributor " + (i % 40), section.substring(0, 1).toUpperCase()
+                    + section.substring(1), section,
+                    GuardianResponseParser.parseDate(String.format("2017-10-%02dT%02d:%02d:00Z",
+                            1 + i % 28, i % 24, i % 60)),
+                    "https://www.theguardian.com/" + section + "/2017/oct/26/article-" + i,
+                    i % 4 == 0 ? null : "https://media.guim.co.uk/" + i + "/500.jpg"));
+        }
+        json = json(articles);
+        serialized = serialize(articles);
+        snapshotFile = File.createTempFile("snapshot", ".bin");
+        FileOutputStream out = new FileOutputStream(snapshotFile);
+        try {
+            out.write(ArticleSnapshot.toBytes(articles));
+        } finally {
+            out.close();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        snapshotFile.delete();
+    }
+
+    @Benchmark
+    public List<Article> parseJson() throws IOException {
+        return GuardianResponseParser.parse(new ByteArrayInputStream(json));
+    }
+
+    @Benchmark
+    public List<Article> javaDeserialization() throws Exception {
+        return deserialize(serialized);
+    }
+
+    @Benchmark
+    public void snapshotVisibleRows(Blackhole blackhole) throws IOException {
+        List<Article> restored = ArticleSnapshot.open(snapshotFile).asList();
+        for (int i = 0; i < VISIBLE_ROWS; i++) {
+            blackhole.consume(restored.get(i));
+        }
+    }
+
+    @Benchmark
+    public void snapshotAllRows(Blackhole blackhole) throws IOException {
+        for (Article article : ArticleSnapshot.open(snapshotFile).asList()) {
+            blackhole.consume(article);
+        }
+    }
+
+    /**
+     * The articles as the Guardian API returns them with the list projection
+     */
+    private static byte[] json(List<Article> articles) {
+        StringBuilder json = new StringBuilder("{\"response\":{\"status\":\"ok\",\"currentPage\":1,"
+                + "\"pages\":1,\"results\":[");
+        for (int i = 0; i < articles.size(); i++) {
+            Article article = articles.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"sectionId\":\"").append(article.getSectionId())
+                    .append("\",\"sectionName\":\"").append(article.getSection())
+                    .append("\",\"webPublicationDate\":\"")
+                    .append(ArticleFormatter.formatDate(article.getDate())).append("T12:00:00Z")
+                    .append("\",\"webTitle\":\"").append(article.getTitle())
+                    .append("\",\"webUrl\":\"").append(article.getWebUrl())
+                    .append("\",\"fields\":{\"byline\":\"").append(article.getContributor())
+                    .append('"');
+            if (article.getThumbnailUrl() != null) {
+                json.append(",\"thumbnail\":\"").append(article.getThumbnailUrl()).append('"');
+            }
+            json.append("}}");
+        }
+        return json.append("]}}").toString().getBytes();
+    }
+
+    /**
+     * Java serialization of the fields of the articles, {@link Article} not being serializable
+     */
+    private static byte[] serialize(List<Article> articles) throws IOException {
+        ArrayList<String[]> rows = new ArrayList<>();
+        for (Article article : articles) {
+            rows.add(new String[]{article.getTitle(), article.getContributor(),
+                    article.getSection(), article.getSectionId(),
+                    String.valueOf(article.getDate()), article.getWebUrl(),
+                    article.getThumbnailUrl()});
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(rows);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Article> deserialize(byte[] bytes) throws Exception {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try {
+            List<Article> articles = new ArrayList<>();
+            for (String[] row : (List<String[]>) in.readObject()) {
+                articles.add(new Article(row[0], row[1], row[2], row[3],
+                        Long.parseLong(row[4]), row[5], row[6]));
+            }
+            return articles;
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.android.dailynewsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the work of binding a row read from an {@link ArticleSnapshot}: decoding its article
+ * and formatting the date and contributor, against decoding it and reading the texts formatted
+ * when the snapshot was written.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ArticleSnapshotRowBenchmark {
+
+    private static final int ROWS = 50;
+
+    private ArticleSnapshot snapshot;
+    /**
+     * Row bound next, not final so the JIT cannot fold it
+     */
+    private int row;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            articles.add(new Article("Headline number " + i, i % 5 == 0 ? "" : "Contributor "
+                    + i + " in London", "World news", "world", 1509019200000L - i * 60000L,
+                    "https://www.theguardian.com/world/" + i,
+                    i % 3 == 0 ? null : "https://media.guim.co.uk/" + i + "/500.jpg"));
+        }
+        snapshot = ArticleSnapshot.wrap(ByteBuffer.wrap(ArticleSnapshot.toBytes(articles)));
+    }
+
+    @Benchmark
+    public void decodeAndFormat(Blackhole blackhole) {
+        Article article = snapshot.get(nextRow());
+        blackhole.consume(article);
+        blackhole.consume(ArticleFormatter.formatDate(article.getDate()));
+        blackhole.consume(ArticleFormatter.formatContributor(article.getContributor()));
+    }
+
+    @Benchmark
+    public void decodeAndReadShownTexts(Blackhole blackhole) {
+        int index = nextRow();
+        blackhole.consume(snapshot.get(index));
+        blackhole.consume(snapshot.getShownDate(index));
+        blackhole.consume(snapshot.getShownContributor(index));
+    }
+
+    private int nextRow() {
+        row = (row + 1) % ROWS;
+        return row;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.android.dailynewsfeed;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many recorded Guardian API responses {@link GuardianResponseParser} parses per
+ * second, for pages of 10, 50 and 200 results, against the previous path that read the whole
+ * body into a String and built the org.json tree. Run with the gc profiler to also see the bytes
+ * allocated per response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GuardianResponseParserBenchmark {
+
+    /**
+     * Number of results in the parsed response
+     */
+    @Param({"10", "50", "200"})
+    public int results;
+
+    /**
+     * Body of the response, read once so only parsing is measured
+     */
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        InputStream in = GuardianResponseParserBenchmark.class.getResourceAsStream(
+                "/guardian_search_" + results + ".json");
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            payload = out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    @Benchmark
+    public ArticlePage parsePage() throws IOException {
+        return GuardianResponseParser.parsePage(new ByteArrayInputStream(payload));
+    }
+
+    @Benchmark
+    public List<String[]> parseWithDom() throws IOException, JSONException {
+        BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(payload), "UTF-8"));
+        StringBuilder output = new StringBuilder();
+        String line = bufferedReader.readLine();
+        while (line != null) {
+            output.append(line);
+            line = bufferedReader.readLine();
+        }
+
+        List<String[]> articles = new ArrayList<>();
+        JSONArray results = new JSONObject(output.toString())
+                .getJSONObject("response").getJSONArray("results");
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject result = results.getJSONObject(i);
+            JSONObject fields = result.optJSONObject("fields");
+            articles.add(new String[]{
+                    result.optString("webTitle"),
+                    fields != null ? fields.optString("byline") : "",
+                    result.optString("sectionName"),
+                    result.optString("webPublicationDate"),
+                    result.optString("webUrl"),
+                    fields != null ? fields.optString("thumbnail") : ""});
+        }
+        return articles;
+    }
+}
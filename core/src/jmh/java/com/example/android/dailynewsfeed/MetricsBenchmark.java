@@ -0,0 +1,47 @@
+package com.example.android.dailynewsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what a {@link Metrics} start / stop pair costs with collection off, as in release
+ * builds, and on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+
+    private static final String TIMER = "benchmark.timer";
+
+    /**
+     * Whether metrics are collected
+     */
+    @Param({"false", "true"})
+    public boolean enabled;
+
+    @Setup
+    public void setUp() {
+        Metrics.setEnabled(enabled);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @Benchmark
+    public void startStop() {
+        Metrics.stop(TIMER, Metrics.start());
+    }
+}
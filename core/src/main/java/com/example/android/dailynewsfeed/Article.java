@@ -0,0 +1,161 @@
+package com.example.android.dailynewsfeed;
+
+/**
+ * {@link Article} represents news article from Guardian API.
+ * It contains the title, contributor, section name, publication date, url link to the article, and
+ * url link to the thumbnail
+ */
+public class Article {
+
+    /**
+     * Publication date of an article whose date is unknown, before any other date
+     */
+    public static final long NO_DATE = Long.MIN_VALUE;
+
+    /**
+     * Title of the article
+     */
+    private String title;
+    /**
+     * Contributor of the article
+     */
+    private String contributor;
+    /**
+     * Section name of the article
+     */
+    private String section;
+    /**
+     * Id of the section of the article, e.g. "world"
+     */
+    private String sectionId;
+    /**
+     * Publication date of the article in milliseconds since the epoch, or {@link #NO_DATE}
+     */
+    private long date;
+    /**
+     * Web url to the article
+     */
+    private String webUrl;
+    /**
+     * Url to the thumbnail image of the article
+     */
+    private String thumbnailUrl;
+
+    /**
+     * Create a new Article class
+     */
+    public Article(String title, String contributor, String section, String sectionId,
+                   long date, String webUrl, String thumbnailUrl) {
+        this.title = title;
+        this.contributor = contributor;
+        this.section = section;
+        this.sectionId = sectionId;
+        this.date = date;
+        this.webUrl = webUrl;
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    /**
+     * Get the title of the article
+     *
+     * @return title of article
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Get the contributor of the article
+     *
+     * @return contributor of article
+     */
+    public String getContributor() {
+        return contributor;
+    }
+
+    /**
+     * Get the section name of the article
+     *
+     * @return section name of article
+     */
+    public String getSection() {
+        return section;
+    }
+
+    /**
+     * Get the id of the section of the article
+     *
+     * @return section id of article, e.g. "world"
+     */
+    public String getSectionId() {
+        return sectionId;
+    }
+
+    /**
+     * Get the publication date of the article
+     *
+     * @return publication date of article in milliseconds since the epoch, or {@link #NO_DATE}
+     */
+    public long getDate() {
+        return date;
+    }
+
+    /**
+     * Get the web url of the article
+     *
+     * @return web url of article
+     */
+    public String getWebUrl() {
+        return webUrl;
+    }
+
+    /**
+     * Get the url of the thumbnail image of the article
+     *
+     * @return thumbnail url of article, or null if the article has no thumbnail
+     */
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    /**
+     * Two articles are equal when every field shown in the list is equal
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Article)) {
+            return false;
+        }
+        Article other = (Article) o;
+        return equal(title, other.title)
+                && equal(contributor, other.contributor)
+                && equal(section, other.section)
+                && equal(sectionId, other.sectionId)
+                && date == other.date
+                && equal(webUrl, other.webUrl)
+                && equal(thumbnailUrl, other.thumbnailUrl);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hash(title);
+        result = 31 * result + hash(contributor);
+        result = 31 * result + hash(section);
+        result = 31 * result + hash(sectionId);
+        result = 31 * result + (int) (date ^ (date >>> 32));
+        result = 31 * result + hash(webUrl);
+        result = 31 * result + hash(thumbnailUrl);
+        return result;
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static int hash(String value) {
+        return value == null ? 0 : value.hashCode();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.android.dailynewsfeed;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link ArticleDelta} collects the articles published since the last load of a list sorted from
+ * newest to oldest. The pages of the list are read from the newest known date onwards and added
+ * one by one until an article already known comes up; the articles before it are the new ones,
+ * placed in front of the known ones by {@link #merge(int)}.
+ * <p>
+ * Articles are told apart by their web url, the Guardian id not being kept in {@link Article}.
+ * Not thread safe.
+ */
+public class ArticleDelta {
+
+    /**
+     * Articles already loaded, newest first
+     */
+    private final List<Article> known;
+    /**
+     * Web urls of the known articles
+     */
+    private final Set<String> knownUrls = new HashSet<>();
+    /**
+     * Articles published since the last load, newest first
+     */
+    private final List<Article> added = new ArrayList<>();
+    /**
+     * Whether a known article came up, so there is nothing newer left to read
+     */
+    private boolean complete;
+    /**
+     * Whether a page could not be read, so the new articles are not all known
+     */
+    private boolean failed;
+
+    /**
+     * Create an {@link ArticleDelta} over the articles of the last load
+     *
+     * @param known articles already loaded, newest first
+     */
+    public ArticleDelta(List<Article> known) {
+        this.known = known;
+        for (int i = 0; i < known.size(); i++) {
+            knownUrls.add(known.get(i).getWebUrl());
+        }
+    }
+
+    /**
+     * @return publication date in milliseconds since the epoch of the newest known article, the
+     * date to read the list from, or {@link Article#NO_DATE} if no known article has a date
+     */
+    public long since() {
+        long since = Article.NO_DATE;
+        for (int i = 0; i < known.size(); i++) {
+            since = Math.max(since, known.get(i).getDate());
+        }
+        return since;
+    }
+
+    /**
+     * Add the articles of the next page up to the first known one
+     *
+     * @param page of the list read from {@link #since()}, newest first, or null if it could not
+     *             be read, e.g. the response had no results. The delta then stays incomplete.
+     * @return whether a known article came up or the page could not be read, so no further page
+     * is needed
+     */
+    public boolean addPage(List<Article> page) {
+        if (page == null) {
+            failed = true;
+        }
+        if (failed) {
+            return true;
+        }
+        for (int i = 0; i < page.size() && !complete; i++) {
+            Article article = page.get(i);
+            if (knownUrls.contains(article.getWebUrl())) {
+                complete = true;
+            } else {
+                added.add(article);
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * @return whether a known article came up, so every new article has been added, and no page
+     * failed to be read
+     */
+    public boolean isComplete() {
+        return complete && !failed;
+    }
+
+    /**
+     * @return number of articles added
+     */
+    public int addedCount() {
+        return added.size();
+    }
+
+    /**
+     * @param size most articles to keep, e.g. the page size of the list
+     * @return the articles added followed by the known ones, newest first
+     */
+    public List<Article> merge(int size) {
+        List<Article> merged = new ArrayList<>(Math.min(size, added.size() + known.size()));
+        for (int i = 0; i < added.size() && merged.size() < size; i++) {
+            merged.add(added.get(i));
+        }
+        for (int i = 0; i < known.size() && merged.size() < size; i++) {
+            merged.add(known.get(i));
+        }
+        return merged;
+    }
+}
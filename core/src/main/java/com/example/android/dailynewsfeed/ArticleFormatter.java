@@ -0,0 +1,96 @@
+package com.example.android.dailynewsfeed;
+
+/**
+ * {@link ArticleFormatter} turns the fields of an {@link Article} into the texts shown in the
+ * article list.
+ */
+public final class ArticleFormatter {
+
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000;
+    /**
+     * Separates the contributor from their role in the byline, e.g. "Amanda Holpuch in New York"
+     */
+    private static final String CONTRIBUTOR_SEPARATOR = " in";
+
+    /**
+     * Meant to hold static methods only.
+     */
+    private ArticleFormatter() {
+    }
+
+    /**
+     * @param date publication date in milliseconds since the epoch, or {@link Article#NO_DATE}
+     * @return publication date in UTC without the time, e.g. "2017-10-26", or an empty String if
+     * the date is unknown
+     */
+    public static String formatDate(long date) {
+        if (date == Article.NO_DATE) {
+            return "";
+        }
+        return appendDate(new StringBuilder(10), date).toString();
+    }
+
+    /**
+     * @param date in milliseconds since the epoch
+     * @return the date and time in UTC to the second as ISO 8601, e.g. "2017-10-26T12:00:00Z",
+     * the way the Guardian API writes and reads dates
+     */
+    public static String formatDateTime(long date) {
+        long millisOfDay = date % MILLIS_PER_DAY;
+        if (millisOfDay < 0) {
+            millisOfDay += MILLIS_PER_DAY;
+        }
+        long seconds = millisOfDay / 1000;
+        StringBuilder text = appendDate(new StringBuilder(20), date).append('T');
+        appendPadded(text, seconds / 3600, 2).append(':');
+        appendPadded(text, seconds / 60 % 60, 2).append(':');
+        return appendPadded(text, seconds % 60, 2).append('Z').toString();
+    }
+
+    /**
+     * Append the UTC day of a date as "yyyy-MM-dd"
+     */
+    private static StringBuilder appendDate(StringBuilder text, long date) {
+        long days = date / MILLIS_PER_DAY;
+        if (date % MILLIS_PER_DAY < 0) {
+            days--;
+        }
+
+        // The civil date of a day count, counting years from March so that the leap day comes
+        // last
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthFromMarch = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * monthFromMarch + 2) / 5 + 1;
+        long month = monthFromMarch < 10 ? monthFromMarch + 3 : monthFromMarch - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        appendPadded(text, year, 4).append('-');
+        appendPadded(text, month, 2).append('-');
+        return appendPadded(text, day, 2);
+    }
+
+    /**
+     * @param byline byline of the article, or null
+     * @return contributor without their role, e.g. "Amanda Holpuch"
+     */
+    public static String formatContributor(String byline) {
+        return byline == null ? "" : substringBefore(byline, CONTRIBUTOR_SEPARATOR).trim();
+    }
+
+    private static StringBuilder appendPadded(StringBuilder text, long value, int digits) {
+        String number = String.valueOf(value);
+        for (int i = number.length(); i < digits; i++) {
+            text.append('0');
+        }
+        return text.append(number);
+    }
+
+    private static String substringBefore(String value, String separator) {
+        int index = value.indexOf(separator);
+        return index >= 0 ? value.substring(0, index) : value;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.android.dailynewsfeed;
+
+import java.util.List;
+
+/**
+ * {@link ArticlePage} is one page of a Guardian API search: its articles and where it sits among
+ * all the pages of the search.
+ */
+public class ArticlePage {
+
+    /**
+     * Articles of the page, or null if the response had no results
+     */
+    private final List<Article> articles;
+    /**
+     * Number of this page, starting at 1
+     */
+    private final int currentPage;
+    /**
+     * Total number of pages of the search
+     */
+    private final int pages;
+
+    /**
+     * Create a new {@link ArticlePage}
+     */
+    public ArticlePage(List<Article> articles, int currentPage, int pages) {
+        this.articles = articles;
+        this.currentPage = currentPage;
+        this.pages = pages;
+    }
+
+    /**
+     * @return articles of the page, or null if the response had no results
+     */
+    public List<Article> getArticles() {
+        return articles;
+    }
+
+    /**
+     * @return number of this page, starting at 1
+     */
+    public int getCurrentPage() {
+        return currentPage;
+    }
+
+    /**
+     * @return total number of pages of the search
+     */
+    public int getPages() {
+        return pages;
+    }
+
+    /**
+     * @return whether the search has pages after this one
+     */
+    public boolean hasNextPage() {
+        return currentPage < pages;
+    }
+}
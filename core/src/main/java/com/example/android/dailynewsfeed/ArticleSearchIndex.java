@@ -0,0 +1,350 @@
+package com.example.android.dailynewsfeed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * {@link ArticleSearchIndex} is an in-memory inverted index over the title, byline and section of
+ * articles, so a search can be answered on the device while the user is typing.
+ * <p>
+ * Every word of a query matches the indexed words it is a prefix of, and an article is found only
+ * if all the words of the query match it. Articles are ranked by where their words matched,
+ * the title counting the most, and whole words counting more than prefixes. Equal scores are
+ * ranked newest first.
+ * <p>
+ * The index is not thread safe: build it on one thread, then hand it over to the thread that
+ * searches it.
+ */
+public class ArticleSearchIndex {
+
+    // Weight of a word by the field it appears in
+    private static final int TITLE_WEIGHT = 4;
+    private static final int BYLINE_WEIGHT = 2;
+    private static final int SECTION_WEIGHT = 1;
+    /**
+     * Factor applied to the weight when a query word is a whole indexed word, not only a prefix
+     */
+    private static final int WHOLE_WORD_FACTOR = 2;
+    /**
+     * Bits of a posting holding the weight, the rest holds the article number
+     */
+    private static final int WEIGHT_BITS = 3;
+    private static final int WEIGHT_MASK = (1 << WEIGHT_BITS) - 1;
+
+    /**
+     * Indexed articles, numbered by their position
+     */
+    private final List<Article> articles = new ArrayList<>();
+    /**
+     * Number of each indexed article by its web url, so an article is indexed once
+     */
+    private final Map<String, Integer> numbers = new HashMap<>();
+    /**
+     * Postings of every indexed word, sorted so the words starting with a prefix are adjacent
+     */
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+    /**
+     * Weight of the query word being matched for each article, zero if it has not matched
+     */
+    private int[] wordWeights = new int[0];
+    /**
+     * Position of each article from oldest to newest, or null until the next search sorts them
+     */
+    private int[] recencyRanks;
+    /**
+     * Number of the article at each position from oldest to newest
+     */
+    private int[] numbersByRecency;
+
+    /**
+     * Index an article, unless an article with the same web url is already indexed
+     *
+     * @return whether the article has been added
+     */
+    public boolean add(Article article) {
+        String webUrl = article.getWebUrl();
+        if (webUrl != null && numbers.containsKey(webUrl)) {
+            return false;
+        }
+        int number = articles.size();
+        articles.add(article);
+        recencyRanks = null;
+        if (webUrl != null) {
+            numbers.put(webUrl, number);
+        }
+        addField(number, article.getTitle(), TITLE_WEIGHT);
+        addField(number, ArticleFormatter.formatContributor(article.getContributor()),
+                BYLINE_WEIGHT);
+        addField(number, article.getSection(), SECTION_WEIGHT);
+        return true;
+    }
+
+    /**
+     * Index every article of a list, see {@link #add(Article)}
+     */
+    public void addAll(List<Article> articles) {
+        for (Article article : articles) {
+            add(article);
+        }
+        // Sort now rather than on the first search
+        sortByRecency();
+    }
+
+    /**
+     * @return number of indexed articles
+     */
+    public int size() {
+        return articles.size();
+    }
+
+    /**
+     * Find the articles matching every word of a query
+     *
+     * @param query words typed by the user, the last one possibly incomplete
+     * @param limit maximum number of articles to return
+     * @return the best matching articles, best first, empty if the query has no words
+     */
+    public List<Article> search(String query, int limit) {
+        List<String> queryWords = tokenize(query);
+        if (queryWords.isEmpty() || limit <= 0 || articles.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (wordWeights.length < articles.size()) {
+            wordWeights = new int[articles.size()];
+        }
+        if (recencyRanks == null) {
+            sortByRecency();
+        }
+
+        // Articles matching all the words so far, with the sum of their weights
+        int[] candidates = null;
+        int[] scores = null;
+        int candidateCount = 0;
+        for (String queryWord : queryWords) {
+            IntList matched = match(queryWord);
+            if (candidates == null) {
+                candidates = matched.toArray();
+                candidateCount = candidates.length;
+                scores = new int[candidateCount];
+                for (int i = 0; i < candidateCount; i++) {
+                    scores[i] = wordWeights[candidates[i]];
+                }
+            } else {
+                // Keep the candidates this word matched as well
+                int kept = 0;
+                for (int i = 0; i < candidateCount; i++) {
+                    int weight = wordWeights[candidates[i]];
+                    if (weight > 0) {
+                        candidates[kept] = candidates[i];
+                        scores[kept] = scores[i] + weight;
+                        kept++;
+                    }
+                }
+                candidateCount = kept;
+            }
+            for (int i = 0; i < matched.size; i++) {
+                wordWeights[matched.values[i]] = 0;
+            }
+            if (candidateCount == 0) {
+                return Collections.emptyList();
+            }
+        }
+        return best(candidates, scores, candidateCount, limit);
+    }
+
+    /**
+     * Set {@link #wordWeights} of the articles with an indexed word starting with the query word
+     *
+     * @return the articles matched
+     */
+    private IntList match(String queryWord) {
+        IntList matched = new IntList();
+        SortedMap<String, Postings> range =
+                words.subMap(queryWord, queryWord + Character.MAX_VALUE);
+        for (Map.Entry<String, Postings> entry : range.entrySet()) {
+            int factor = entry.getKey().length() == queryWord.length() ? WHOLE_WORD_FACTOR : 1;
+            IntList postings = entry.getValue();
+            for (int i = 0; i < postings.size; i++) {
+                int number = postings.values[i] >>> WEIGHT_BITS;
+                int weight = (postings.values[i] & WEIGHT_MASK) * factor;
+                int current = wordWeights[number];
+                if (current == 0) {
+                    matched.add(number);
+                }
+                if (weight > current) {
+                    wordWeights[number] = weight;
+                }
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * @return the candidates with the highest scores, best first
+     */
+    private List<Article> best(int[] candidates, int[] scores, int count, int limit) {
+        // Rank by score then recency with a single primitive key per candidate, and keep the
+        // best keys seen so far in a min-heap, the worst of them at the root
+        long[] heap = new long[Math.min(count, limit)];
+        int heapSize = 0;
+        for (int i = 0; i < count; i++) {
+            long key = (long) scores[i] << 32 | recencyRanks[candidates[i]];
+            if (heapSize < heap.length) {
+                heap[heapSize] = key;
+                siftUp(heap, heapSize++);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown(heap, heapSize);
+            }
+        }
+
+        Arrays.sort(heap, 0, heapSize);
+        Article[] best = new Article[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            int rank = (int) heap[heapSize - 1 - i];
+            best[i] = articles.get(numbersByRecency[rank]);
+        }
+        return Arrays.asList(best);
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        long key = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent] <= key) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = key;
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        long key = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (key <= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = key;
+    }
+
+    /**
+     * Work out the position of every article from oldest to newest, so ranking compares ints
+     * instead of dates
+     */
+    private void sortByRecency() {
+        Integer[] numbers = new Integer[articles.size()];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = i;
+        }
+        Arrays.sort(numbers, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int dates = compareDates(articles.get(a).getDate(), articles.get(b).getDate());
+                // Among equal dates, the article indexed first comes first
+                return dates != 0 ? dates : a.compareTo(b);
+            }
+        });
+        recencyRanks = new int[numbers.length];
+        numbersByRecency = new int[numbers.length];
+        for (int rank = 0; rank < numbers.length; rank++) {
+            recencyRanks[numbers[rank]] = rank;
+            numbersByRecency[rank] = numbers[rank];
+        }
+    }
+
+    private static int compareDates(long a, long b) {
+        // Unknown dates are the smallest, so they come oldest
+        return a < b ? -1 : (a == b ? 0 : 1);
+    }
+
+    private void addField(int number, String text, int weight) {
+        int posting = number << WEIGHT_BITS | weight;
+        for (String word : tokenize(text)) {
+            Postings postings = words.get(word);
+            if (postings == null) {
+                postings = new Postings();
+                words.put(word, postings);
+            }
+            postings.addPosting(posting);
+        }
+    }
+
+    /**
+     * Split a text into lower case words of letters and digits
+     *
+     * @param text to split, or null
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lowerCase = text.toLowerCase(Locale.US);
+        int start = -1;
+        for (int i = 0; i <= lowerCase.length(); i++) {
+            boolean inWord = i < lowerCase.length()
+                    && Character.isLetterOrDigit(lowerCase.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                tokens.add(lowerCase.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Growable array of ints
+     */
+    private static class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Articles a word appears in, each with the weight of the best field it appears in
+     */
+    private static class Postings extends IntList {
+        void addPosting(int posting) {
+            // Fields are indexed one article at a time, best first, so a repeated word can only
+            // repeat the last posting
+            if (size > 0 && values[size - 1] >>> WEIGHT_BITS == posting >>> WEIGHT_BITS) {
+                return;
+            }
+            add(posting);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.example.android.dailynewsfeed;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * {@link ArticleSnapshot} is a compact binary copy of a list of {@link Article}s that is read in
+ * place, e.g. from a memory-mapped file: an article is only decoded when it is asked for, so a
+ * long list can be restored without creating an object per article up front.
+ * <p>
+ * Layout, big-endian:
+ * <pre>
+ * int     magic "DNFS"
+ * byte    version
+ * int     number of articles
+ * varint  number of shared strings, then each as varint length + UTF-8 bytes
+ * int[]   position of each article in the snapshot
+ * rows    per article: shown date, shown contributor, title, contributor, section, section id,
+ *         date, web url, thumbnail url
+ * </pre>
+ * The shown date and contributor are the texts of the article list, formatted with
+ * {@link ArticleFormatter} when the snapshot is written, so a row read to be shown is not
+ * formatted again. They come first, so they are read without decoding the article.
+ * <p>
+ * The shown texts, contributor, section and section id repeat across articles, so a row refers to
+ * them by their index in the shared strings, which are pooled with
+ * {@link StringPool#ARTICLE_FIELDS} when read. The other strings are written in the row as
+ * varint length + UTF-8 bytes. Either way 0 stands for null and other values are shifted by one.
+ * The date is a zigzag varint of its milliseconds since the epoch.
+ */
+public class ArticleSnapshot {
+
+    private static final int MAGIC = 0x444E4653;
+    /**
+     * Version of the layout, to be increased whenever it changes
+     */
+    static final int VERSION = 3;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The snapshot
+     */
+    private final ByteBuffer buffer;
+    /**
+     * Number of articles
+     */
+    private final int size;
+    /**
+     * Strings shared by the articles
+     */
+    private final String[] strings;
+    /**
+     * Where the positions of the articles start
+     */
+    private final int rowIndexStart;
+
+    private ArticleSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < 9 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an article snapshot");
+        }
+        int version = buffer.get(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported article snapshot version " + version);
+        }
+        size = buffer.getInt(5);
+
+        int[] position = {9};
+        strings = new String[readVarint(position)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = StringPool.ARTICLE_FIELDS.intern(
+                    readString(position, readVarint(position)));
+        }
+        rowIndexStart = position[0];
+        if (size < 0 || rowIndexStart + 4L * size > buffer.limit()) {
+            throw new IOException("Truncated article snapshot");
+        }
+    }
+
+    /**
+     * Read a snapshot from a buffer, which must not be modified while the snapshot is in use
+     *
+     * @throws IOException if the buffer does not hold a snapshot of this version
+     */
+    public static ArticleSnapshot wrap(ByteBuffer buffer) throws IOException {
+        return new ArticleSnapshot(buffer.duplicate());
+    }
+
+    /**
+     * Map a snapshot file into memory. Its articles are read from the file as they are asked for.
+     *
+     * @throws IOException if the file cannot be read or does not hold a snapshot of this version
+     */
+    public static ArticleSnapshot open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            // The mapping stays valid after the file is closed
+            return new ArticleSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size()));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Write the snapshot of a list of articles
+     *
+     * @return the snapshot
+     */
+    public static byte[] toBytes(List<Article> articles) {
+        // Number the shared strings in the order they first appear
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        ByteArrayOutputStream rows = new ByteArrayOutputStream();
+        int[] rowOffsets = new int[articles.size()];
+        for (int i = 0; i < articles.size(); i++) {
+            Article article = articles.get(i);
+            rowOffsets[i] = rows.size();
+            writeSharedString(rows, ArticleFormatter.formatDate(article.getDate()), stringIndexes,
+                    strings);
+            writeSharedString(rows, ArticleFormatter.formatContributor(article.getContributor()),
+                    stringIndexes, strings);
+            writeString(rows, article.getTitle());
+            writeSharedString(rows, article.getContributor(), stringIndexes, strings);
+            writeSharedString(rows, article.getSection(), stringIndexes, strings);
+            writeSharedString(rows, article.getSectionId(), stringIndexes, strings);
+            writeVarlong(rows, (article.getDate() << 1) ^ (article.getDate() >> 63));
+            writeString(rows, article.getWebUrl());
+            writeString(rows, article.getThumbnailUrl());
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(header);
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(articles.size());
+            writeVarint(header, strings.size());
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(UTF_8);
+                writeVarint(header, bytes.length);
+                header.write(bytes);
+            }
+            int rowsStart = header.size() + 4 * rowOffsets.length;
+            for (int rowOffset : rowOffsets) {
+                out.writeInt(rowsStart + rowOffset);
+            }
+            rows.writeTo(header);
+        } catch (IOException e) {
+            // Writing to memory does not fail
+            throw new AssertionError(e);
+        }
+        return header.toByteArray();
+    }
+
+    /**
+     * @return number of articles
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Decode one article
+     *
+     * @param index of the article, from 0
+     */
+    public Article get(int index) {
+        int[] position = {rowStart(index)};
+        // Skip the shown texts
+        readVarint(position);
+        readVarint(position);
+        String title = readInlineString(position);
+        String contributor = readSharedString(position);
+        String section = readSharedString(position);
+        String sectionId = readSharedString(position);
+        long zigzag = readVarlong(position);
+        long date = (zigzag >>> 1) ^ -(zigzag & 1);
+        String webUrl = readInlineString(position);
+        String thumbnailUrl = readInlineString(position);
+        return new Article(title, contributor, section, sectionId, date, webUrl, thumbnailUrl);
+    }
+
+    /**
+     * @param index of the article, from 0
+     * @return publication date of the article as it is shown, see
+     * {@link ArticleFormatter#formatDate(long)}
+     */
+    public String getShownDate(int index) {
+        int[] position = {rowStart(index)};
+        return readSharedString(position);
+    }
+
+    /**
+     * @param index of the article, from 0
+     * @return contributor of the article as it is shown, see
+     * {@link ArticleFormatter#formatContributor(String)}
+     */
+    public String getShownContributor(int index) {
+        int[] position = {rowStart(index)};
+        readVarint(position);
+        return readSharedString(position);
+    }
+
+    /**
+     * @return the articles as a list that decodes an article each time it is asked for
+     */
+    public List<Article> asList() {
+        return new ArticleList();
+    }
+
+    /**
+     * @param articles a list of articles
+     * @return the snapshot the list reads its articles from if it was returned by
+     * {@link #asList()}, else null
+     */
+    public static ArticleSnapshot of(List<Article> articles) {
+        return articles instanceof ArticleList ? ((ArticleList) articles).snapshot() : null;
+    }
+
+    /**
+     * @return where the row of an article starts in the snapshot
+     */
+    private int rowStart(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return buffer.getInt(rowIndexStart + 4 * index);
+    }
+
+    private String readInlineString(int[] position) {
+        int length = readVarint(position);
+        return length == 0 ? null : readString(position, length - 1);
+    }
+
+    private String readSharedString(int[] position) {
+        int index = readVarint(position);
+        return index == 0 ? null : strings[index - 1];
+    }
+
+    private String readString(int[] position, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position[0] + i);
+        }
+        position[0] += length;
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Read an unsigned varint: 7 bits per byte, least significant first, the high bit set on
+     * every byte but the last
+     */
+    private int readVarint(int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(position[0]++);
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Read an unsigned varint of up to 64 bits
+     */
+    private long readVarlong(int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(position[0]++);
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        writeVarint(out, bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeSharedString(ByteArrayOutputStream out, String value,
+                                          Map<String, Integer> indexes, List<String> strings) {
+        if (value == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        Integer index = indexes.get(value);
+        if (index == null) {
+            index = strings.size();
+            indexes.put(value, index);
+            strings.add(value);
+        }
+        writeVarint(out, index + 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void writeVarlong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * View of the articles of the snapshot
+     */
+    private class ArticleList extends AbstractList<Article> implements RandomAccess {
+        ArticleSnapshot snapshot() {
+            return ArticleSnapshot.this;
+        }
+
+        @Override
+        public Article get(int index) {
+            return ArticleSnapshot.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
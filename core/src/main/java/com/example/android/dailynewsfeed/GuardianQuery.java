@@ -0,0 +1,203 @@
+package com.example.android.dailynewsfeed;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+/**
+ * {@link GuardianQuery} builds Guardian API urls that only ask for the fields the app reads.
+ * <p>
+ * A search for the article list uses {@link Projection#LIST}, derived from the fields
+ * {@link GuardianResponseParser} extracts for {@link Article} and the article list. A single
+ * article can be requested with the larger {@link Projection#DETAIL} when its content is needed.
+ */
+public final class GuardianQuery {
+
+    /**
+     * Base url of the Guardian content API
+     */
+    private static final String BASE_URL = "https://content.guardianapis.com/";
+    /**
+     * Path of the search endpoint
+     */
+    private static final String SEARCH_PATH = "search";
+    /**
+     * Key used for the Guardian API
+     */
+    private static final String API_KEY = "test";
+
+    /**
+     * Sets of fields requested with show-fields
+     */
+    public enum Projection {
+        /**
+         * Fields shown in the article list
+         */
+        LIST(GuardianResponseParser.LIST_FIELDS),
+        /**
+         * Fields needed to show an article on its own
+         */
+        DETAIL(GuardianResponseParser.LIST_FIELDS, "headline", "standfirst", "trailText", "body",
+                "wordcount");
+
+        private final String showFields;
+
+        Projection(String[] listFields, String... extraFields) {
+            StringBuilder builder = new StringBuilder();
+            for (String field : listFields) {
+                appendField(builder, field);
+            }
+            for (String field : extraFields) {
+                appendField(builder, field);
+            }
+            showFields = builder.toString();
+        }
+
+        private static void appendField(StringBuilder builder, String field) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(field);
+        }
+
+        /**
+         * @return value of the show-fields parameter
+         */
+        public String getShowFields() {
+            return showFields;
+        }
+    }
+
+    /**
+     * Meant to hold static methods only.
+     */
+    private GuardianQuery() {
+    }
+
+    /**
+     * Start building a search url with the {@link Projection#LIST} projection
+     */
+    public static Builder search() {
+        return new Builder(SEARCH_PATH).projection(Projection.LIST);
+    }
+
+    /**
+     * Start building the url of a single article with the {@link Projection#DETAIL} projection
+     *
+     * @param id Guardian id of the article, e.g. "world/2017/oct/26/some-article"
+     */
+    public static Builder item(String id) {
+        return new Builder(id).projection(Projection.DETAIL);
+    }
+
+    /**
+     * Builder of a Guardian API url. Empty values are left out of the url.
+     */
+    public static class Builder {
+        private final String path;
+        private String section;
+        private String productionOffice;
+        private String searchTerm;
+        private String orderBy;
+        private String fromDate;
+        private Projection projection;
+        private int page;
+        private int pageSize;
+
+        private Builder(String path) {
+            this.path = path;
+        }
+
+        public Builder section(String section) {
+            this.section = section;
+            return this;
+        }
+
+        public Builder productionOffice(String productionOffice) {
+            this.productionOffice = productionOffice;
+            return this;
+        }
+
+        public Builder searchTerm(String searchTerm) {
+            this.searchTerm = searchTerm;
+            return this;
+        }
+
+        public Builder orderBy(String orderBy) {
+            this.orderBy = orderBy;
+            return this;
+        }
+
+        /**
+         * @param fromDate earliest publication date, ISO 8601 e.g. "2017-10-26T12:00:00Z"
+         */
+        public Builder fromDate(String fromDate) {
+            this.fromDate = fromDate;
+            return this;
+        }
+
+        public Builder projection(Projection projection) {
+            this.projection = projection;
+            return this;
+        }
+
+        /**
+         * @param page number of the page to load, starting at 1
+         */
+        public Builder page(int page) {
+            this.page = page;
+            return this;
+        }
+
+        /**
+         * @param pageSize number of articles per page, the API default of 10 if not set
+         */
+        public Builder pageSize(int pageSize) {
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * @return the url of the query
+         */
+        public String build() {
+            StringBuilder url = new StringBuilder(BASE_URL).append(path).append('?');
+            appendParameter(url, "format", "json");
+            appendParameter(url, "section", section);
+            appendParameter(url, "production-office", productionOffice);
+            appendParameter(url, "q", searchTerm);
+            if (projection != null) {
+                appendParameter(url, "show-fields", projection.getShowFields());
+            }
+            appendParameter(url, "order-by", orderBy);
+            appendParameter(url, "from-date", fromDate);
+            if (page > 0) {
+                appendParameter(url, "page", String.valueOf(page));
+            }
+            if (pageSize > 0) {
+                appendParameter(url, "page-size", String.valueOf(pageSize));
+            }
+            appendParameter(url, "api-key", API_KEY);
+            return url.toString();
+        }
+
+        private static void appendParameter(StringBuilder url, String name, String value) {
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            if (url.charAt(url.length() - 1) != '?') {
+                url.append('&');
+            }
+            url.append(name).append('=').append(encode(value));
+        }
+
+        private static String encode(String value) {
+            try {
+                // URLEncoder encodes spaces for forms, the API expects %20
+                return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+            } catch (UnsupportedEncodingException e) {
+                // Every Java and Android runtime supports UTF-8
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
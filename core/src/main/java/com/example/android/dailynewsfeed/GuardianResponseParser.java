@@ -0,0 +1,297 @@
+package com.example.android.dailynewsfeed;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link GuardianResponseParser} reads a Guardian API search response token by token straight
+ * from the {@link InputStream} and creates an {@link Article} as soon as each result has been
+ * read. Fields the list does not display (body, main, standfirst, ...) are skipped without being
+ * turned into Strings. The fields repeated across articles are shared through
+ * {@link StringPool#ARTICLE_FIELDS}, and the publication date is kept as a number.
+ */
+public final class GuardianResponseParser {
+
+    /**
+     * Charset of the Guardian API responses
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Guardian API keys
+    private static final String RESPONSE_KEY = "response";
+    private static final String RESULTS_KEY = "results";
+    private static final String CURRENT_PAGE_KEY = "currentPage";
+    private static final String PAGES_KEY = "pages";
+    private static final String TITLE_KEY = "webTitle";
+    private static final String SECTION_NAME_KEY = "sectionName";
+    private static final String SECTION_ID_KEY = "sectionId";
+    private static final String PUBLICATION_DATE_KEY = "webPublicationDate";
+    private static final String WEB_URL_KEY = "webUrl";
+    private static final String FIELDS_KEY = "fields";
+    private static final String BYLINE_KEY = "byline";
+    private static final String THUMBNAIL_KEY = "thumbnail";
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+
+    /**
+     * Entries of "fields" read by the parser, the minimal show-fields of a list query
+     */
+    static final String[] LIST_FIELDS = {BYLINE_KEY, THUMBNAIL_KEY};
+
+    /**
+     * Meant to hold static methods only.
+     */
+    private GuardianResponseParser() {
+    }
+
+    /**
+     * Parse a Guardian API search response into a list of {@link Article} objects. The stream is
+     * closed once parsing has finished.
+     *
+     * @param inputStream response body
+     * @return list of articles, or null if the response has no results
+     * @throws IOException if the stream cannot be read or is not a valid search response
+     */
+    public static List<Article> parse(InputStream inputStream) throws IOException {
+        return parsePage(inputStream).getArticles();
+    }
+
+    /**
+     * Parse a Guardian API search response into an {@link ArticlePage}. The stream is closed once
+     * parsing has finished.
+     *
+     * @param inputStream response body
+     * @return the page, whose articles are null if the response has no results
+     * @throws IOException if the stream cannot be read or is not a valid search response
+     */
+    public static ArticlePage parsePage(InputStream inputStream) throws IOException {
+        return parsePage(inputStream, StringPool.ARTICLE_FIELDS);
+    }
+
+    /**
+     * Parse a Guardian API search response into an {@link ArticlePage}, sharing the fields
+     * repeated across articles through a pool
+     *
+     * @param pool shares bylines, section names and section ids, or null not to share them
+     */
+    static ArticlePage parsePage(InputStream inputStream, StringPool pool) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, UTF_8));
+        try {
+            ArticlePage page = new ArticlePage(null, 0, 0);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (RESPONSE_KEY.equals(reader.nextName())) {
+                    page = readResponse(reader, pool);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return page;
+        } catch (IllegalStateException | NumberFormatException e) {
+            // JsonReader reports a token of the wrong type with an IllegalStateException
+            throw new IOException("Unexpected JSON structure", e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Read the "response" object into a page, whose articles are null if it has no results
+     */
+    private static ArticlePage readResponse(JsonReader reader, StringPool pool)
+            throws IOException {
+        List<Article> articles = null;
+        int currentPage = 0;
+        int pages = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (RESULTS_KEY.equals(name)) {
+                articles = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    articles.add(readResult(reader, pool));
+                }
+                reader.endArray();
+            } else if (CURRENT_PAGE_KEY.equals(name)) {
+                currentPage = reader.nextInt();
+            } else if (PAGES_KEY.equals(name)) {
+                pages = reader.nextInt();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new ArticlePage(articles, currentPage, pages);
+    }
+
+    /**
+     * Read a single result object and create an {@link Article} from it
+     */
+    private static Article readResult(JsonReader reader, StringPool pool) throws IOException {
+        String title = "";
+        String section = "";
+        String sectionId = "";
+        long publicationDate = Article.NO_DATE;
+        String webUrl = "";
+        String contributor = "";
+        String thumbnail = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (TITLE_KEY.equals(name)) {
+                title = nextString(reader);
+            } else if (SECTION_NAME_KEY.equals(name)) {
+                section = nextString(reader);
+            } else if (SECTION_ID_KEY.equals(name)) {
+                sectionId = nextString(reader);
+            } else if (PUBLICATION_DATE_KEY.equals(name)) {
+                publicationDate = parseDate(nextString(reader));
+            } else if (WEB_URL_KEY.equals(name)) {
+                webUrl = nextString(reader);
+            } else if (FIELDS_KEY.equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                // Only byline and thumbnail are kept, everything else in "fields" is skipped
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String field = reader.nextName();
+                    if (BYLINE_KEY.equals(field)) {
+                        contributor = nextString(reader);
+                    } else if (THUMBNAIL_KEY.equals(field)) {
+                        thumbnail = nextString(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (pool != null) {
+            contributor = pool.intern(contributor);
+            section = pool.intern(section);
+            sectionId = pool.intern(sectionId);
+        }
+        return new Article(title, contributor, section, sectionId, publicationDate, webUrl,
+                thumbnail);
+    }
+
+    /**
+     * Parse a publication date as the API writes it, e.g. "2017-10-26T12:00:00Z": an ISO 8601
+     * date and time with optional fractions of a second, in UTC or with an offset such as
+     * "+01:00". Reading the digits directly avoids a SimpleDateFormat per date.
+     *
+     * @param date to parse, or null
+     * @return the date in milliseconds since the epoch, or {@link Article#NO_DATE} if it is not a
+     * date of this form
+     */
+    public static long parseDate(String date) {
+        if (date == null || date.length() < 20 || date.charAt(4) != '-'
+                || date.charAt(7) != '-' || date.charAt(10) != 'T' || date.charAt(13) != ':'
+                || date.charAt(16) != ':') {
+            return Article.NO_DATE;
+        }
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 2);
+        int day = digits(date, 8, 2);
+        int hour = digits(date, 11, 2);
+        int minute = digits(date, 14, 2);
+        int second = digits(date, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return Article.NO_DATE;
+        }
+
+        int index = 19;
+        int millis = 0;
+        if (date.charAt(index) == '.') {
+            // Keep the milliseconds, whatever the number of digits
+            int start = ++index;
+            while (index < date.length() && Character.isDigit(date.charAt(index))) {
+                if (index - start < 3) {
+                    millis = millis * 10 + date.charAt(index) - '0';
+                }
+                index++;
+            }
+            if (index == start) {
+                return Article.NO_DATE;
+            }
+            for (int digits = index - start; digits < 3; digits++) {
+                millis *= 10;
+            }
+        }
+
+        int offsetMinutes;
+        if (index == date.length() - 1 && date.charAt(index) == 'Z') {
+            offsetMinutes = 0;
+        } else if (index == date.length() - 6 && date.charAt(index + 3) == ':'
+                && (date.charAt(index) == '+' || date.charAt(index) == '-')) {
+            int offsetHours = digits(date, index + 1, 2);
+            offsetMinutes = digits(date, index + 4, 2);
+            if (offsetHours < 0 || offsetMinutes < 0) {
+                return Article.NO_DATE;
+            }
+            offsetMinutes += offsetHours * 60;
+            if (date.charAt(index) == '-') {
+                offsetMinutes = -offsetMinutes;
+            }
+        } else {
+            return Article.NO_DATE;
+        }
+
+        long minutes = (daysFromEpoch(year, month, day) * 24 + hour) * 60 + minute
+                - offsetMinutes;
+        return minutes * MILLIS_PER_MINUTE + second * 1000L + millis;
+    }
+
+    /**
+     * @return the number written with count digits from start, or -1 if a character is not a
+     * digit
+     */
+    private static int digits(String text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    /**
+     * Number of days from 1970-01-01 to a date of the proleptic Gregorian calendar, counting
+     * years from March so that the leap day comes last
+     */
+    private static long daysFromEpoch(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Read the next value as a String, treating null as an empty String
+     */
+    private static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return "";
+        }
+        return reader.nextString();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.android.dailynewsfeed;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link LatencyHistogram} counts durations in logarithmic buckets, four per power of two, so
+ * percentiles are known to within about 19% while recording stays a few atomic increments with
+ * constant memory. Durations from one microsecond to over a minute are told apart.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Buckets per power of two
+     */
+    private static final int SUB_BUCKETS = 4;
+    /**
+     * Powers of two covered, from one microsecond to 2^27 microseconds (134 s)
+     */
+    private static final int POWERS = 28;
+    private static final long NANOS_PER_MICRO = 1000;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(POWERS * SUB_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Record one duration
+     *
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+        buckets.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * @return number of recorded durations
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return mean of the recorded durations in nanoseconds, 0 if there are none
+     */
+    public long getMeanNanos() {
+        long n = count.get();
+        return n == 0 ? 0 : totalNanos.get() / n;
+    }
+
+    /**
+     * @return longest recorded duration in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Return the duration below which the given share of the recorded durations fall
+     *
+     * @param percentile between 0 and 100, e.g. 95
+     * @return upper bound of the bucket holding the percentile in nanoseconds, 0 if nothing has
+     * been recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * n);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank && seen > 0) {
+                return Math.min(upperBoundNanos(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Forget every recorded duration
+     */
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    /**
+     * Return the bucket of a duration: bucket 0 holds everything up to one microsecond, then each
+     * power of two of microseconds is split into {@link #SUB_BUCKETS} equal parts
+     */
+    static int bucketOf(long nanos) {
+        long micros = nanos / NANOS_PER_MICRO;
+        if (micros < 1) {
+            return 0;
+        }
+        int power = 63 - Long.numberOfLeadingZeros(micros);
+        if (power >= POWERS) {
+            return POWERS * SUB_BUCKETS - 1;
+        }
+        // Position within [2^power, 2^(power + 1)) in quarters
+        int sub = (int) (((micros - (1L << power)) * SUB_BUCKETS) >> power);
+        return Math.max(1, power * SUB_BUCKETS + sub);
+    }
+
+    /**
+     * @return end of the durations counted in the bucket in nanoseconds
+     */
+    static long upperBoundNanos(int bucket) {
+        if (bucket == 0) {
+            return NANOS_PER_MICRO;
+        }
+        int power = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        long micros = (1L << power)
+                + (((sub + 1L) << power) + SUB_BUCKETS - 1) / SUB_BUCKETS;
+        return micros * NANOS_PER_MICRO;
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.android.dailynewsfeed;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Metrics} collects named timers and counters of where the app spends its time: requests,
+ * parsing, thumbnail decoding, loading and binding. Timers are aggregated in
+ * {@link LatencyHistogram}s and can be dumped as text with their p50, p95 and p99. Gauges hold the
+ * last value set, e.g. the heap used once every tab has been shown.
+ * <p>
+ * Collection is off by default. While it is off {@link #start()} and {@link #stop(String, long)}
+ * only read a volatile flag, so the calls can stay in the code of release builds.
+ * <pre>
+ * long start = Metrics.start();
+ * ...
+ * Metrics.stop(Metrics.PARSE, start);
+ * </pre>
+ */
+public final class Metrics {
+
+    // Names of the timers
+    public static final String HTTP_RESPONSE = "http.response";
+    public static final String PARSE = "json.parse";
+    public static final String MAKE_HTTP_REQUEST = "http.request_and_parse";
+    public static final String THUMBNAIL_DOWNLOAD = "thumbnail.download";
+    public static final String THUMBNAIL_DECODE = "thumbnail.decode";
+    public static final String LOAD_IN_BACKGROUND = "loader.load_in_background";
+    public static final String STORE_LOAD = "store.load";
+    public static final String BIND = "adapter.bind";
+    public static final String FIRST_LIST = "startup.first_list";
+    public static final String STARTUP_APPLICATION = "startup.application";
+    public static final String STARTUP_ACTIVITY = "startup.activity_create";
+    public static final String STARTUP_WARM_UP = "startup.warm_up";
+
+    // Names of the counters
+    public static final String HTTP_FROM_CACHE = "http.from_cache";
+    public static final String HTTP_ERROR = "http.error";
+    public static final String HTTP_RETRY = "http.retry";
+    public static final String HTTP_CIRCUIT_OPEN = "http.circuit_open";
+    public static final String HTTP_STALE = "http.stale";
+    public static final String THUMBNAIL_MEMORY_HIT = "thumbnail.memory_hit";
+    public static final String THUMBNAIL_BITMAP_ALLOCATED = "thumbnail.bitmap_allocated";
+    public static final String THUMBNAIL_BITMAP_REUSED = "thumbnail.bitmap_reused";
+    public static final String DELTA_UNCHANGED = "sync.delta_unchanged";
+    public static final String DELTA_MERGED = "sync.delta_merged";
+    public static final String DELTA_FALLBACK = "sync.delta_fallback";
+
+    // Names of the gauges
+    public static final String HEAP_ALL_TABS_KB = "memory.heap_all_tabs_kb";
+    public static final String FIRST_ARTICLE_MS = "startup.first_article_ms";
+    public static final String FIRST_ARTICLE_AFTER_LAYOUT_MS =
+            "startup.first_article_after_layout_ms";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private static volatile boolean enabled;
+    private static final ConcurrentMap<String, LatencyHistogram> timers =
+            new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Long> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Meant to hold static methods only.
+     */
+    private Metrics() {
+    }
+
+    /**
+     * Turn collection on or off, e.g. on for debug builds
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * @return whether metrics are being collected
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start timing
+     *
+     * @return start time to pass to {@link #stop(String, long)}, 0 if collection is off
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record the time since {@link #start()} under the name of a timer
+     *
+     * @param name  of the timer
+     * @param start returned by {@link #start()}
+     */
+    public static void stop(String name, long start) {
+        if (start == 0 || !enabled) {
+            return;
+        }
+        record(name, System.nanoTime() - start);
+    }
+
+    /**
+     * Record a duration under the name of a timer
+     *
+     * @param name  of the timer
+     * @param nanos duration in nanoseconds
+     */
+    public static void record(String name, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        LatencyHistogram histogram = timers.get(name);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = timers.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Add one to a counter
+     *
+     * @param name of the counter
+     */
+    public static void increment(String name) {
+        if (!enabled) {
+            return;
+        }
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    /**
+     * Set the value of a gauge
+     *
+     * @param name  of the gauge
+     * @param value to set
+     */
+    public static void set(String name, long value) {
+        if (!enabled) {
+            return;
+        }
+        gauges.put(name, value);
+    }
+
+    /**
+     * @return the timer of the name, or null if nothing has been recorded under it
+     */
+    public static LatencyHistogram getTimer(String name) {
+        return timers.get(name);
+    }
+
+    /**
+     * @return value of the counter of the name, 0 if it has not been incremented
+     */
+    public static long getCount(String name) {
+        AtomicLong counter = counters.get(name);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * @return value of the gauge of the name, 0 if it has not been set
+     */
+    public static long getGauge(String name) {
+        Long value = gauges.get(name);
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * Forget every timer, counter and gauge
+     */
+    public static void reset() {
+        timers.clear();
+        counters.clear();
+        gauges.clear();
+    }
+
+    /**
+     * Write every timer, counter and gauge as text, one per line, sorted by name
+     *
+     * @throws IOException if the writer fails
+     */
+    public static void dump(Writer writer) throws IOException {
+        for (Map.Entry<String, LatencyHistogram> entry
+                : new TreeMap<>(timers).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            writer.write(String.format(Locale.US,
+                    "%s count=%d mean=%.2fms p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms%n",
+                    entry.getKey(), histogram.getCount(),
+                    histogram.getMeanNanos() / NANOS_PER_MILLI,
+                    histogram.getPercentileNanos(50) / NANOS_PER_MILLI,
+                    histogram.getPercentileNanos(95) / NANOS_PER_MILLI,
+                    histogram.getPercentileNanos(99) / NANOS_PER_MILLI,
+                    histogram.getMaxNanos() / NANOS_PER_MILLI));
+        }
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(counters).entrySet()) {
+            writer.write(String.format(Locale.US, "%s count=%d%n", entry.getKey(),
+                    entry.getValue().get()));
+        }
+        for (Map.Entry<String, Long> entry : new TreeMap<>(gauges).entrySet()) {
+            writer.write(String.format(Locale.US, "%s value=%d%n", entry.getKey(),
+                    entry.getValue()));
+        }
+        writer.flush();
+    }
+
+    /**
+     * Write every timer, counter and gauge to a file, replacing it
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public static void dump(File file) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF_8);
+        try {
+            dump(writer);
+        } finally {
+            writer.close();
+        }
+    }
+}
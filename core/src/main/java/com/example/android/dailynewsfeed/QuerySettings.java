@@ -0,0 +1,125 @@
+package com.example.android.dailynewsfeed;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * {@link QuerySettings} are the search settings shared by every tab, in a canonical form: values
+ * are trimmed, runs of whitespace in the search term are collapsed, the order and production
+ * office are lower case, and empty values are null. Settings that only differ in how they were
+ * typed build the same urls, so they share the articles cached and stored under those urls.
+ * <p>
+ * The search term keeps its case, as the Guardian API reads upper case AND, OR and NOT as
+ * operators.
+ */
+public final class QuerySettings {
+
+    /**
+     * Settings that can change
+     */
+    public enum Parameter {
+        ORDER_BY, PRODUCTION_OFFICE, SEARCH_TERM
+    }
+
+    private final String productionOffice;
+    private final String searchTerm;
+    private final String orderBy;
+
+    /**
+     * Create the canonical form of the given settings
+     *
+     * @param productionOffice production office setting, or null
+     * @param searchTerm       search term setting, or null
+     * @param orderBy          order setting, or null
+     */
+    public QuerySettings(String productionOffice, String searchTerm, String orderBy) {
+        this.productionOffice = lowerCase(canonical(productionOffice));
+        this.searchTerm = canonical(searchTerm);
+        this.orderBy = lowerCase(canonical(orderBy));
+    }
+
+    /**
+     * @return production office, or null
+     */
+    public String getProductionOffice() {
+        return productionOffice;
+    }
+
+    /**
+     * @return search term, or null
+     */
+    public String getSearchTerm() {
+        return searchTerm;
+    }
+
+    /**
+     * @return order of the articles, or null
+     */
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    /**
+     * @param other settings to compare with
+     * @return settings that differ from the other settings, empty if the urls they build are
+     * the same
+     */
+    public Set<Parameter> changes(QuerySettings other) {
+        Set<Parameter> changes = EnumSet.noneOf(Parameter.class);
+        if (!equal(orderBy, other.orderBy)) {
+            changes.add(Parameter.ORDER_BY);
+        }
+        if (!equal(productionOffice, other.productionOffice)) {
+            changes.add(Parameter.PRODUCTION_OFFICE);
+        }
+        if (!equal(searchTerm, other.searchTerm)) {
+            changes.add(Parameter.SEARCH_TERM);
+        }
+        return changes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof QuerySettings)) {
+            return false;
+        }
+        return changes((QuerySettings) o).isEmpty();
+    }
+
+    @Override
+    public int hashCode() {
+        int result = productionOffice != null ? productionOffice.hashCode() : 0;
+        result = 31 * result + (searchTerm != null ? searchTerm.hashCode() : 0);
+        result = 31 * result + (orderBy != null ? orderBy.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "QuerySettings[productionOffice=" + productionOffice + ",searchTerm=" + searchTerm
+                + ",orderBy=" + orderBy + "]";
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * @return the value trimmed with its runs of whitespace collapsed, or null if it is empty
+     */
+    private static String canonical(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim().replaceAll("\\s+", " ");
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static String lowerCase(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.android.dailynewsfeed;
+
+import java.util.List;
+
+/**
+ * {@link SectionQuery} is the search a tab shows: its section and the settings shared by every
+ * tab. Queries that differ only in their section can be fetched together, see
+ * FetchScheduler in the app.
+ * <p>
+ * The settings are kept in their canonical {@link QuerySettings} form, so the urls of a query,
+ * which its pages are cached and stored under, are the same however the settings were typed.
+ */
+public class SectionQuery {
+
+    /**
+     * Separates the sections of a query for several sections
+     */
+    private static final String SECTION_SEPARATOR = "|";
+    /**
+     * Order of the articles from newest to oldest, the default of the API without a search term
+     */
+    private static final String ORDER_NEWEST = "newest";
+
+    private final String section;
+    private final QuerySettings settings;
+    private final int pageSize;
+
+    /**
+     * Create a new {@link SectionQuery}
+     *
+     * @param section          id of the section, e.g. "world"
+     * @param productionOffice production office setting, or null
+     * @param searchTerm       search term setting, or null
+     * @param orderBy          order setting, or null
+     * @param pageSize         number of articles per page
+     */
+    public SectionQuery(String section, String productionOffice, String searchTerm,
+                        String orderBy, int pageSize) {
+        this(section, new QuerySettings(productionOffice, searchTerm, orderBy), pageSize);
+    }
+
+    /**
+     * Create a new {@link SectionQuery}
+     *
+     * @param section  id of the section, e.g. "world"
+     * @param settings search settings shared by every tab
+     * @param pageSize number of articles per page
+     */
+    public SectionQuery(String section, QuerySettings settings, int pageSize) {
+        this.section = section;
+        this.settings = settings;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @return id of the section, e.g. "world"
+     */
+    public String getSection() {
+        return section;
+    }
+
+    /**
+     * @return search settings of the query
+     */
+    public QuerySettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * @return number of articles per page
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return whether the query lists articles from newest to oldest, so the articles published
+     * since the last load come first
+     */
+    public boolean isNewestFirst() {
+        return ORDER_NEWEST.equals(settings.getOrderBy())
+                || (settings.getOrderBy() == null && settings.getSearchTerm() == null);
+    }
+
+    /**
+     * @return the same query for another section
+     */
+    public SectionQuery forSection(String otherSection) {
+        return new SectionQuery(otherSection, settings, pageSize);
+    }
+
+    /**
+     * @return the same query with other settings
+     */
+    public SectionQuery withSettings(QuerySettings otherSettings) {
+        return new SectionQuery(section, otherSettings, pageSize);
+    }
+
+    /**
+     * @return url of the first page, which is also the key its articles are stored under
+     */
+    public String url() {
+        return url(1);
+    }
+
+    /**
+     * @param page number of the page, starting at 1
+     * @return url of the page
+     */
+    public String url(int page) {
+        GuardianQuery.Builder query = builder(section).pageSize(pageSize);
+        // The first page keeps the url it is stored under on the device
+        if (page > 1) {
+            query.page(page);
+        }
+        return query.build();
+    }
+
+    /**
+     * @param since publication date in milliseconds since the epoch of the newest article
+     *              already loaded
+     * @param page  number of the page, starting at 1
+     * @return url of a page of the articles published at or after since, newest first
+     */
+    public String deltaUrl(long since, int page) {
+        GuardianQuery.Builder query = builder(section)
+                .orderBy(ORDER_NEWEST)
+                .fromDate(ArticleFormatter.formatDateTime(since))
+                .pageSize(pageSize);
+        if (page > 1) {
+            query.page(page);
+        }
+        return query.build();
+    }
+
+    /**
+     * @param sections     ids of the sections to search together
+     * @param combinedSize number of articles to ask for across all sections
+     * @return url of the first page of this query for all the sections
+     */
+    public String combinedUrl(List<String> sections, int combinedSize) {
+        StringBuilder sectionParameter = new StringBuilder();
+        for (String combined : sections) {
+            if (sectionParameter.length() > 0) {
+                sectionParameter.append(SECTION_SEPARATOR);
+            }
+            sectionParameter.append(combined);
+        }
+        return builder(sectionParameter.toString()).pageSize(combinedSize).build();
+    }
+
+    /**
+     * @return the query without its section, equal for queries that can be fetched together
+     */
+    public String batchKey() {
+        return builder(null).pageSize(pageSize).build();
+    }
+
+    private GuardianQuery.Builder builder(String sectionParameter) {
+        return GuardianQuery.search()
+                .section(sectionParameter)
+                .productionOffice(settings.getProductionOffice())
+                .searchTerm(settings.getSearchTerm())
+                .orderBy(settings.getOrderBy());
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.android.dailynewsfeed;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link StringPool} hands out a single instance for equal Strings, so a value repeated across
+ * many objects, e.g. the section name of every article of a tab, is kept in memory once. Unlike
+ * {@link String#intern()} the pool is bounded: once it holds its maximum number of Strings it
+ * starts over, and the Strings it no longer holds are collected as soon as nothing else refers to
+ * them. It is meant for fields with few distinct values; pooling unique values only costs time.
+ * <p>
+ * All methods are thread safe.
+ */
+public class StringPool {
+
+    /**
+     * Pool of the article fields that repeat across pages and tabs: bylines, section names and
+     * section ids
+     */
+    public static final StringPool ARTICLE_FIELDS = new StringPool(4096);
+
+    /**
+     * Most Strings held at once
+     */
+    private final int maxSize;
+    /**
+     * Pooled Strings, each mapped to itself
+     */
+    private final Map<String, String> strings = new HashMap<>();
+
+    /**
+     * Create an empty {@link StringPool}
+     *
+     * @param maxSize most Strings held at once
+     */
+    public StringPool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Return the pooled instance equal to a String, pooling this one if there is none
+     *
+     * @param value to pool, or null
+     * @return an instance equal to value, or null if value is null
+     */
+    public synchronized String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = strings.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (strings.size() >= maxSize) {
+            // Instances already handed out stay shared, only new ones are pooled anew
+            strings.clear();
+        }
+        strings.put(value, value);
+        return value;
+    }
+
+    /**
+     * @return number of Strings held
+     */
+    public synchronized int size() {
+        return strings.size();
+    }
+}
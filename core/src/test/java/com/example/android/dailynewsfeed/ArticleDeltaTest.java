@@ -0,0 +1,99 @@
+package com.example.android.dailynewsfeed;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link ArticleDelta} keeps only the articles published since the last load and
+ * places them in front of the known ones.
+ */
+public class ArticleDeltaTest {
+
+    private static final long NEWEST_KNOWN = 1509019200000L;
+
+    @Test
+    public void since_isTheNewestKnownDate() {
+        assertEquals(NEWEST_KNOWN, new ArticleDelta(articles(0, 5)).since());
+        assertEquals(Article.NO_DATE,
+                new ArticleDelta(Collections.<Article>emptyList()).since());
+    }
+
+    @Test
+    public void addPage_stopsAtTheFirstKnownArticle() {
+        List<Article> known = articles(0, 5);
+        ArticleDelta delta = new ArticleDelta(known);
+
+        // Three articles published since, the newest known one back as the from-date is inclusive
+        assertTrue(delta.addPage(articles(-3, 5)));
+        assertTrue(delta.isComplete());
+        assertEquals(3, delta.addedCount());
+
+        List<Article> merged = delta.merge(5);
+        assertEquals(articles(-3, 5), merged);
+    }
+
+    @Test
+    public void addPage_readsFurtherPagesUntilAKnownArticle() {
+        ArticleDelta delta = new ArticleDelta(articles(0, 5));
+
+        assertFalse(delta.addPage(articles(-6, 3)));
+        assertFalse(delta.isComplete());
+        assertTrue(delta.addPage(articles(-3, 4)));
+        // Pages after the known article add nothing
+        delta.addPage(articles(-2, 2));
+
+        assertEquals(6, delta.addedCount());
+        assertEquals(articles(-6, 11), delta.merge(20));
+    }
+
+    @Test
+    public void nothingNew_mergesTheKnownArticles() {
+        List<Article> known = articles(0, 5);
+        ArticleDelta delta = new ArticleDelta(known);
+
+        assertTrue(delta.addPage(articles(0, 1)));
+        assertEquals(0, delta.addedCount());
+        assertEquals(known, delta.merge(5));
+    }
+
+    @Test
+    public void emptyPage_isNotComplete() {
+        ArticleDelta delta = new ArticleDelta(articles(0, 5));
+
+        assertFalse(delta.addPage(new ArrayList<Article>()));
+        assertFalse(delta.isComplete());
+    }
+
+    @Test
+    public void unreadablePage_leavesTheDeltaIncomplete() {
+        ArticleDelta delta = new ArticleDelta(articles(0, 5));
+
+        assertFalse(delta.addPage(articles(-3, 2)));
+        // E.g. a response without results: stop reading and load the whole list instead
+        assertTrue(delta.addPage(null));
+        assertFalse(delta.isComplete());
+        // A later page cannot make up for it
+        delta.addPage(articles(-1, 2));
+        assertFalse(delta.isComplete());
+    }
+
+    /**
+     * Articles newest first, one minute apart, numbered from first; article 0 is the newest known
+     */
+    private static List<Article> articles(int first, int count) {
+        List<Article> articles = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            articles.add(new Article("Headline number " + i, "Contributor", "World news", "world",
+                    NEWEST_KNOWN - i * 60000L, "https://www.theguardian.com/world/article-" + i,
+                    null));
+        }
+        return articles;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.android.dailynewsfeed;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks matching and ranking of {@link ArticleSearchIndex}. ArticleSearchIndexBenchmark measures
+ * its query latency over 50,000 indexed articles.
+ */
+public class ArticleSearchIndexTest {
+
+    private static final int LIMIT = 20;
+
+    @Test
+    public void search_matchesPrefixesOfEveryWord() {
+        ArticleSearchIndex index = new ArticleSearchIndex();
+        index.add(article(1, "Brexit talks stall in Brussels", "Jon Henley in Brussels",
+                "World news", "2017-10-26T10:00:00Z"));
+        index.add(article(2, "Brexit: what happens next?", "", "Politics",
+                "2017-10-26T11:00:00Z"));
+        index.add(article(3, "Climate talks open in Bonn", "", "Environment",
+                "2017-10-26T12:00:00Z"));
+
+        assertEquals(urls(2, 1), urls(index.search("bre", LIMIT)));
+        assertEquals(urls(1), urls(index.search("Brexit TALK", LIMIT)));
+        assertEquals(urls(1), urls(index.search("henley", LIMIT)));
+        assertTrue(index.search("brexit bonn", LIMIT).isEmpty());
+        assertTrue(index.search("  ", LIMIT).isEmpty());
+    }
+
+    @Test
+    public void search_ranksTitleOverBylineOverSection() {
+        ArticleSearchIndex index = new ArticleSearchIndex();
+        index.add(article(1, "Markets rally", "", "Travel", "2017-10-26T12:00:00Z"));
+        index.add(article(2, "Markets rally", "Anna Travel", "Business",
+                "2017-10-26T12:00:00Z"));
+        index.add(article(3, "Travel news", "", "Business", "2017-10-20T12:00:00Z"));
+
+        assertEquals(urls(3, 2, 1), urls(index.search("travel", LIMIT)));
+    }
+
+    @Test
+    public void search_ranksWholeWordsOverPrefixesThenNewestFirst() {
+        ArticleSearchIndex index = new ArticleSearchIndex();
+        index.add(article(1, "Trade deal", "", "Business", "2017-10-24T12:00:00Z"));
+        index.add(article(2, "Traders worry", "", "Business", "2017-10-26T12:00:00Z"));
+        index.add(article(3, "Trade war", "", "Business", "2017-10-25T12:00:00Z"));
+
+        assertEquals(urls(3, 1, 2), urls(index.search("trade", LIMIT)));
+        assertEquals(urls(3, 1), urls(index.search("trade", 2)));
+    }
+
+    @Test
+    public void add_indexesEachUrlOnce() {
+        ArticleSearchIndex index = new ArticleSearchIndex();
+
+        assertTrue(index.add(article(1, "Storm Ophelia", "", "World news", null)));
+        assertFalse(index.add(article(1, "Storm Ophelia", "", "World news", null)));
+        assertEquals(1, index.size());
+        assertEquals(1, index.search("storm", LIMIT).size());
+    }
+
+    private static Article article(int id, String title, String byline, String section,
+                                   String date) {
+        return new Article(title, byline, section, "section",
+                GuardianResponseParser.parseDate(date),
+                "https://www.theguardian.com/" + id, null);
+    }
+
+    private static List<String> urls(int... ids) {
+        String[] urls = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            urls[i] = "https://www.theguardian.com/" + ids[i];
+        }
+        return Arrays.asList(urls);
+    }
+
+    private static List<String> urls(List<Article> articles) {
+        String[] urls = new String[articles.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = articles.get(i).getWebUrl();
+        }
+        return Arrays.asList(urls);
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.android.dailynewsfeed;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Round-trips articles through {@link ArticleSnapshot} and compares the size of a snapshot with
+ * the JSON response and Java serialization. ArticleSnapshotBenchmark compares the time to restore
+ * them.
+ */
+public class ArticleSnapshotTest {
+
+    private static final String[] SECTIONS = {"world", "politics", "business", "technology",
+            "science", "sport", "culture", "lifeandstyle", "fashion", "travel"};
+
+    @Test
+    public void roundTrip_keepsEveryFieldAndNull() throws IOException {
+        List<Article> articles = new ArrayList<>();
+        articles.add(new Article("Brexit talks stall", "Jon Henley in Brussels", "World news",
+                "world", GuardianResponseParser.parseDate("2017-10-26T10:00:00Z"),
+                "https://www.theguardian.com/world/1",
+                "https://media.guim.co.uk/1/500.jpg"));
+        articles.add(new Article("Crème brûlée, ünïcödé and emoji 📰", null, null, null,
+                Article.NO_DATE, null, null));
+        articles.add(new Article("", "", "World news", "world", -1,
+                "https://www.theguardian.com/world/2", null));
+
+        ArticleSnapshot snapshot = ArticleSnapshot.wrap(
+                ByteBuffer.wrap(ArticleSnapshot.toBytes(articles)));
+
+        assertEquals(articles.size(), snapshot.size());
+        for (int i = 0; i < articles.size(); i++) {
+            assertArticle(articles.get(i), snapshot.get(i));
+        }
+        assertEquals(articles, snapshot.asList());
+    }
+
+    @Test
+    public void shownTexts_areFormattedWhenWritten() throws IOException {
+        List<Article> articles = articles(100);
+        articles.add(new Article("Untitled", null, null, null, Article.NO_DATE, null, null));
+        ArticleSnapshot snapshot = ArticleSnapshot.wrap(
+                ByteBuffer.wrap(ArticleSnapshot.toBytes(articles)));
+
+        for (int i = 0; i < articles.size(); i++) {
+            Article article = articles.get(i);
+            assertEquals(ArticleFormatter.formatDate(article.getDate()),
+                    snapshot.getShownDate(i));
+            assertEquals(ArticleFormatter.formatContributor(article.getContributor()),
+                    snapshot.getShownContributor(i));
+        }
+        assertSame(snapshot, ArticleSnapshot.of(snapshot.asList()));
+        assertNull(ArticleSnapshot.of(articles));
+    }
+
+    @Test
+    public void roundTrip_emptyList() throws IOException {
+        ArticleSnapshot snapshot = ArticleSnapshot.wrap(ByteBuffer.wrap(
+                ArticleSnapshot.toBytes(Collections.<Article>emptyList())));
+
+        assertEquals(0, snapshot.size());
+        assertTrue(snapshot.asList().isEmpty());
+    }
+
+    @Test
+    public void open_readsMappedFile() throws IOException {
+        List<Article> articles = articles(100);
+        File file = File.createTempFile("snapshot", ".bin");
+        try {
+            write(file, ArticleSnapshot.toBytes(articles));
+            ArticleSnapshot snapshot = ArticleSnapshot.open(file);
+
+            assertEquals(articles, snapshot.asList());
+            assertArticle(articles.get(57), snapshot.get(57));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void sharedStrings_areStoredOnce() {
+        List<Article> articles = articles(1000);
+        List<Article> withoutShared = new ArrayList<>();
+        for (Article article : articles) {
+            withoutShared.add(new Article(article.getTitle(), null, null, null,
+                    article.getDate(), article.getWebUrl(), article.getThumbnailUrl()));
+        }
+
+        int sharedBytes = ArticleSnapshot.toBytes(articles).length
+                - ArticleSnapshot.toBytes(withoutShared).length;
+
+        // 40 contributors and 10 sections cost their text once, whatever the number of rows
+        assertTrue("shared strings took " + sharedBytes + " bytes", sharedBytes < 1024);
+    }
+
+    @Test
+    public void otherVersion_isRejected() {
+        byte[] bytes = ArticleSnapshot.toBytes(articles(3));
+        bytes[4] = (byte) (ArticleSnapshot.VERSION + 1);
+        try {
+            ArticleSnapshot.wrap(ByteBuffer.wrap(bytes));
+            fail("Expected the version to be rejected");
+        } catch (IOException e) {
+            // Expected
+        }
+        try {
+            ArticleSnapshot.wrap(ByteBuffer.wrap(new byte[]{'{', '}'}));
+            fail("Expected a non-snapshot to be rejected");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void get_outOfBounds_throws() throws IOException {
+        ArticleSnapshot snapshot = ArticleSnapshot.wrap(
+                ByteBuffer.wrap(ArticleSnapshot.toBytes(articles(3))));
+        try {
+            snapshot.get(3);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void snapshot_isSmallerThanJsonAndJavaSerialization() throws IOException {
+        List<Article> articles = articles(5000);
+        int snapshotBytes = ArticleSnapshot.toBytes(articles).length;
+
+        assertTrue(snapshotBytes < json(articles).length);
+        assertTrue(snapshotBytes < serialize(articles).length);
+    }
+
+    private static void assertArticle(Article expected, Article actual) {
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getContributor(), actual.getContributor());
+        assertEquals(expected.getSection(), actual.getSection());
+        assertEquals(expected.getSectionId(), actual.getSectionId());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getWebUrl(), actual.getWebUrl());
+        assertEquals(expected.getThumbnailUrl(), actual.getThumbnailUrl());
+    }
+
+    private static List<Article> articles(int count) {
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String section = SECTIONS[i % SECTIONS.length];
+            articles.add(new Article("Headline number " + i + " about " + section + " news",
+                    "Contributor " + (i % 40), section.substring(0, 1).toUpperCase()
+                    + section.substring(1), section,
+                    GuardianResponseParser.parseDate(String.format("2017-10-%02dT%02d:%02d:00Z",
+                            1 + i % 28, i % 24, i % 60)),
+                    "https://www.theguardian.com/" + section + "/2017/oct/26/article-" + i,
+                    i % 4 == 0 ? null : "https://media.guim.co.uk/" + i + "/500.jpg"));
+        }
+        return articles;
+    }
+
+    /**
+     * The articles as the Guardian API returns them with the list projection
+     */
+    private static byte[] json(List<Article> articles) {
+        StringBuilder json = new StringBuilder("{\"response\":{\"status\":\"ok\",\"currentPage\":1,"
+                + "\"pages\":1,\"results\":[");
+        for (int i = 0; i < articles.size(); i++) {
+            Article article = articles.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"sectionId\":\"").append(article.getSectionId())
+                    .append("\",\"sectionName\":\"").append(article.getSection())
+                    .append("\",\"webPublicationDate\":\"")
+                    .append(ArticleFormatter.formatDate(article.getDate())).append("T12:00:00Z")
+                    .append("\",\"webTitle\":\"").append(article.getTitle())
+                    .append("\",\"webUrl\":\"").append(article.getWebUrl())
+                    .append("\",\"fields\":{\"byline\":\"").append(article.getContributor())
+                    .append('"');
+            if (article.getThumbnailUrl() != null) {
+                json.append(",\"thumbnail\":\"").append(article.getThumbnailUrl()).append('"');
+            }
+            json.append("}}");
+        }
+        return json.append("]}}").toString().getBytes();
+    }
+
+    /**
+     * Java serialization of the fields of the articles, {@link Article} not being serializable
+     */
+    private static byte[] serialize(List<Article> articles) throws IOException {
+        ArrayList<String[]> rows = new ArrayList<>();
+        for (Article article : articles) {
+            rows.add(new String[]{article.getTitle(), article.getContributor(),
+                    article.getSection(), article.getSectionId(),
+                    String.valueOf(article.getDate()), article.getWebUrl(),
+                    article.getThumbnailUrl()});
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(rows);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static void write(File file, byte[] bytes) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+}
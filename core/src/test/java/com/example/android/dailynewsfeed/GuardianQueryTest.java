@@ -0,0 +1,124 @@
+package com.example.android.dailynewsfeed;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the urls built by {@link GuardianQuery} and what the list projection saves against
+ * show-fields=all on recorded responses of the same page.
+ */
+public class GuardianQueryTest {
+
+    @Test
+    public void search_requestsOnlyListFields() {
+        String url = GuardianQuery.search()
+                .section("world")
+                .productionOffice("uk")
+                .orderBy("newest")
+                .build();
+
+        assertEquals("https://content.guardianapis.com/search?format=json&section=world"
+                + "&production-office=uk&show-fields=byline%2Cthumbnail&order-by=newest"
+                + "&api-key=test", url);
+    }
+
+    @Test
+    public void search_leavesOutEmptyValuesAndEncodesSearchTerm() {
+        String url = GuardianQuery.search()
+                .section("")
+                .searchTerm("climate & energy")
+                .build();
+
+        assertEquals("https://content.guardianapis.com/search?format=json"
+                + "&q=climate%20%26%20energy&show-fields=byline%2Cthumbnail&api-key=test", url);
+    }
+
+    @Test
+    public void search_appendsPaging() {
+        String url = GuardianQuery.search()
+                .section("world")
+                .page(3)
+                .pageSize(20)
+                .build();
+
+        assertEquals("https://content.guardianapis.com/search?format=json&section=world"
+                + "&show-fields=byline%2Cthumbnail&page=3&page-size=20&api-key=test", url);
+    }
+
+    @Test
+    public void deltaUrl_asksForNewestArticlesSinceADate() {
+        SectionQuery query = new SectionQuery("world", "", "", "", 20);
+
+        assertTrue(query.isNewestFirst());
+        assertEquals("https://content.guardianapis.com/search?format=json&section=world"
+                + "&show-fields=byline%2Cthumbnail&order-by=newest"
+                + "&from-date=2017-10-26T12%3A00%3A00Z&page=2&page-size=20&api-key=test",
+                query.deltaUrl(1509019200000L, 2));
+        assertFalse(new SectionQuery("world", "", "brexit", "", 20).isNewestFirst());
+        assertFalse(new SectionQuery("world", "", "", "oldest", 20).isNewestFirst());
+    }
+
+    @Test
+    public void sectionQuery_buildsSameUrlForSettingsTypedDifferently() {
+        SectionQuery typed = new SectionQuery("world", " UK", "  climate   AND energy ", "Newest",
+                20);
+        SectionQuery canonical = new SectionQuery("world", "uk", "climate AND energy", "newest",
+                20);
+
+        assertEquals(canonical.url(), typed.url());
+        assertEquals(canonical.getSettings(), typed.getSettings());
+        assertEquals("https://content.guardianapis.com/search?format=json&section=world"
+                + "&production-office=uk&q=climate%20AND%20energy"
+                + "&show-fields=byline%2Cthumbnail&order-by=newest&page-size=20&api-key=test",
+                typed.url());
+        // Blank settings are left out like missing ones
+        assertEquals(new SectionQuery("world", null, null, null, 20).url(),
+                new SectionQuery("world", "", "   ", "", 20).url());
+    }
+
+    @Test
+    public void querySettings_listsOnlyTheSettingsThatChangeTheUrls() {
+        QuerySettings settings = new QuerySettings("uk", "brexit", "newest");
+
+        assertTrue(settings.changes(new QuerySettings("uk ", " brexit", "newest")).isEmpty());
+        assertEquals(EnumSet.of(QuerySettings.Parameter.SEARCH_TERM),
+                settings.changes(new QuerySettings("uk", "brexit deal", "newest")));
+        assertEquals(EnumSet.of(QuerySettings.Parameter.ORDER_BY,
+                QuerySettings.Parameter.PRODUCTION_OFFICE),
+                settings.changes(new QuerySettings("us", "brexit", "relevance")));
+        SectionQuery query = new SectionQuery("world", settings, 20);
+        assertFalse(query.url().equals(query.withSettings(
+                new QuerySettings("uk", "Brexit", "newest")).url()));
+    }
+
+    @Test
+    public void item_requestsDetailFields() {
+        String url = GuardianQuery.item("world/2017/oct/26/some-article").build();
+
+        assertEquals("https://content.guardianapis.com/world/2017/oct/26/some-article?format=json"
+                + "&show-fields=byline%2Cthumbnail%2Cheadline%2Cstandfirst%2CtrailText%2Cbody"
+                + "%2Cwordcount&api-key=test", url);
+    }
+
+    /**
+     * Compares the payload size of one page requested with show-fields=all and with the list
+     * projection
+     */
+    @Test
+    public void listProjection_parsesSameArticlesFromSmallerPayload() throws Exception {
+        byte[] all = GuardianResponseParserTest.readFixture("guardian_search_show_fields_all.json");
+        byte[] list = GuardianResponseParserTest.readFixture("guardian_search_show_fields_list.json");
+
+        List<Article> fromAll = GuardianResponseParser.parse(new ByteArrayInputStream(all));
+        List<Article> fromList = GuardianResponseParser.parse(new ByteArrayInputStream(list));
+        assertEquals(fromAll, fromList);
+        assertTrue(list.length * 10 < all.length);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.android.dailynewsfeed;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link GuardianResponseParser} against a recorded Guardian search response requested with
+ * show-fields=all, and compares it with the previous whole-body String + org.json path.
+ */
+public class GuardianResponseParserTest {
+
+    private static final String FIXTURE = "guardian_search_show_fields_all.json";
+
+    @Test
+    public void parse_matchesDomParser() throws Exception {
+        byte[] payload = readFixture(FIXTURE);
+
+        List<Article> streamed = GuardianResponseParser.parse(new ByteArrayInputStream(payload));
+        List<String[]> expected = parseWithDom(new ByteArrayInputStream(payload));
+
+        assertEquals(10, streamed.size());
+        assertEquals(expected.size(), streamed.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Article article = streamed.get(i);
+            String[] fields = expected.get(i);
+            assertEquals(fields[0], article.getTitle());
+            assertEquals(fields[1], article.getContributor());
+            assertEquals(fields[2], article.getSection());
+            assertEquals(GuardianResponseParser.parseDate(fields[3]), article.getDate());
+            assertTrue(article.getDate() != Article.NO_DATE);
+            assertEquals(fields[4], article.getWebUrl());
+            assertEquals(fields[5], article.getThumbnailUrl() == null ? "" : article.getThumbnailUrl());
+        }
+    }
+
+    @Test
+    public void parseDate_readsIsoDatesAsEpochMillis() {
+        long noon = 1509019200000L; // Thu, 26 Oct 2017 12:00:00 GMT
+        assertEquals(noon, GuardianResponseParser.parseDate("2017-10-26T12:00:00Z"));
+        assertEquals(noon + 250, GuardianResponseParser.parseDate("2017-10-26T12:00:00.25Z"));
+        assertEquals(noon, GuardianResponseParser.parseDate("2017-10-26T13:00:00+01:00"));
+        assertEquals(-1000, GuardianResponseParser.parseDate("1969-12-31T23:59:59Z"));
+        assertEquals(951782400000L, GuardianResponseParser.parseDate("2000-02-29T00:00:00Z"));
+        assertEquals(Article.NO_DATE, GuardianResponseParser.parseDate(""));
+        assertEquals(Article.NO_DATE, GuardianResponseParser.parseDate(null));
+        assertEquals(Article.NO_DATE, GuardianResponseParser.parseDate("2017-10-26"));
+        assertEquals(Article.NO_DATE, GuardianResponseParser.parseDate("2017-13-26T12:00:00Z"));
+    }
+
+    @Test
+    public void formatDate_printsTheUtcDay() {
+        assertEquals("2017-10-26", ArticleFormatter.formatDate(1509019200000L));
+        assertEquals("2000-02-29", ArticleFormatter.formatDate(951782400000L + 86399999));
+        assertEquals("1969-12-31", ArticleFormatter.formatDate(-1));
+        assertEquals("", ArticleFormatter.formatDate(Article.NO_DATE));
+    }
+
+    @Test
+    public void formatDateTime_printsIsoUtc() {
+        assertEquals("2017-10-26T12:00:00Z", ArticleFormatter.formatDateTime(1509019200000L));
+        assertEquals("2000-02-29T23:59:59Z",
+                ArticleFormatter.formatDateTime(951782400000L + 86399999));
+        assertEquals("1969-12-31T23:59:59Z", ArticleFormatter.formatDateTime(-1000));
+        assertEquals(1509019200000L, GuardianResponseParser.parseDate(
+                ArticleFormatter.formatDateTime(1509019200000L)));
+    }
+
+    @Test
+    public void parse_keepsThumbnailUrlWithoutLoadingIt() throws Exception {
+        List<Article> articles = GuardianResponseParser.parse(
+                new ByteArrayInputStream(readFixture(FIXTURE)));
+
+        int thumbnails = 0;
+        for (Article article : articles) {
+            if (article.getThumbnailUrl() != null) {
+                assertTrue(article.getThumbnailUrl().startsWith("https://media.guim.co.uk/"));
+                thumbnails++;
+            }
+        }
+        assertTrue(thumbnails > 0);
+    }
+
+    @Test
+    public void parse_withoutResults_returnsNull() throws Exception {
+        String error = "{\"response\":{\"status\":\"error\",\"message\":\"Invalid API key\"}}";
+        assertNull(GuardianResponseParser.parse(
+                new ByteArrayInputStream(error.getBytes("UTF-8"))));
+    }
+
+    @Test
+    public void parse_nullFields_becomeEmpty() throws Exception {
+        String json = "{\"response\":{\"results\":[{\"webTitle\":\"Title\",\"sectionName\":null,"
+                + "\"fields\":{\"byline\":null,\"body\":{\"nested\":[1,2,3]}}}]}}";
+        List<Article> articles = GuardianResponseParser.parse(
+                new ByteArrayInputStream(json.getBytes("UTF-8")));
+
+        assertEquals(1, articles.size());
+        assertEquals("Title", articles.get(0).getTitle());
+        assertEquals("", articles.get(0).getSection());
+        assertEquals("", articles.get(0).getContributor());
+    }
+
+    @Test
+    public void parsePage_readsPaging() throws Exception {
+        ArticlePage page = GuardianResponseParser.parsePage(
+                new ByteArrayInputStream(readFixture(FIXTURE)));
+
+        assertEquals(10, page.getArticles().size());
+        assertEquals(1, page.getCurrentPage());
+        assertEquals(3125, page.getPages());
+        assertTrue(page.hasNextPage());
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_unexpectedStructure_throwsIOException() throws Exception {
+        String json = "{\"response\":{\"results\":{\"webTitle\":\"Title\"}}}";
+        GuardianResponseParser.parse(new ByteArrayInputStream(json.getBytes("UTF-8")));
+    }
+
+    /**
+     * The previous path: read the whole body into a String, build the org.json tree and pull out
+     * the fields the list displays. Returns title, contributor, section, date, url and
+     * thumbnail per result.
+     */
+    private static List<String[]> parseWithDom(InputStream inputStream) throws Exception {
+        StringBuilder output = new StringBuilder();
+        BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+        String line = bufferedReader.readLine();
+        while (line != null) {
+            output.append(line);
+            line = bufferedReader.readLine();
+        }
+
+        List<String[]> articles = new ArrayList<>();
+        JSONArray results = new JSONObject(output.toString())
+                .getJSONObject("response").getJSONArray("results");
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject result = results.getJSONObject(i);
+            JSONObject fields = result.getJSONObject("fields");
+            articles.add(new String[]{
+                    result.optString("webTitle"),
+                    fields.optString("byline"),
+                    result.optString("sectionName"),
+                    result.optString("webPublicationDate"),
+                    result.optString("webUrl"),
+                    fields.optString("thumbnail")});
+        }
+        return articles;
+    }
+
+    static byte[] readFixture(String name) throws IOException {
+        InputStream in = GuardianResponseParserTest.class.getClassLoader().getResourceAsStream(name);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.android.dailynewsfeed;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the percentiles of {@link LatencyHistogram} and what {@link Metrics} records with
+ * collection on and off. What a call costs is measured by MetricsBenchmark.
+ */
+public class MetricsTest {
+
+    private static final int CALLS = 1000;
+    private static final String TIMER = "test.timer";
+
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @Test
+    public void histogram_percentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMaxNanos());
+        assertClose(500000, histogram.getPercentileNanos(50));
+        assertClose(950000, histogram.getPercentileNanos(95));
+        assertClose(990000, histogram.getPercentileNanos(99));
+    }
+
+    @Test
+    public void histogram_bucketsCoverTheirDurations() {
+        int previousBucket = 0;
+        for (long nanos = 0; nanos < 100000000L; nanos = nanos * 3 / 2 + 1) {
+            int bucket = LatencyHistogram.bucketOf(nanos);
+            assertTrue(nanos < LatencyHistogram.upperBoundNanos(bucket));
+            assertTrue(bucket >= previousBucket);
+            previousBucket = bucket;
+        }
+    }
+
+    @Test
+    public void disabled_recordsNothing() {
+        Metrics.stop(TIMER, Metrics.start());
+        Metrics.increment(TIMER);
+        Metrics.set(TIMER, 42);
+
+        assertNull(Metrics.getTimer(TIMER));
+        assertEquals(0, Metrics.getCount(TIMER));
+        assertEquals(0, Metrics.getGauge(TIMER));
+    }
+
+    @Test
+    public void enabled_dumpsTimersCountersAndGauges() throws Exception {
+        Metrics.setEnabled(true);
+        Metrics.record(TIMER, 2000000);
+        Metrics.increment("test.counter");
+        Metrics.set("test.gauge", 7);
+        Metrics.set("test.gauge", 42);
+
+        StringWriter writer = new StringWriter();
+        Metrics.dump(writer);
+
+        assertTrue(writer.toString().contains("test.timer count=1 mean=2.00ms p50=2.00ms"));
+        assertTrue(writer.toString().contains("test.counter count=1"));
+        assertTrue(writer.toString().contains("test.gauge value=42"));
+    }
+
+    @Test
+    public void enabled_recordsEachStartStop() {
+        Metrics.setEnabled(true);
+        for (int i = 0; i < CALLS; i++) {
+            Metrics.stop(TIMER, Metrics.start());
+        }
+
+        assertEquals(CALLS, Metrics.getTimer(TIMER).getCount());
+    }
+
+    @Test
+    public void disabled_startReturnsZero() {
+        assertEquals(0, Metrics.start());
+        Metrics.setEnabled(true);
+        assertTrue(Metrics.start() != 0);
+    }
+
+    private static void assertClose(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected / 5);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.android.dailynewsfeed;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link StringPool} and counts the Strings that hold the repeated fields of 10,000 parsed
+ * articles with and without a pool.
+ */
+public class StringPoolTest {
+
+    private static final int ARTICLES = 10000;
+    private static final int PAGE_SIZE = 50;
+    private static final int CONTRIBUTORS = 200;
+    private static final String[] SECTIONS = {"world", "politics", "business", "technology",
+            "science", "sport", "culture", "lifeandstyle", "fashion"};
+
+    @Test
+    public void intern_returnsTheFirstEqualInstance() {
+        StringPool pool = new StringPool(10);
+        String first = new String("World news");
+        String second = new String("World news");
+
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(second));
+        assertNull(pool.intern(null));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void intern_staysWithinMaxSize() {
+        StringPool pool = new StringPool(100);
+        for (int i = 0; i < 1000; i++) {
+            pool.intern("Contributor " + i);
+            assertTrue(pool.size() <= 100);
+        }
+    }
+
+    /**
+     * Loads {@link #ARTICLES} articles page by page, as the tabs and their pagination do, and
+     * counts the Strings their repeated fields are held in
+     */
+    @Test
+    public void pooledFields_shareOneStringPerValue() throws IOException {
+        List<byte[]> pages = pages();
+
+        List<Article> unpooled = parse(pages, null);
+        List<Article> pooled = parse(pages, new StringPool(4096));
+
+        assertEquals(unpooled, pooled);
+        assertEquals(3 * ARTICLES, distinctFieldInstances(unpooled));
+        assertEquals(CONTRIBUTORS + 2 * SECTIONS.length, distinctFieldInstances(pooled));
+    }
+
+    private static List<Article> parse(List<byte[]> pages, StringPool pool) throws IOException {
+        List<Article> articles = new ArrayList<>();
+        for (byte[] page : pages) {
+            articles.addAll(GuardianResponseParser.parsePage(new ByteArrayInputStream(page), pool)
+                    .getArticles());
+        }
+        return articles;
+    }
+
+    private static int distinctFieldInstances(List<Article> articles) {
+        Map<String, Boolean> instances = new IdentityHashMap<>();
+        for (Article article : articles) {
+            instances.put(article.getContributor(), true);
+            instances.put(article.getSection(), true);
+            instances.put(article.getSectionId(), true);
+        }
+        return instances.size();
+    }
+
+    /**
+     * Search responses of {@link #PAGE_SIZE} articles, {@link #ARTICLES} in all
+     */
+    private static List<byte[]> pages() throws IOException {
+        List<byte[]> pages = new ArrayList<>();
+        for (int first = 0; first < ARTICLES; first += PAGE_SIZE) {
+            StringBuilder json = new StringBuilder("{\"response\":{\"status\":\"ok\","
+                    + "\"currentPage\":1,\"pages\":1,\"results\":[");
+            for (int i = first; i < first + PAGE_SIZE; i++) {
+                String section = SECTIONS[i % SECTIONS.length];
+                if (i > first) {
+                    json.append(',');
+                }
+                json.append("{\"sectionId\":\"").append(section)
+                        .append("\",\"sectionName\":\"").append(section.toUpperCase())
+                        .append(" news\",\"webPublicationDate\":\"").append(isoDate(i + 1))
+                        .append("\",\"webTitle\":\"Headline number ").append(i)
+                        .append("\",\"webUrl\":\"https://www.theguardian.com/").append(section)
+                        .append("/2017/oct/26/article-").append(i)
+                        .append("\",\"fields\":{\"byline\":\"Contributor ")
+                        .append(i % CONTRIBUTORS).append(" in London\"}}");
+            }
+            pages.add(json.append("]}}").toString().getBytes("UTF-8"));
+        }
+        return pages;
+    }
+
+    private static String isoDate(int number) {
+        return String.format("2017-10-%02dT%02d:%02d:00Z", 1 + number % 28, number % 24,
+                number % 60);
+    }
+}
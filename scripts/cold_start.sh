@@ -0,0 +1,74 @@
+#!/usr/bin/env bash
+#
+# Measures cold starts of the app on the connected device or emulator and reports the time to
+# the first article, read from the log line MainActivity writes in debug builds.
+#
+# Install the debug build first with ./gradlew installDebug, then run
+#
+#     scripts/cold_start.sh [runs]
+#
+# The app is started once beforehand so the first tab has stored articles: the measured starts
+# show them from the device, the case the target of one frame after the first layout pass is
+# set for. Each run stops the app, so the next start creates a new process.
+set -euo pipefail
+
+PACKAGE=com.example.android.dailynewsfeed
+ACTIVITY=$PACKAGE/.MainActivity
+RUNS=${1:-10}
+# Time a frame takes at 60 frames per second, in milliseconds
+FRAME_MILLIS=16
+
+median() {
+    sort -n | awk '{ values[NR] = $1 } END {
+        if (NR == 0) { print "-"; exit }
+        print (NR % 2) ? values[(NR + 1) / 2] : int((values[NR / 2] + values[NR / 2 + 1]) / 2)
+    }'
+}
+
+echo "Storing the articles of the first tab"
+adb shell am force-stop $PACKAGE
+adb shell am start -W -n $ACTIVITY > /dev/null
+sleep 5
+
+launch_times=()
+first_article_times=()
+after_layout_times=()
+within_frame=0
+for run in $(seq "$RUNS"); do
+    adb shell am force-stop $PACKAGE
+    adb logcat -c
+    launch=$(adb shell am start -W -n $ACTIVITY | tr -d '\r' | awk -F': ' '/TotalTime/ { print $2 }')
+
+    line=""
+    for _ in $(seq 50); do
+        line=$(adb logcat -d -s MainActivity:I | grep 'First article drawn' | tail -n 1 || true)
+        if [ -n "$line" ]; then
+            break
+        fi
+        sleep 0.2
+    done
+    if [ -z "$line" ]; then
+        echo "Run $run: launched in ${launch} ms, no article drawn within 10 s"
+        continue
+    fi
+
+    first_article=$(echo "$line" | sed -E 's/.*drawn ([0-9]+) ms after the application.*/\1/')
+    after_layout=$(echo "$line" | sed -E 's/.*, ([0-9]+) ms after the first layout.*/\1/')
+    launch_times+=("$launch")
+    first_article_times+=("$first_article")
+    after_layout_times+=("$after_layout")
+    if [ "$after_layout" -le $FRAME_MILLIS ]; then
+        within_frame=$((within_frame + 1))
+    fi
+    echo "Run $run: launched in ${launch} ms, first article ${first_article} ms after the" \
+        "application was created, ${after_layout} ms after the first layout pass"
+done
+
+echo
+echo "Median of ${#first_article_times[@]} cold starts:"
+echo "  launch (am start TotalTime):      $(printf '%s\n' "${launch_times[@]}" | median) ms"
+echo "  first article after app created:  $(printf '%s\n' "${first_article_times[@]}" | median) ms"
+echo "  first article after first layout: $(printf '%s\n' "${after_layout_times[@]}" | median) ms"
+echo "  within one frame (${FRAME_MILLIS} ms) of the first layout: $within_frame of ${#first_article_times[@]}"
+echo "Startup phases are also in the metrics file (adb pull" \
+    "/sdcard/Android/data/$PACKAGE/files/metrics.txt) and as sections of a systrace."